@@ -15,7 +15,6 @@ import com.imslbd.um.model.Sell;
 import com.imslbd.um.service.*;
 import io.crm.QC;
 import io.crm.transformation.impl.json.object.RemoveNullsTransformation;
-import io.crm.promise.Promises;
 import io.crm.util.Util;
 import io.crm.web.ApiEvents;
 import io.crm.web.App;
@@ -31,8 +30,6 @@ import io.netty.handler.codec.http.HttpResponseStatus;
 import io.vertx.core.AbstractVerticle;
 import io.vertx.core.eventbus.EventBus;
 import io.vertx.core.eventbus.Message;
-import io.vertx.core.http.HttpClient;
-import io.vertx.core.http.HttpClientOptions;
 import io.vertx.core.http.HttpHeaders;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.jdbc.JDBCClient;
@@ -69,6 +66,11 @@ final public class MainVerticle extends AbstractVerticle {
     private JDBCClient jdbcClient;
     private JDBCClient jdbcClientUm;
     private EventDumpingService eventDumpingService;
+    private ConsumerContactService consumerContactService;
+    private UpstreamClients upstreamClients;
+    private BrDirectory brDirectory;
+    private TotalCounts totalCounts;
+    private ProductCatalog productCatalog;
 
     @Override
     public void start() throws Exception {
@@ -98,20 +100,25 @@ final public class MainVerticle extends AbstractVerticle {
         System.out.println("PORT: " + MyApp.loadConfig().getInteger(PROP_PORT));
     }
 
+    /**
+     * Matches the address and its campaignId.distributionHouseId sub addresses (see {@link MyEvents#partition}).
+     */
+    private static String partitionedAddressRegex(String address) {
+        return address + "(\\.\\d+\\.\\d+)?";
+    }
+
     private BridgeOptions bridgeOptions() {
         BridgeOptions bridgeOptions = new BridgeOptions();
 
         bridgeOptions
             .addInboundPermitted(new PermittedOptions().setAddress(MyEvents.LOCK_CONTACT_ID))
-            .addOutboundPermitted(new PermittedOptions().setAddress(MyEvents.LOCK_CONTACT_ID))
-            .addOutboundPermitted(new PermittedOptions().setAddress(MyEvents.ALREADY_LOCKED))
-            .addOutboundPermitted(new PermittedOptions().setAddress(MyEvents.CONTACT_UPDATED));
+            .addOutboundPermitted(new PermittedOptions().setAddressRegex(partitionedAddressRegex(MyEvents.LOCK_STATE)))
+            .addInboundPermitted(new PermittedOptions().setAddress(MyEvents.LOCK_STATE_SNAPSHOT))
+            .addInboundPermitted(new PermittedOptions().setAddress(MyEvents.LOCK_HEARTBEAT))
+            .addOutboundPermitted(new PermittedOptions().setAddressRegex(partitionedAddressRegex(MyEvents.CONTACT_UPDATED)));
 
         bridgeOptions
             .addInboundPermitted(new PermittedOptions().setAddress(MyEvents.UN_LOCK_CONTACT_ID))
-            .addOutboundPermitted(new PermittedOptions().setAddress(MyEvents.UN_LOCK_CONTACT_ID))
-            .addInboundPermitted(new PermittedOptions().setAddress(MyEvents.ALREADY_LOCKED))
-            .addInboundPermitted(new PermittedOptions().setAddress(MyEvents.CONTACT_UPDATED))
             .addInboundPermitted(new PermittedOptions().setAddress(MyEvents.FIND_ALL_CALL_OPERATOR));
 
         //UM
@@ -199,6 +206,21 @@ final public class MainVerticle extends AbstractVerticle {
         if (jdbcClientUm != null) {
             jdbcClientUm.close();
         }
+        if (consumerContactService != null) {
+            consumerContactService.close();
+        }
+        if (brDirectory != null) {
+            brDirectory.close();
+        }
+        if (upstreamClients != null) {
+            upstreamClients.close();
+        }
+        if (totalCounts != null) {
+            totalCounts.close();
+        }
+        if (productCatalog != null) {
+            productCatalog.close();
+        }
     }
 
     private void registerEvents() {
@@ -207,31 +229,54 @@ final public class MainVerticle extends AbstractVerticle {
 
         devLogin(eventBus);
 
-        final HttpClient httpClient = vertx.createHttpClient(new HttpClientOptions()
-            .setDefaultHost(MyApp.loadConfig().getString(PROP_CALL_REVIEW_HOST))
-            .setDefaultPort(MyApp.loadConfig().getInteger(PROP_CALL_REVIEW_PORT)));
+        upstreamClients = new UpstreamClients(vertx, MyApp.loadConfig().getJsonObject(UpstreamClients.UPSTREAM_POOL));
 
         devLogin(eventBus);
 
-        final AreaService areaService = new AreaService(vertx, httpClient);
+        final ResponseCache responseCache = new ResponseCache(MyApp.loadConfig().getJsonObject(ResponseCache.RESPONSE_CACHE));
+
+        final AreaService areaService = new AreaService(vertx, upstreamClients, responseCache);
         eventBus.consumer(MyEvents.FIND_ALL_AREAS, areaService::findAll);
-        final DistributionHouseService distributionHouseService = new DistributionHouseService(vertx, httpClient);
+        final DistributionHouseService distributionHouseService = new DistributionHouseService(vertx, upstreamClients, responseCache);
         eventBus.consumer(MyEvents.FIND_ALL_DISTRIBUTION_HOUSES, distributionHouseService::findAll);
-        final BrService brService = new BrService(vertx, httpClient);
+        brDirectory = new BrDirectory(vertx, upstreamClients, MyApp.loadConfig().getJsonObject(BrDirectory.BR_DIRECTORY));
+        final ContactPrefetcher contactPrefetcher = new ContactPrefetcher(upstreamClients, brDirectory, MyApp.loadConfig().getJsonObject(ContactPrefetcher.PREFETCH));
+
+        final BrService brService = new BrService(vertx, upstreamClients, responseCache, contactPrefetcher, brDirectory);
         eventBus.consumer(MyEvents.FIND_ALL_BRS, brService::findAll);
         eventBus.consumer(MyEvents.BR_INFO, brService::findBrInfo);
 
-        final ConsumerContactService consumerContactService = new ConsumerContactService(httpClient, vertx);
+        consumerContactService = new ConsumerContactService(upstreamClients, vertx, responseCache, contactPrefetcher,
+            ContactLockBackend.create(vertx, jdbcClient, MyApp.loadConfig().getJsonObject(ContactLockBackend.CONTACT_LOCK)),
+            new ContactLockJournal(vertx, MyApp.loadConfig().getJsonObject(ContactLockJournal.CONTACT_LOCK_JOURNAL)));
         eventBus.consumer(MyEvents.CONSUMER_CONTACT_CALL_STEP_1, consumerContactService::consumerContactsCallStep_1);
         eventBus.consumer(MyEvents.CONSUMER_CONTACT_CALL_STEP_2, consumerContactService::consumerContactsCallStep_2);
         eventBus.consumer(MyEvents.BR_ACTIVITY_SUMMARY, consumerContactService::brActivitySummary);
         eventBus.consumer(MyEvents.CONTACT_DETAILS, consumerContactService::contactDetails);
+        eventBus.consumer(MyEvents.CONTACT_DETAILS_BATCH, consumerContactService::contactDetailsBatch);
+        eventBus.consumer(MyEvents.NEXT_CONTACT, consumerContactService::nextContact);
         eventBus.consumer(MyEvents.FIND_CALL_OPERATOR, consumerContactService::findCallOperator);
         eventBus.consumer(MyEvents.FIND_BRAND, consumerContactService::findBrand);
         eventBus.consumer(MyEvents.CALL_CREATE, consumerContactService::createCall);
         eventBus.consumer(MyEvents.FIND_ALL_CALL_OPERATOR, consumerContactService::findAllCallOperator);
-        eventBus.consumer(MyEvents.LOCK_CONTACT_ID, consumerContactService::lockContactId);
+        // a lock is taken once, by the node the browser is bridged to, not by every node of the cluster
+        eventBus.localConsumer(MyEvents.LOCK_CONTACT_ID, consumerContactService::lockContactId);
         eventBus.consumer(MyEvents.UN_LOCK_CONTACT_ID, consumerContactService::unLockContactId);
+        eventBus.consumer(MyEvents.LOCK_STATE_SNAPSHOT, consumerContactService::lockStateSnapshot);
+        eventBus.consumer(MyEvents.LOCK_HEARTBEAT, consumerContactService::lockHeartbeat);
+
+        final MetricsService metricsService = new MetricsService()
+            .register("upstreamPools", upstreamClients::stats)
+            .register("circuitBreakers", upstreamClients::circuitBreakerStats)
+            .register("responseCache", responseCache::stats)
+            .register("inFlightRequests", consumerContactService::inFlightStats)
+            .register("prefetch", contactPrefetcher::stats)
+            .register("brDailyReports", consumerContactService::brDailyReportStats)
+            .register("brDirectory", brDirectory::stats)
+            .register("contactLocks", consumerContactService::lockStats)
+            .register("contactLockMetrics", consumerContactService::lockMetrics)
+            .register("contactAssignments", consumerContactService::assignmentStats);
+        eventBus.consumer(MyEvents.METRICS, metricsService::metrics);
 
         CampaignService campaignService = new CampaignService(jdbcClient);
         eventBus.consumer(MyEvents.FIND_ALL_CAMPAIGN, campaignService::findAllCampaign);
@@ -249,172 +294,24 @@ final public class MainVerticle extends AbstractVerticle {
 
         new MailService(vertx);
 
-        WebUtils.query("select * from " + Tables.sellInventoryTracking + " where id < 0", jdbcClientUm)
-            .map(rs -> {
-                String[] colNames = new String[rs.getNumColumns()];
-                return rs.getColumnNames().toArray(colNames);
-            })
-            .then(fields -> {
-                final SellInventoryTrackerService sellInventoryTrackerService = new SellInventoryTrackerService(Arrays.asList(fields));
-                eventBus.consumer(UmEvents.SELL_CREATED, sellInventoryTrackerService::track);
-                eventBus.consumer(UmEvents.CREATE_TRACK, sellInventoryTrackerService::createTrack);
-                eventBus.consumer(UmEvents.UPDATE_TRACK, sellInventoryTrackerService::updateTrack);
-                eventBus.consumer(UmEvents.FIND_TRACK, sellInventoryTrackerService::findTrack);
-                eventBus.consumer(UmEvents.FIND_ALL_TRACKS, sellInventoryTrackerService::findAllTracks);
-            })
-            .error(e -> LOGGER.error("Error creating TrackService", e))
-        ;
-
-        Promises
-            .when(
-                WebUtils.query("select * from " + Tables.products + " where id < 0", jdbcClientUm)
-                    .map(rs -> {
-                        String[] colNames = new String[rs.getNumColumns()];
-                        return rs.getColumnNames().toArray(colNames);
-                    }),
-                WebUtils.query("select * from " + Tables.productUnitPrices + " where id < 0", jdbcClientUm)
-                    .map(rs -> {
-                        String[] colNames = new String[rs.getNumColumns()];
-                        return rs.getColumnNames().toArray(colNames);
-                    }),
-                WebUtils.query("select * from " + Tables.units + " where id < 0", jdbcClientUm)
-                    .map(rs -> {
-                        String[] colNames = new String[rs.getNumColumns()];
-                        return rs.getColumnNames().toArray(colNames);
-                    }),
-                WebUtils.query("select max(" + Product.ID + ") as maxId from " + Tables.products
-                    + " where 1", jdbcClientUm)
-                    .map(rs -> rs.getRows().get(0).getLong("maxId"))
-            )
-            .then(tpl2 -> tpl2.accept((names, priceNames, unitFields, maxId) -> {
-                ProductService productService = new ProductService(jdbcClientUm, names, priceNames, unitFields, Util.or(maxId, 1L), vertx);
-                eventBus.consumer(UmEvents.FIND_ALL_PRODUCTS, productService::findAll);
-                eventBus.consumer(UmEvents.FIND_ALL_PRODUCTS_DECOMPOSED, productService::findAllDecomposed);
-                eventBus.consumer(UmEvents.FIND_PRODUCT, productService::find);
-                eventBus.consumer(UmEvents.FIND_PRODUCT_DECOMPOSED, productService::findDecomposed);
-                eventBus.consumer(UmEvents.PRODUCTS_UNIT_WISE_PRICE, productService::unitWisePrice);
-                eventBus.consumer(UmEvents.CREATE_PRODUCT, productService::create);
-                eventBus.consumer(UmEvents.UPDATE_PRODUCT, productService::update);
-                eventBus.consumer(UmEvents.DELETE_PRODUCT, productService::delete);
-            }))
-            .error(e -> LOGGER.error("Error creating UnitService", e))
-        ;
-
-        Promises
-            .when(
-                WebUtils.query("select * from " + Tables.sells + " where id < 0", jdbcClientUm)
-                    .map(rs -> {
-                        String[] colNames = new String[rs.getNumColumns()];
-                        return rs.getColumnNames().toArray(colNames);
-                    }),
-                WebUtils.query("select * from " + Tables.sellUnits + " where id < 0", jdbcClientUm)
-                    .map(rs -> {
-                        String[] colNames = new String[rs.getNumColumns()];
-                        return rs.getColumnNames().toArray(colNames);
-                    }),
-                WebUtils.query("select * from " + Tables.products + " where id < 0", jdbcClientUm)
-                    .map(rs -> {
-                        String[] colNames = new String[rs.getNumColumns()];
-                        return rs.getColumnNames().toArray(colNames);
-                    }),
-                WebUtils.query("select * from " + Tables.units + " where id < 0", jdbcClientUm)
-                    .map(rs -> {
-                        String[] colNames = new String[rs.getNumColumns()];
-                        return rs.getColumnNames().toArray(colNames);
-                    }),
-                WebUtils.query("select max(" + Sell.ID + ") as maxId, max(transactionId) as maxTransactionId, max(orderId) as maxOrderId from " + Tables.sells
-                    + " where 1", jdbcClientUm)
-                    .map(rs -> rs.getRows().get(0))
-                    .map(new RemoveNullsTransformation()::transform)
-            )
-            .then(tpl2 -> tpl2.accept(
-                (fields, sellUnitFields, productFields, unitFields, maxId) -> {
-                    SellService sellService = new SellService(jdbcClientUm, fields, sellUnitFields, productFields, unitFields,
-                        maxId.getLong("maxId", 0L),
-                        maxId.getLong("maxTransactionId", 0L),
-                        maxId.getLong("maxOrderId", 0L), vertx);
-                    eventBus.consumer(UmEvents.FIND_ALL_SELLS, sellService::findAll);
-                    eventBus.consumer(UmEvents.FIND_SELL, sellService::find);
-                    eventBus.consumer(UmEvents.FIND_SELL_DECOMPOSED, sellService::findDecomposed);
-                    eventBus.consumer(UmEvents.CREATE_SELL, sellService::create);
-                    eventBus.consumer(UmEvents.UPDATE_SELL, sellService::update);
-                    eventBus.consumer(UmEvents.DELETE_SELL, sellService::delete);
-                }))
-            .error(e -> LOGGER.error("Error creating UnitService", e))
-        ;
-
-        Promises
-            .when(
-                WebUtils.query("select * from " + Tables.inventories + " where id < 0", jdbcClientUm)
-                    .map(rs -> {
-                        String[] colNames = new String[rs.getNumColumns()];
-                        return rs.getColumnNames().toArray(colNames);
-                    }),
-                WebUtils.query("select * from " + Tables.inventoryProducts + " where id < 0", jdbcClientUm)
-                    .map(rs -> {
-                        String[] colNames = new String[rs.getNumColumns()];
-                        return rs.getColumnNames().toArray(colNames);
-                    })
-            )
-            .then(tpl2 -> tpl2.accept(
-                (fields, inventoryProductFields) -> {
-                    InventoryService inventoryService = new InventoryService(jdbcClientUm, fields,
-                        inventoryProductFields, vertx);
-                    eventBus.consumer(UmEvents.FIND_ALL_INVENTORIES, inventoryService::findAll);
-                    eventBus.consumer(UmEvents.FIND_ALL_INVENTORY_PRODUCTS, inventoryService::findAllProducts);
-                    eventBus.consumer(UmEvents.FIND_INVENTORY, inventoryService::find);
-                    eventBus.consumer(UmEvents.CREATE_INVENTORY, inventoryService::create);
-                    eventBus.consumer(UmEvents.UPDATE_INVENTORY, inventoryService::update);
-                    eventBus.consumer(UmEvents.DELETE_INVENTORY, inventoryService::delete);
-                    eventBus.consumer(UmEvents.INSERT_INVENTORY_PRODUCT, inventoryService::insertProduct);
-                    eventBus.consumer(UmEvents.DELETE_INVENTORY_PRODUCT, inventoryService::deleteProduct);
-                    eventBus.consumer(UmEvents.ADD_PRODUCT_TO_INVENTORY, inventoryService::addProduct);
-                    eventBus.consumer(UmEvents.REMOVE_PRODUCT_FROM_INVENTORY, inventoryService::removeProduct);
-                    eventBus.consumer(UmEvents.EDIT_INVENTORY_PRODUCT_QUANTITY, inventoryService::editProductQuantity);
-                    eventBus.consumer(UmEvents.TRANSFER_PRODUCT_TO_INVENTORY, inventoryService::transferTo);
-                }))
-            .error(e -> LOGGER.error("Error creating UnitService", e))
-        ;
-
-        WebUtils.query("select * from " + Tables.users + " where id < 0", jdbcClientUm)
-            .map(rs -> {
-                String[] colNames = new String[rs.getNumColumns()];
-                return rs.getColumnNames().toArray(colNames);
-            })
-            .then(columnNames -> {
-
-                UserService userService = new UserService(jdbcClientUm, columnNames, vertx);
-                eventBus.consumer(UmEvents.FIND_ALL_USERS, userService::findAll);
-                eventBus.consumer(UmEvents.FIND_USER, userService::find);
-                eventBus.consumer(UmEvents.CREATE_USER, userService::create);
-                eventBus.consumer(UmEvents.UPDATE_USER, userService::update);
-                eventBus.consumer(UmEvents.DELETE_USER, userService::delete);
-                eventBus.consumer(UmEvents.CHANGE_PASSWORD, userService::changePassword);
-
-            })
-            .error(e -> {
-                LOGGER.error("Error creating UnitService", e);
-            })
-        ;
-
-        WebUtils.query("select * from units where id < 0", jdbcClientUm)
-            .map(rs -> {
-                String[] colNames = new String[rs.getNumColumns()];
-                return rs.getColumnNames().toArray(colNames);
-            })
-            .then(columnNames -> {
-                UnitService unitService = new UnitService(jdbcClientUm, columnNames, vertx);
-                eventBus.consumer(UmEvents.FIND_ALL_UNITS, unitService::findAllUnits);
-                eventBus.consumer(UmEvents.FIND_UNIT, unitService::findUnit);
-                eventBus.consumer(UmEvents.CREATE_UNIT, unitService::createUnit);
-                eventBus.consumer(UmEvents.UPDATE_UNIT, unitService::updateUnit);
-                eventBus.consumer(UmEvents.DELETE_UNIT, unitService::deleteUnit);
-
-                System.out.println("Unit Service Registered");
-            })
-            .error(e -> {
-                LOGGER.error("Error creating UnitService", e);
-            })
+        totalCounts = new TotalCounts(vertx, MyApp.loadConfig().getJsonObject(TotalCounts.TOTAL_COUNTS))
+            .track(Tables.products.name(), UmEvents.PRODUCT_CREATED, UmEvents.PRODUCT_UPDATED, UmEvents.PRODUCT_DELETED,
+                product -> product.containsKey(Product.PRICES) ? (long) product.getJsonArray(Product.PRICES).size() : null,
+                true)
+            .track(Tables.sells.name(), UmEvents.SELL_CREATED, UmEvents.SELL_UPDATED, UmEvents.SELL_DELETED,
+                sell -> 1L, false)
+            .track(Tables.inventories.name(), UmEvents.INVENTORY_CREATED, UmEvents.INVENTORY_UPDATED,
+                UmEvents.INVENTORY_DELETED, inventory -> 1L, false)
+            .track(Tables.users.name(), UmEvents.USER_CREATED, UmEvents.USER_UPDATED, UmEvents.USER_DELETED,
+                user -> 1L, false);
+        metricsService.register("umTotalCounts", totalCounts::stats);
+
+        productCatalog = new ProductCatalog(vertx, jdbcClientUm, MyApp.loadConfig().getJsonObject(ProductCatalog.PRODUCT_CATALOG));
+        metricsService.register("umProductCatalog", productCatalog::stats);
+
+        SchemaRegistry.load(jdbcClientUm)
+            .then(schema -> registerUmServices(eventBus, schema))
+            .error(e -> LOGGER.error("Error reading the UM schema", e))
         ;
 
         eventDumpingService = new EventDumpingService(jdbcClientUm);
@@ -447,6 +344,82 @@ final public class MainVerticle extends AbstractVerticle {
         regStoreEvent(UmEvents.USER_DELETED);
     }
 
+    private void registerUmServices(EventBus eventBus, SchemaRegistry schema) {
+
+        final SellInventoryTrackerService sellInventoryTrackerService = new SellInventoryTrackerService(schema);
+        eventBus.consumer(UmEvents.SELL_CREATED, sellInventoryTrackerService::track);
+        eventBus.consumer(UmEvents.CREATE_TRACK, sellInventoryTrackerService::createTrack);
+        eventBus.consumer(UmEvents.UPDATE_TRACK, sellInventoryTrackerService::updateTrack);
+        eventBus.consumer(UmEvents.FIND_TRACK, sellInventoryTrackerService::findTrack);
+        eventBus.consumer(UmEvents.FIND_ALL_TRACKS, sellInventoryTrackerService::findAllTracks);
+
+        WebUtils.query("select max(" + Product.ID + ") as maxId from " + Tables.products
+            + " where 1", jdbcClientUm)
+            .map(rs -> rs.getRows().get(0).getLong("maxId"))
+            .then(maxId -> {
+                ProductService productService = new ProductService(jdbcClientUm, schema, Util.or(maxId, 1L), vertx, totalCounts,
+                    productCatalog);
+                eventBus.consumer(UmEvents.FIND_ALL_PRODUCTS, productService::findAll);
+                eventBus.consumer(UmEvents.FIND_ALL_PRODUCTS_DECOMPOSED, productService::findAllDecomposed);
+                eventBus.consumer(UmEvents.FIND_PRODUCT, productService::find);
+                eventBus.consumer(UmEvents.FIND_PRODUCT_DECOMPOSED, productService::findDecomposed);
+                eventBus.consumer(UmEvents.PRODUCTS_UNIT_WISE_PRICE, productService::unitWisePrice);
+                eventBus.consumer(UmEvents.CREATE_PRODUCT, productService::create);
+                eventBus.consumer(UmEvents.UPDATE_PRODUCT, productService::update);
+                eventBus.consumer(UmEvents.DELETE_PRODUCT, productService::delete);
+            })
+            .error(e -> LOGGER.error("Error creating ProductService", e))
+        ;
+
+        WebUtils.query("select max(" + Sell.ID + ") as maxId, max(transactionId) as maxTransactionId, max(orderId) as maxOrderId from " + Tables.sells
+            + " where 1", jdbcClientUm)
+            .map(rs -> rs.getRows().get(0))
+            .map(new RemoveNullsTransformation()::transform)
+            .then(maxId -> {
+                SellService sellService = new SellService(jdbcClientUm, schema,
+                    maxId.getLong("maxId", 0L),
+                    maxId.getLong("maxTransactionId", 0L),
+                    maxId.getLong("maxOrderId", 0L), vertx, totalCounts);
+                eventBus.consumer(UmEvents.FIND_ALL_SELLS, sellService::findAll);
+                eventBus.consumer(UmEvents.FIND_SELL, sellService::find);
+                eventBus.consumer(UmEvents.FIND_SELL_DECOMPOSED, sellService::findDecomposed);
+                eventBus.consumer(UmEvents.CREATE_SELL, sellService::create);
+                eventBus.consumer(UmEvents.UPDATE_SELL, sellService::update);
+                eventBus.consumer(UmEvents.DELETE_SELL, sellService::delete);
+            })
+            .error(e -> LOGGER.error("Error creating SellService", e))
+        ;
+
+        InventoryService inventoryService = new InventoryService(jdbcClientUm, schema, vertx, totalCounts);
+        eventBus.consumer(UmEvents.FIND_ALL_INVENTORIES, inventoryService::findAll);
+        eventBus.consumer(UmEvents.FIND_ALL_INVENTORY_PRODUCTS, inventoryService::findAllProducts);
+        eventBus.consumer(UmEvents.FIND_INVENTORY, inventoryService::find);
+        eventBus.consumer(UmEvents.CREATE_INVENTORY, inventoryService::create);
+        eventBus.consumer(UmEvents.UPDATE_INVENTORY, inventoryService::update);
+        eventBus.consumer(UmEvents.DELETE_INVENTORY, inventoryService::delete);
+        eventBus.consumer(UmEvents.INSERT_INVENTORY_PRODUCT, inventoryService::insertProduct);
+        eventBus.consumer(UmEvents.DELETE_INVENTORY_PRODUCT, inventoryService::deleteProduct);
+        eventBus.consumer(UmEvents.ADD_PRODUCT_TO_INVENTORY, inventoryService::addProduct);
+        eventBus.consumer(UmEvents.REMOVE_PRODUCT_FROM_INVENTORY, inventoryService::removeProduct);
+        eventBus.consumer(UmEvents.EDIT_INVENTORY_PRODUCT_QUANTITY, inventoryService::editProductQuantity);
+        eventBus.consumer(UmEvents.TRANSFER_PRODUCT_TO_INVENTORY, inventoryService::transferTo);
+
+        UserService userService = new UserService(jdbcClientUm, schema, vertx, totalCounts);
+        eventBus.consumer(UmEvents.FIND_ALL_USERS, userService::findAll);
+        eventBus.consumer(UmEvents.FIND_USER, userService::find);
+        eventBus.consumer(UmEvents.CREATE_USER, userService::create);
+        eventBus.consumer(UmEvents.UPDATE_USER, userService::update);
+        eventBus.consumer(UmEvents.DELETE_USER, userService::delete);
+        eventBus.consumer(UmEvents.CHANGE_PASSWORD, userService::changePassword);
+
+        UnitService unitService = new UnitService(jdbcClientUm, schema, vertx);
+        eventBus.consumer(UmEvents.FIND_ALL_UNITS, unitService::findAllUnits);
+        eventBus.consumer(UmEvents.FIND_UNIT, unitService::findUnit);
+        eventBus.consumer(UmEvents.CREATE_UNIT, unitService::createUnit);
+        eventBus.consumer(UmEvents.UPDATE_UNIT, unitService::updateUnit);
+        eventBus.consumer(UmEvents.DELETE_UNIT, unitService::deleteUnit);
+    }
+
     private void regStoreEvent(String event) {
         vertx.eventBus().consumer(event, eventDumpingService.storeEvent(event));
     }
@@ -547,7 +520,7 @@ final public class MainVerticle extends AbstractVerticle {
         new DistributionHouseController(vertx, router);
         new BrController(vertx, router);
 
-        final ConsumerContactController consumerContactController = new ConsumerContactController(vertx, router);
+        final ConsumerContactController consumerContactController = new ConsumerContactController(vertx, router, consumerContactService);
         consumerContactController.consumerContactsCallStep_1(router);
 
         new CallOperator(vertx, router);
@@ -558,6 +531,8 @@ final public class MainVerticle extends AbstractVerticle {
 
         new DBController(vertx, router);
 
+        new MetricsController(vertx, router);
+
         //UM Controllers
 
         UserController userController = new UserController(vertx);
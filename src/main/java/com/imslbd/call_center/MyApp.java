@@ -1,9 +1,13 @@
 package com.imslbd.call_center;
 
+import com.imslbd.call_center.service.ContactLockBackend;
 import io.vertx.core.Vertx;
+import io.vertx.core.VertxOptions;
 import io.vertx.core.json.JsonObject;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
@@ -59,7 +63,24 @@ public class MyApp {
         return loadConfig().getJsonObject("database");
     }
 
+    /**
+     * Starts a clustered Vertx when the contact locks are kept in the cluster wide map
+     * (CONTACT_LOCK.backend "clustered"), a standalone one otherwise.
+     */
     public static void main(String... args) {
-        Vertx.vertx().deployVerticle(new MainVerticle());
+        final JsonObject lockConfig = loadConfig().getJsonObject(ContactLockBackend.CONTACT_LOCK, new JsonObject());
+        if (!ContactLockBackend.CLUSTERED.equals(lockConfig.getString(ContactLockBackend.BACKEND))) {
+            Vertx.vertx().deployVerticle(new MainVerticle());
+            return;
+        }
+        Vertx.clusteredVertx(new VertxOptions().setClustered(true), ar -> {
+            if (ar.failed()) {
+                final Logger logger = LoggerFactory.getLogger(MyApp.class);
+                logger.error("Error starting the clustered Vertx", ar.cause());
+                System.exit(1);
+                return;
+            }
+            ar.result().deployVerticle(new MainVerticle());
+        });
     }
 }
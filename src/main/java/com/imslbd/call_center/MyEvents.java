@@ -14,6 +14,8 @@ public class MyEvents {
     public static final String CONSUMER_CONTACT_CALL_STEP_1 = "CONSUMER_CONTACT_CALL_STEP_1";
     public static final String CONSUMER_CONTACT_CALL_STEP_2 = "CONSUMER_CONTACT_CALL_STEP_2";
     public static final String CONTACT_DETAILS = "CONTACT_DETAILS";
+    public static final String CONTACT_DETAILS_BATCH = "CONTACT_DETAILS_BATCH";
+    public static final String NEXT_CONTACT = "NEXT_CONTACT";
     public static final String FIND_CALL_OPERATOR = "FIND_CALL_OPERATOR";
     public static final String FIND_BRAND = "FIND_BRAND";
     public static final String CALL_CREATE = "CALL_CREATE";
@@ -23,7 +25,32 @@ public class MyEvents {
     public static final String FIND_ALL_DATA_SOURCES = "FIND_ALL_DATA_SOURCES";
     public static final String LOCK_CONTACT_ID = "LOCK_CONTACT_ID";
     public static final String UN_LOCK_CONTACT_ID = "UN_LOCK_CONTACT_ID";
-    public static final String ALREADY_LOCKED = "ALREADY_LOCKED";
     public static final String CONTACT_UPDATED = "CONTACT_UPDATED";
+    public static final String LOCK_STATE = "LOCK_STATE";
+    public static final String LOCK_STATE_SNAPSHOT = "LOCK_STATE_SNAPSHOT";
+    public static final String LOCK_HEARTBEAT = "LOCK_HEARTBEAT";
     public static final String BR_INFO = "BR_INFO";
+    public static final String METRICS = "METRICS";
+
+    /**
+     * @return the address scoped to the partition, or the address itself if the partition is null.
+     */
+    public static String partitioned(String address, String partition) {
+        return partition == null ? address : address + "." + partition;
+    }
+
+    /**
+     * @return the campaignId.distributionHouseId partition or null if either of them is missing or not numeric.
+     */
+    public static String partition(Object campaignId, Object distributionHouseId) {
+        if (campaignId == null || distributionHouseId == null) {
+            return null;
+        }
+        final String campaign = campaignId.toString().trim();
+        final String distributionHouse = distributionHouseId.toString().trim();
+        if (!campaign.matches("\\d+") || !distributionHouse.matches("\\d+")) {
+            return null;
+        }
+        return campaign + "." + distributionHouse;
+    }
 }
@@ -19,13 +19,16 @@ public enum MyUris {
     CONSUMER_CONTACTS_CALL_STEP_1("/consumer-contacts/call-step-1", "Consumer Contact Call Step 1"),
     CONSUMER_CONTACTS_CALL_STEP_2("/consumer-contacts/call-step-2", "Consumer Contact Call Step 2"),
     CONTACT_DETAILS("/consumer-contacts/details", ""),
+    CONTACT_DETAILS_BATCH("/consumer-contacts/details-batch", ""),
+    NEXT_CONTACT("/consumer-contacts/next", ""),
     CALL_OPERATOR("/call-operator", ""),
     CURRENT_USER("/current-user", ""),
     CALL_CREATE("/call/create", ""),
     BRANDS("/brands", ""),
     CAMPAIGNS("/campaigns", ""),
     BR_ACTIVITY_SUMMARY("/br-activity-summary", "Br Activity Summary"), CURRENT_CAMPAIGN("/current-campaign", ""),
-    DATA_SOURCES("/dataSources", "Data"), BR_INFO("/brs/br-info", "");
+    DATA_SOURCES("/dataSources", "Data"), BR_INFO("/brs/br-info", ""),
+    METRICS("/metrics", "Metrics");
 
     public final String value;
     public final String label;
@@ -1,8 +1,10 @@
 package com.imslbd.call_center.controller;
 
+import com.imslbd.call_center.MyApp;
 import com.imslbd.call_center.MyEvents;
 import com.imslbd.call_center.MyUris;
 import com.imslbd.call_center.gv;
+import com.imslbd.call_center.service.ConsumerContactService;
 import com.imslbd.call_center.util.MyUtil;
 import io.crm.promise.Promises;
 import io.crm.util.ExceptionUtil;
@@ -29,14 +31,69 @@ import static io.crm.web.util.WebUtils.toJson;
  * Created by someone on 13/12/2015.
  */
 public class ConsumerContactController {
+    private static final String CALL_STEP_1_STREAMING = "CALL_STEP_1_STREAMING";
+    private static final String CALL_STEP_2_STREAMING = "CALL_STEP_2_STREAMING";
     private final Vertx vertx;
+    private final ConsumerContactService consumerContactService;
 
-    public ConsumerContactController(Vertx vertx, Router router) {
+    public ConsumerContactController(Vertx vertx, Router router, ConsumerContactService consumerContactService) {
         this.vertx = vertx;
+        this.consumerContactService = consumerContactService;
         consumerContactsCallStep_1(router);
         consumerContactsCallStep_2(router);
         brActivitySummary(router);
         contactDetails(router);
+        contactDetailsBatch(router);
+        nextContact(router);
+    }
+
+    private void nextContact(Router router) {
+        router.get(MyUris.NEXT_CONTACT.value).handler(ctx -> {
+            final MultiMap params = ctx.request().params();
+            final JsonObject criteria = new JsonObject()
+                .put(gv.areaId, Converters.toLong(params.get(gv.areaId)))
+                .put(gv.distributionHouseId, Converters.toLong(params.get(gv.distributionHouseId)));
+
+            if (!(criteria.getLong(gv.areaId, 0L) > 0 && criteria.getLong(gv.distributionHouseId, 0L) > 0)) {
+                ctx.response().setStatusCode(HttpResponseStatus.BAD_REQUEST.code()).end(
+                    new JsonObject()
+                        .put("status", "error")
+                        .put("message", "Please select Area And Distributin House to get the next contact.").encodePrettily()
+                );
+                return;
+            }
+
+            if (!isEmptyOrNullOrSpaces(params.get("work-date-range"))) {
+                MyUtil.splitPair(params.get("work-date-range"), ":").accept((v1, v2) -> {
+                    criteria.put(gv.workDateFrom, MyUtil.formatDate(toDate(v1), null));
+                    criteria.put(gv.workDateTo, MyUtil.formatDate(toDate(v2), null));
+                });
+            }
+
+            if (criteria.getValue(gv.workDateFrom) == null || criteria.getValue(gv.workDateTo) == null) {
+                ctx.response().setStatusCode(HttpResponseStatus.BAD_REQUEST.code()).end(
+                    new JsonObject()
+                        .put("status", "error")
+                        .put("message", "Please select the Work Date Range to get the next contact.").encodePrettily()
+                );
+                return;
+            }
+
+            criteria.put(gv.recallMode, Util.or(params.get(gv.recallMode), ""))
+                .put("page", "")
+                .put("size", "")
+                .put("baseUrl", ctx.session().get("baseUrl").toString())
+                .put("CAMPAIGN_ID", Util.as(ctx.session().get(gv.campaign), JsonObject.class).getValue("id"))
+                .put(ConsumerContactService.CRITERIA_CALL_OPERATOR,
+                    Converters.toLong(String.valueOf(((JsonObject) ctx.session().get(gv.currentUser)).getValue(gv.userId))));
+
+            Util.<JsonObject>send(vertx.eventBus(), MyEvents.NEXT_CONTACT, criteria,
+                new DeliveryOptions().setSendTimeout(5 * 60 * 1000))
+                .map(m -> m.body())
+                .then(j -> ctx.response().putHeader(HttpHeaders.CONTENT_TYPE, Controllers.APPLICATION_JSON))
+                .then(js -> ctx.response().end(js.encodePrettily()))
+                .error(ctx::fail);
+        });
     }
 
     private void contactDetails(Router router) {
@@ -49,6 +106,16 @@ public class ConsumerContactController {
         });
     }
 
+    private void contactDetailsBatch(Router router) {
+        router.get(MyUris.CONTACT_DETAILS_BATCH.value).handler(ctx -> {
+            Util.<JsonObject>send(vertx.eventBus(), MyEvents.CONTACT_DETAILS_BATCH, WebUtils.toJson(ctx.request().params()).put("baseUrl", ctx.session().get("baseUrl").toString()))
+                .map(m -> m.body())
+                .then(j -> ctx.response().putHeader(HttpHeaders.CONTENT_TYPE, Controllers.APPLICATION_JSON))
+                .then(js -> ctx.response().end(js.encodePrettily()))
+                .error(ctx::fail);
+        });
+    }
+
     public void consumerContactsCallStep_1(Router router) {
 
         router.get(MyUris.CONSUMER_CONTACTS_CALL_STEP_1.value).handler(ctx -> {
@@ -121,6 +188,11 @@ public class ConsumerContactController {
 
             JsonObject newCriteria = new JsonObject(criteria.stream().filter(e -> e.getValue() != null).collect(Collectors.toMap(e -> e.getKey(), e -> e.getValue())));
 
+            if (MyApp.loadConfig().getBoolean(CALL_STEP_1_STREAMING, false)) {
+                consumerContactService.streamCallStep_1(newCriteria, ctx.response(), ctx::fail);
+                return;
+            }
+
             Promises.from()
                 .mapToPromise(v -> Util.<JsonObject>send(vertx.eventBus(), MyEvents.CONSUMER_CONTACT_CALL_STEP_1,
                     newCriteria, new DeliveryOptions().setSendTimeout(5 * 60 * 1000)))
@@ -141,8 +213,18 @@ public class ConsumerContactController {
     public void consumerContactsCallStep_2(Router router) {
         router.get(MyUris.CONSUMER_CONTACTS_CALL_STEP_2.value).handler(ctx -> {
 
+            final JsonObject criteria = WebUtils.toJson(ctx.request().params())
+                .put("baseUrl", ctx.session().get("baseUrl").toString())
+                .put(ConsumerContactService.CRITERIA_CALL_OPERATOR,
+                    Converters.toLong(String.valueOf(((JsonObject) ctx.session().get(gv.currentUser)).getValue(gv.userId))));
+
+            if (MyApp.loadConfig().getBoolean(CALL_STEP_2_STREAMING, false)) {
+                consumerContactService.streamCallStep_2(criteria, ctx.response(), ctx::fail);
+                return;
+            }
+
             Promises.from()
-                .mapToPromise(v -> Util.<JsonObject>send(vertx.eventBus(), MyEvents.CONSUMER_CONTACT_CALL_STEP_2, WebUtils.toJson(ctx.request().params()).put("baseUrl", ctx.session().get("baseUrl").toString())))
+                .mapToPromise(v -> Util.<JsonObject>send(vertx.eventBus(), MyEvents.CONSUMER_CONTACT_CALL_STEP_2, criteria))
                 .map(m -> m.body())
                 .then(j -> ctx.response().putHeader(HttpHeaders.CONTENT_TYPE, Controllers.APPLICATION_JSON))
                 .then(js -> ctx.response().end(js.encodePrettily()))
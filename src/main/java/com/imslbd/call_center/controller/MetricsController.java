@@ -0,0 +1,33 @@
+package com.imslbd.call_center.controller;
+
+import com.imslbd.call_center.MyEvents;
+import com.imslbd.call_center.MyUris;
+import io.crm.util.Util;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.Router;
+
+/**
+ * Created by someone on 18/10/2026.
+ */
+public class MetricsController {
+    private final Vertx vertx;
+
+    public MetricsController(Vertx vertx, Router router) {
+        this.vertx = vertx;
+        metrics(router);
+    }
+
+    public void metrics(Router router) {
+        router.get(MyUris.METRICS.value).handler(ctx -> {
+            Util.<JsonObject>send(vertx.eventBus(), MyEvents.METRICS, new JsonObject())
+                .map(Message::body)
+                .then(v -> ctx.response().putHeader(HttpHeaders.CONTENT_TYPE, Controllers.APPLICATION_JSON))
+                .then(js -> ctx.response().end(js.encodePrettily()))
+                .error(ctx::fail)
+            ;
+        });
+    }
+}
@@ -1,10 +1,8 @@
 package com.imslbd.call_center.service;
 
-import com.imslbd.call_center.gv;
 import io.crm.util.ExceptionUtil;
 import io.vertx.core.Vertx;
 import io.vertx.core.eventbus.Message;
-import io.vertx.core.http.HttpClient;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 
@@ -16,33 +14,39 @@ import java.nio.file.Paths;
 public class AreaService {
     public static final String GET_AREAS_URI = "/Call/GetAreas";
     private final Vertx vertx;
-    private final HttpClient httpClient;
+    private final UpstreamClients upstreamClients;
+    private final ResponseCache responseCache;
 
-    public AreaService(Vertx vertx, HttpClient httpClient) {
+    public AreaService(Vertx vertx, UpstreamClients upstreamClients, ResponseCache responseCache) {
         this.vertx = vertx;
-        this.httpClient = httpClient;
+        this.upstreamClients = upstreamClients;
+        this.responseCache = responseCache;
     }
 
     public void findAll(Message<JsonObject> message) {
         try {
             String baseUrl = message.body().getString("baseUrl");
             message.body().remove("baseUrl");
-            httpClient.getAbs(baseUrl + GET_AREAS_URI.toString(), res -> {
+            final String url = baseUrl + GET_AREAS_URI;
+            final JsonObject cached = responseCache.get(GET_AREAS_URI, url);
+            if (cached != null) {
+                message.reply(cached);
+                return;
+            }
+            upstreamClients.get(url, res -> {
                 res
                     .bodyHandler(b -> {
                         try {
-                            message.reply(new JsonObject()
-                                .put("data", new JsonArray(b.toString())));
+                            final JsonObject reply = new JsonObject()
+                                .put("data", new JsonArray(b.toString()));
+                            responseCache.put(GET_AREAS_URI, url, reply);
+                            message.reply(reply);
                         } catch (Exception e) {
-                            ExceptionUtil.fail(message, e);
+                            responseCache.replyStaleOrFail(url, message, e);
                         }
                     })
-                    .exceptionHandler(e -> ExceptionUtil.fail(message, e));
-            })
-                .sendHead()
-                .putHeader(gv.X_Requested_With, Services.CALL_CENTER_JAVA)
-                .exceptionHandler(e -> ExceptionUtil.fail(message, e))
-                .end();
+                    .exceptionHandler(e -> responseCache.replyStaleOrFail(url, message, e));
+            }, e -> responseCache.replyStaleOrFail(url, message, e));
         } catch (Exception ex) {
             ExceptionUtil.fail(message, ex);
         }
@@ -0,0 +1,202 @@
+package com.imslbd.call_center.service;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per upstream host, per BR, per day cache of /Call/brReportDaily results. Only past days are cached, today and
+ * later are always fetched. A past day's totals still change when operators call its contacts, so a day is
+ * kept for at most ttlSeconds and every day of a BR is evicted when a call is created for one of its contacts.
+ * Totals over a date range are computed from the days with {@link #total(List)}, summing only the counter fields
+ * listed in counters and recomputing the ratios listed in ratios as {field: [numerator, denominator, scale]}.
+ * Size, TTL, counters and ratios come from the BR_DAILY_REPORT_CACHE section of config.json.
+ * <p>
+ * Created by someone on 18/10/2026.
+ */
+public class BrDailyReportCache {
+    public static final String BR_DAILY_REPORT_CACHE = "BR_DAILY_REPORT_CACHE";
+    private static final String MAX_ENTRIES = "maxEntries";
+    private static final String TTL_SECONDS = "ttlSeconds";
+    private static final String COUNTERS = "counters";
+    private static final String RATIOS = "ratios";
+    private static final JsonArray DEFAULT_COUNTERS = new JsonArray()
+        .add("totalContact").add("totalSuccessNeed").add("totalCalled").add("totalSuccess")
+        .add("totalPTR").add("totalPTRCalled").add("totalPTRSuccess")
+        .add("totalRef").add("totalRefCalled").add("totalRefSuccess")
+        .add("totalGA").add("totalGACalled").add("totalGASuccess")
+        .add("totalPackSell").add("totalPackSellCalled").add("totalPackSellSuccess");
+    private static final int DEFAULT_MAX_ENTRIES = 10000;
+
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final List<String> counters = new ArrayList<>();
+    private final JsonObject ratios;
+    private final LinkedHashMap<String, Entry> entries;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public BrDailyReportCache(JsonObject config) {
+        final JsonObject cfg = config == null ? new JsonObject() : config;
+        this.maxEntries = cfg.getInteger(MAX_ENTRIES, DEFAULT_MAX_ENTRIES);
+        this.ttlMillis = TimeUnit.SECONDS.toMillis(cfg.getLong(TTL_SECONDS, 600L));
+        cfg.getJsonArray(COUNTERS, DEFAULT_COUNTERS).forEach(counter -> counters.add(counter.toString()));
+        this.ratios = cfg.getJsonObject(RATIOS, new JsonObject());
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    public static boolean isCacheable(LocalDate date) {
+        return date.isBefore(LocalDate.now());
+    }
+
+    /**
+     * @return the cached report of the BR for the day or null if it must be fetched.
+     */
+    public synchronized JsonObject get(String baseUrl, Object brId, LocalDate date) {
+        if (!isCacheable(date)) {
+            return null;
+        }
+        final String key = key(baseUrl, brId, date);
+        final Entry entry = entries.get(key);
+        if (entry == null || System.currentTimeMillis() - entry.cachedAt >= ttlMillis) {
+            if (entry != null) {
+                entries.remove(key);
+            }
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.report;
+    }
+
+    public synchronized void put(String baseUrl, Object brId, LocalDate date, JsonObject report) {
+        if (!isCacheable(date) || report == null) {
+            return;
+        }
+        entries.put(key(baseUrl, brId, date), new Entry(report, System.currentTimeMillis()));
+    }
+
+    /**
+     * Drops every cached day of the BR, one of its contacts was called.
+     */
+    public synchronized void evict(String baseUrl, Object brId) {
+        final String prefix = baseUrl + "|" + brId + "|";
+        final Iterator<String> iterator = entries.keySet().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().startsWith(prefix)) {
+                iterator.remove();
+                evictions++;
+            }
+        }
+    }
+
+    private static String key(String baseUrl, Object brId, LocalDate date) {
+        return baseUrl + "|" + brId + "|" + date;
+    }
+
+    /**
+     * Totals of a date range computed the way /Call/brReportTotal computes them: the counter fields summed over
+     * the days, every other field taken from the first day and each ratio recomputed from the summed counters.
+     *
+     * @param reports the daily reports of the range in date order.
+     */
+    public JsonObject total(List<JsonObject> reports) {
+        final JsonObject total = reports.isEmpty() ? new JsonObject() : reports.get(0).copy();
+        counters.forEach(counter -> {
+            final Number sum = sum(reports, counter);
+            if (sum != null) {
+                total.put(counter, sum);
+            }
+        });
+        ratios.forEach(e -> {
+            final JsonArray ratio = (JsonArray) e.getValue();
+            final Number numerator = toNumber(total.getValue(ratio.getString(0)));
+            final Number denominator = toNumber(total.getValue(ratio.getString(1)));
+            if (numerator == null || denominator == null || denominator.doubleValue() == 0) {
+                total.putNull(e.getKey());
+            } else {
+                final double scale = ratio.size() > 2 ? ratio.getDouble(2) : 1;
+                total.put(e.getKey(), numerator.doubleValue() * scale / denominator.doubleValue());
+            }
+        });
+        return total;
+    }
+
+    /**
+     * @return the sum of the counter over the reports or null if no report has it.
+     */
+    private static Number sum(List<JsonObject> reports, String counter) {
+        long longSum = 0;
+        double doubleSum = 0;
+        boolean integral = true;
+        boolean present = false;
+        for (JsonObject report : reports) {
+            final Number value = toNumber(report.getValue(counter));
+            if (value == null) {
+                continue;
+            }
+            present = true;
+            if (isIntegral(value)) {
+                longSum += value.longValue();
+            } else {
+                integral = false;
+                doubleSum += value.doubleValue();
+            }
+        }
+        if (!present) {
+            return null;
+        }
+        return integral ? (Number) longSum : (Number) (longSum + doubleSum);
+    }
+
+    private static Number toNumber(Object value) {
+        if (value instanceof Number) {
+            return (Number) value;
+        }
+        if (value instanceof String) {
+            try {
+                final String str = ((String) value).trim();
+                return str.contains(".") ? (Number) Double.parseDouble(str) : (Number) Long.parseLong(str);
+            } catch (NumberFormatException ex) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isIntegral(Number number) {
+        return number instanceof Integer || number instanceof Long || number instanceof Short || number instanceof Byte;
+    }
+
+    public synchronized JsonObject stats() {
+        return new JsonObject()
+            .put("size", entries.size())
+            .put(MAX_ENTRIES, maxEntries)
+            .put("hits", hits)
+            .put("misses", misses)
+            .put("evictions", evictions);
+    }
+
+    private static final class Entry {
+        private final JsonObject report;
+        private final long cachedAt;
+
+        private Entry(JsonObject report, long cachedAt) {
+            this.report = report;
+            this.cachedAt = cachedAt;
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.imslbd.call_center.service;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * In memory replica of the call review brs table, indexed by br id and by distribution house.
+ * The table is loaded in bulk through /sql/query on start and refreshed every refreshSeconds. Delta sync
+ * needs an updatedAtColumn: with one, a refresh only fetches the rows changed since the last one and the whole
+ * table is reloaded every fullReloadSeconds so deleted rows disappear too. Without one every refresh is a full
+ * reload, so refreshSeconds defaults to fullReloadSeconds. Indexes are rebuilt on
+ * the side and swapped in, readers never see a partially applied refresh. Configured by the BR_DIRECTORY
+ * section of config.json.
+ * <p>
+ * Created by someone on 18/10/2026.
+ */
+public class BrDirectory {
+    public static final Logger LOGGER = LoggerFactory.getLogger(BrDirectory.class);
+    public static final String BR_DIRECTORY = "BR_DIRECTORY";
+    private static final String TABLE = "table";
+    private static final String ID_COLUMN = "idColumn";
+    private static final String NAME_COLUMN = "nameColumn";
+    private static final String DISTRIBUTION_HOUSE_COLUMN = "distributionHouseColumn";
+    private static final String UPDATED_AT_COLUMN = "updatedAtColumn";
+    private static final String REFRESH_SECONDS = "refreshSeconds";
+    private static final String FULL_RELOAD_SECONDS = "fullReloadSeconds";
+
+    private final Vertx vertx;
+    private final UpstreamClients upstreamClients;
+    private final String baseUrl;
+    private final String table;
+    private final String idColumn;
+    private final String nameColumn;
+    private final String distributionHouseColumn;
+    private final String updatedAtColumn;
+    private final long fullReloadMillis;
+    private final long refreshTimer;
+
+    private volatile Index index;
+    private Object lastUpdatedAt;
+    private long lastFullReload;
+    private boolean refreshing;
+    private long fullReloads;
+    private long deltaRefreshes;
+    private long deltaRows;
+    private long failures;
+
+    public BrDirectory(Vertx vertx, UpstreamClients upstreamClients, JsonObject config) {
+        final JsonObject cfg = config == null ? new JsonObject() : config;
+        this.vertx = vertx;
+        this.upstreamClients = upstreamClients;
+        this.baseUrl = upstreamClients.defaultBaseUrl();
+        this.table = cfg.getString(TABLE, "brs");
+        this.idColumn = cfg.getString(ID_COLUMN, "BR_ID");
+        this.nameColumn = cfg.getString(NAME_COLUMN, "BR_NAME");
+        this.distributionHouseColumn = cfg.getString(DISTRIBUTION_HOUSE_COLUMN, "DISTRIBUTION_HOUSE_ID");
+        this.updatedAtColumn = cfg.getString(UPDATED_AT_COLUMN);
+        final long fullReloadSeconds = cfg.getLong(FULL_RELOAD_SECONDS, 3600L);
+        this.fullReloadMillis = fullReloadSeconds * 1000;
+        final long refreshSeconds = cfg.getLong(REFRESH_SECONDS, updatedAtColumn == null ? fullReloadSeconds : 60L);
+        if (updatedAtColumn == null) {
+            LOGGER.info("BR directory delta sync is off, no " + UPDATED_AT_COLUMN + " is configured; "
+                + table + " is reloaded in full every " + refreshSeconds + " seconds");
+        }
+        refresh();
+        this.refreshTimer = vertx.setPeriodic(Math.max(refreshSeconds, 1L) * 1000, id -> refresh());
+    }
+
+    /**
+     * @return the brs row of the BR or null if the directory cannot answer and upstream must be asked.
+     */
+    public JsonObject find(String baseUrl, Object brId) {
+        final Index idx = index;
+        if (idx == null || !this.baseUrl.equals(baseUrl) || brId == null) {
+            return null;
+        }
+        final JsonObject row = idx.byId.get(brId.toString().trim());
+        return row == null ? null : row.copy();
+    }
+
+    /**
+     * @return the BRs of the distribution house in the /Home/GetBR reply format or null if the directory
+     * cannot answer and upstream must be asked.
+     */
+    public JsonObject findAll(String baseUrl, Object distributionHouseId, String idField, String nameField) {
+        final Index idx = index;
+        if (idx == null || !this.baseUrl.equals(baseUrl) || distributionHouseId == null) {
+            return null;
+        }
+        final List<JsonObject> rows = idx.byDistributionHouse.get(distributionHouseId.toString());
+        if (rows == null) {
+            return null;
+        }
+        final JsonArray data = new JsonArray();
+        rows.forEach(row -> data.add(new JsonObject()
+            .put(idField, row.getValue(idColumn))
+            .put(nameField, row.getValue(nameColumn))));
+        return new JsonObject().put("data", data);
+    }
+
+    private synchronized void refresh() {
+        if (refreshing) {
+            return;
+        }
+        refreshing = true;
+        final boolean full = index == null || updatedAtColumn == null || lastUpdatedAt == null
+            || System.currentTimeMillis() - lastFullReload >= fullReloadMillis;
+        final String query = full
+            ? "select * from " + table
+            : "select * from " + table + " where " + updatedAtColumn + " > '" + lastUpdatedAt.toString().replace("'", "''") + "'";
+
+        upstreamClients.get(BrService.sqlQueryUrl(baseUrl, query),
+            res -> res
+                .bodyHandler(b -> {
+                    try {
+                        apply(new JsonArray(b.toString()), full);
+                    } catch (Exception ex) {
+                        failed(ex);
+                    }
+                })
+                .exceptionHandler(this::failed),
+            this::failed);
+    }
+
+    private synchronized void apply(JsonArray rows, boolean full) {
+        final Map<String, JsonObject> byId = full || index == null ? new HashMap<>() : new HashMap<>(index.byId);
+        for (int i = 0; i < rows.size(); i++) {
+            final JsonObject row = rows.getJsonObject(i);
+            final Object id = row.getValue(idColumn);
+            if (id == null) {
+                continue;
+            }
+            byId.put(id.toString(), row);
+            if (updatedAtColumn != null) {
+                final Object updatedAt = row.getValue(updatedAtColumn);
+                if (updatedAt != null && (lastUpdatedAt == null || updatedAt.toString().compareTo(lastUpdatedAt.toString()) > 0)) {
+                    lastUpdatedAt = updatedAt;
+                }
+            }
+        }
+
+        final Map<String, List<JsonObject>> byDistributionHouse = new HashMap<>();
+        byId.values().forEach(row -> byDistributionHouse
+            .computeIfAbsent(Objects.toString(row.getValue(distributionHouseColumn)), k -> new ArrayList<>())
+            .add(row));
+        byDistributionHouse.replaceAll((k, list) -> Collections.unmodifiableList(list));
+
+        index = new Index(Collections.unmodifiableMap(byId), Collections.unmodifiableMap(byDistributionHouse));
+        if (full) {
+            fullReloads++;
+            lastFullReload = System.currentTimeMillis();
+        } else {
+            deltaRefreshes++;
+            deltaRows += rows.size();
+        }
+        refreshing = false;
+    }
+
+    private synchronized void failed(Throwable e) {
+        failures++;
+        refreshing = false;
+        LOGGER.error("Error refreshing BR directory", e);
+    }
+
+    public void close() {
+        vertx.cancelTimer(refreshTimer);
+    }
+
+    public synchronized JsonObject stats() {
+        final Index idx = index;
+        return new JsonObject()
+            .put("loaded", idx != null)
+            .put("brs", idx == null ? 0 : idx.byId.size())
+            .put("distributionHouses", idx == null ? 0 : idx.byDistributionHouse.size())
+            .put("fullReloads", fullReloads)
+            .put("deltaRefreshes", deltaRefreshes)
+            .put("deltaRows", deltaRows)
+            .put("failures", failures);
+    }
+
+    private static final class Index {
+        private final Map<String, JsonObject> byId;
+        private final Map<String, List<JsonObject>> byDistributionHouse;
+
+        private Index(Map<String, JsonObject> byId, Map<String, List<JsonObject>> byDistributionHouse) {
+            this.byId = byId;
+            this.byDistributionHouse = byDistributionHouse;
+        }
+    }
+}
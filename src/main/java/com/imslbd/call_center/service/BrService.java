@@ -5,7 +5,6 @@ import io.crm.FailureCode;
 import io.crm.util.ExceptionUtil;
 import io.vertx.core.Vertx;
 import io.vertx.core.eventbus.Message;
-import io.vertx.core.http.HttpClient;
 import io.vertx.core.http.HttpHeaders;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
@@ -21,41 +20,62 @@ import java.util.Map;
  */
 public class BrService {
     private static final String GET_BRS_URI = "/Home/GetBR";
+    public static final String SQL_QUERY_URI = "/sql/query";
     private final Vertx vertx;
-    private final HttpClient httpClient;
+    private final UpstreamClients upstreamClients;
+    private final ResponseCache responseCache;
+    private final ContactPrefetcher contactPrefetcher;
+    private final BrDirectory brDirectory;
 
-    public BrService(Vertx vertx, HttpClient httpClient) {
+    public BrService(Vertx vertx, UpstreamClients upstreamClients, ResponseCache responseCache,
+                     ContactPrefetcher contactPrefetcher, BrDirectory brDirectory) {
         this.vertx = vertx;
-        this.httpClient = httpClient;
+        this.upstreamClients = upstreamClients;
+        this.responseCache = responseCache;
+        this.contactPrefetcher = contactPrefetcher;
+        this.brDirectory = brDirectory;
     }
 
     public void findAll(Message<JsonObject> message) {
-        String baseUrl = message.body().getString("baseUrl");
-        message.body().remove("baseUrl");
-        httpClient
-            .getAbs(baseUrl + GET_BRS_URI + "?Id=" + message.body().getLong(gv.distributionHouseId), res -> {
-                res
-                    .bodyHandler(b -> {
-                        try {
-                            final JsonArray jsonArray = new JsonArray();
-                            final JsonArray list = new JsonArray(b.toString());
-                            for (int i = 0; i < list.size(); i++) {
-                                jsonArray.add(new JsonObject()
-                                    .put(gv.id, list.getJsonObject(i).getLong("ID"))
-                                    .put(gv.name, list.getJsonObject(i).getString("Name")));
+        try {
+            String baseUrl = message.body().getString("baseUrl");
+            message.body().remove("baseUrl");
+            final JsonObject local = brDirectory.findAll(baseUrl, message.body().getLong(gv.distributionHouseId), gv.id, gv.name);
+            if (local != null) {
+                message.reply(local);
+                return;
+            }
+            final String url = baseUrl + GET_BRS_URI + "?Id=" + message.body().getLong(gv.distributionHouseId);
+            final JsonObject cached = responseCache.get(GET_BRS_URI, url);
+            if (cached != null) {
+                message.reply(cached);
+                return;
+            }
+            upstreamClients
+                .get(url, res -> {
+                    res
+                        .bodyHandler(b -> {
+                            try {
+                                final JsonArray jsonArray = new JsonArray();
+                                final JsonArray list = new JsonArray(b.toString());
+                                for (int i = 0; i < list.size(); i++) {
+                                    jsonArray.add(new JsonObject()
+                                        .put(gv.id, list.getJsonObject(i).getLong("ID"))
+                                        .put(gv.name, list.getJsonObject(i).getString("Name")));
+                                }
+                                final JsonObject reply = new JsonObject()
+                                    .put("data", jsonArray);
+                                responseCache.put(GET_BRS_URI, url, reply);
+                                message.reply(reply);
+                            } catch (Exception e) {
+                                responseCache.replyStaleOrFail(url, message, e);
                             }
-                            message.reply(new JsonObject()
-                                .put("data", jsonArray));
-                        } catch (Exception e) {
-                            ExceptionUtil.fail(message, e);
-                        }
-                    })
-                    .exceptionHandler(e -> ExceptionUtil.fail(message, e));
-            })
-            .sendHead()
-            .putHeader(gv.X_Requested_With, Services.CALL_CENTER_JAVA)
-            .exceptionHandler(e -> ExceptionUtil.fail(message, e))
-            .end();
+                        })
+                        .exceptionHandler(e -> responseCache.replyStaleOrFail(url, message, e));
+                }, e -> responseCache.replyStaleOrFail(url, message, e));
+        } catch (Exception ex) {
+            ExceptionUtil.fail(message, ex);
+        }
     }
 
     public void findBrInfo(Message<JsonObject> message) {
@@ -67,24 +87,41 @@ public class BrService {
             }
             String baseUrl = message.body().getString("baseUrl");
             message.body().remove("baseUrl");
-            String query = "select * from brs where br_id = " + message.body().getString("brId", "0");
-            httpClient
-                .getAbs(baseUrl + "/sql/query?sql=" + ExceptionUtil.toRuntimeCall(() -> URLEncoder.encode(query, StandardCharsets.UTF_8.name())),
+            final JsonObject local = brDirectory.find(baseUrl, message.body().getValue("brId"));
+            if (local != null) {
+                message.reply(local);
+                return;
+            }
+            final String url = brInfoUrl(baseUrl, message.body().getString("brId", "0"));
+            if (contactPrefetcher.serve(SQL_QUERY_URI, url, message)) {
+                return;
+            }
+            upstreamClients
+                .get(url,
                     res -> res
                         .bodyHandler(b -> {
                             try {
-                                message.reply(new JsonObject((Map<String, Object>) new JsonArray(b.toString()).stream().findFirst().orElse(new HashMap<>())));
+                                message.reply(toBrInfo(b.toString()));
                             } catch (Exception e) {
                                 ExceptionUtil.fail(message, e);
                             }
                         })
-                        .exceptionHandler(e -> ExceptionUtil.fail(message, e)))
-                .sendHead()
-                .putHeader(gv.X_Requested_With, Services.CALL_CENTER_JAVA)
-                .exceptionHandler(e -> ExceptionUtil.fail(message, e))
-                .end();
+                        .exceptionHandler(e -> ExceptionUtil.fail(message, e)),
+                    e -> ExceptionUtil.fail(message, e));
         } catch (Exception ex) {
             ExceptionUtil.fail(message, ex);
         }
     }
+
+    public static String brInfoUrl(String baseUrl, String brId) {
+        return sqlQueryUrl(baseUrl, "select * from brs where br_id = " + brId);
+    }
+
+    public static String sqlQueryUrl(String baseUrl, String query) {
+        return baseUrl + SQL_QUERY_URI + "?sql=" + ExceptionUtil.toRuntimeCall(() -> URLEncoder.encode(query, StandardCharsets.UTF_8.name()));
+    }
+
+    public static JsonObject toBrInfo(String body) {
+        return new JsonObject((Map<String, Object>) new JsonArray(body).stream().findFirst().orElse(new HashMap<>()));
+    }
 }
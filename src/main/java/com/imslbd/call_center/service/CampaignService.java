@@ -24,7 +24,8 @@ public class CampaignService {
     }
 
     public void findCampaign(Message<JsonObject> message) {
-        WebUtils.query("select * from campaigns where id = " + message.body().getValue("id"), jdbcClient)
+        WebUtils.query("select * from campaigns where id = ?",
+            new JsonArray().add(message.body().getValue("id")), jdbcClient)
             .then(rs -> message.reply(rs.getRows().get(0)))
             .error(e -> ExceptionUtil.fail(message, e));
     }
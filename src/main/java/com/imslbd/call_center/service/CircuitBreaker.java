@@ -0,0 +1,148 @@
+package com.imslbd.call_center.service;
+
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Count based circuit breaker for one upstream endpoint. The outcome of the last windowSize calls is kept in a
+ * ring; once at least minimumCalls are recorded and either the failure rate or the slow call rate reaches its
+ * threshold the breaker opens and calls fail fast for openSeconds. After that a limited number of trial calls
+ * are let through (half open) and their outcome decides whether the breaker closes or opens again. A
+ * slowCallMillis of 0 turns slow call tracking off, for endpoints whose calls are expected to take long.
+ * <p>
+ * Created by someone on 18/10/2026.
+ */
+public class CircuitBreaker {
+    private static final String WINDOW_SIZE = "windowSize";
+    private static final String MINIMUM_CALLS = "minimumCalls";
+    private static final String FAILURE_RATE_THRESHOLD = "failureRateThreshold";
+    private static final String SLOW_CALL_MILLIS = "slowCallMillis";
+    private static final String SLOW_CALL_RATE_THRESHOLD = "slowCallRateThreshold";
+    private static final String OPEN_SECONDS = "openSeconds";
+    private static final String HALF_OPEN_CALLS = "halfOpenCalls";
+
+    private static final byte SUCCESS = 0;
+    private static final byte FAILURE = 1;
+    private static final byte SLOW = 2;
+
+    public enum State {CLOSED, OPEN, HALF_OPEN}
+
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final long slowCallMillis;
+    private final double slowCallRateThreshold;
+    private final long openMillis;
+    private final int halfOpenCalls;
+
+    private final byte[] window;
+    private int position;
+    private int recorded;
+    private int failures;
+    private int slowCalls;
+
+    private State state = State.CLOSED;
+    private long openedAt;
+    private int halfOpenPermits;
+    private long rejected;
+
+    public CircuitBreaker(JsonObject config) {
+        final JsonObject cfg = config == null ? new JsonObject() : config;
+        this.window = new byte[cfg.getInteger(WINDOW_SIZE, 20)];
+        this.minimumCalls = cfg.getInteger(MINIMUM_CALLS, 10);
+        this.failureRateThreshold = cfg.getDouble(FAILURE_RATE_THRESHOLD, 0.5);
+        this.slowCallMillis = cfg.getLong(SLOW_CALL_MILLIS, 10000L);
+        this.slowCallRateThreshold = cfg.getDouble(SLOW_CALL_RATE_THRESHOLD, 0.8);
+        this.openMillis = cfg.getLong(OPEN_SECONDS, 30L) * 1000;
+        this.halfOpenCalls = cfg.getInteger(HALF_OPEN_CALLS, 2);
+    }
+
+    /**
+     * @return true if the call may proceed, false if it must fail fast.
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN) {
+            if (System.currentTimeMillis() - openedAt < openMillis) {
+                rejected++;
+                return false;
+            }
+            state = State.HALF_OPEN;
+            halfOpenPermits = halfOpenCalls;
+            reset();
+        }
+        if (state == State.HALF_OPEN) {
+            if (halfOpenPermits <= 0) {
+                rejected++;
+                return false;
+            }
+            halfOpenPermits--;
+        }
+        return true;
+    }
+
+    /**
+     * Gives back the permit of a call that was acquired but never made.
+     */
+    public synchronized void cancel() {
+        if (state == State.HALF_OPEN && halfOpenPermits < halfOpenCalls) {
+            halfOpenPermits++;
+        }
+    }
+
+    public synchronized void onSuccess(long elapsedMillis) {
+        record(slowCallMillis > 0 && elapsedMillis >= slowCallMillis ? SLOW : SUCCESS);
+    }
+
+    public synchronized void onFailure() {
+        record(FAILURE);
+    }
+
+    private void record(byte outcome) {
+        if (recorded == window.length) {
+            final byte evicted = window[position];
+            if (evicted == FAILURE) failures--;
+            else if (evicted == SLOW) slowCalls--;
+        } else {
+            recorded++;
+        }
+        window[position] = outcome;
+        position = (position + 1) % window.length;
+        if (outcome == FAILURE) failures++;
+        else if (outcome == SLOW) slowCalls++;
+
+        if (state == State.HALF_OPEN) {
+            if (outcome != SUCCESS) {
+                open();
+            } else if (recorded >= halfOpenCalls) {
+                state = State.CLOSED;
+                reset();
+            }
+            return;
+        }
+
+        if (recorded >= minimumCalls
+            && (failures >= failureRateThreshold * recorded || slowCalls >= slowCallRateThreshold * recorded)) {
+            open();
+        }
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = System.currentTimeMillis();
+        reset();
+    }
+
+    private void reset() {
+        position = 0;
+        recorded = 0;
+        failures = 0;
+        slowCalls = 0;
+    }
+
+    public synchronized JsonObject stats() {
+        return new JsonObject()
+            .put("state", state.name())
+            .put("recorded", recorded)
+            .put("failures", failures)
+            .put("slowCalls", slowCalls)
+            .put("rejected", rejected);
+    }
+}
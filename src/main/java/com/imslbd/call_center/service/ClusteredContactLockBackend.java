@@ -0,0 +1,119 @@
+package com.imslbd.call_center.service;
+
+import io.crm.promise.Promises;
+import io.crm.promise.intfs.Defer;
+import io.crm.promise.intfs.Promise;
+import io.crm.util.Util;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.shareddata.AsyncMap;
+import io.vertx.core.shareddata.Counter;
+
+/**
+ * {@link ContactLockBackend} on the vert.x cluster manager. Leases are entries of a cluster wide map with the
+ * lease time as ttl, fencing tokens come from a cluster wide counter that is only incremented for a free
+ * contact. Requires a clustered Vertx.
+ * <p>
+ * Created by someone on 18/10/2026.
+ */
+public class ClusteredContactLockBackend implements ContactLockBackend {
+    private static final String LEASES = "CONTACT_LOCK_LEASES";
+    private static final String FENCING_TOKEN = "CONTACT_LOCK_FENCING_TOKEN";
+    private static final String OPERATOR = "operator";
+    private static final String TOKEN = "token";
+
+    private final Vertx vertx;
+
+    public ClusteredContactLockBackend(Vertx vertx) {
+        this.vertx = vertx;
+    }
+
+    @Override
+    public Promise<Lease> acquire(Long smsId, Long operator, long leaseMillis) {
+        return leases()
+            .mapToPromise(map -> get(map, smsId)
+                .mapToPromise(current -> {
+                    if (current != null) {
+                        return extend(map, smsId, operator, current, leaseMillis);
+                    }
+                    return nextToken()
+                        .mapToPromise(token -> {
+                            final Defer<JsonObject> defer = Promises.defer();
+                            map.putIfAbsent(smsId, new JsonObject().put(OPERATOR, operator).put(TOKEN, token), leaseMillis,
+                                Util.makeDeferred(defer));
+                            return defer.promise()
+                                .mapToPromise(existing -> existing == null
+                                    ? Promises.from(new Lease(true, operator, token))
+                                    : extend(map, smsId, operator, existing, leaseMillis));
+                        });
+                }));
+    }
+
+    @Override
+    public Promise<Lease> renew(Long smsId, Long operator, long leaseMillis) {
+        return leases()
+            .mapToPromise(map -> get(map, smsId)
+                .mapToPromise(current -> current == null
+                    ? Promises.from(new Lease(false, null, null))
+                    : extend(map, smsId, operator, current, leaseMillis)));
+    }
+
+    /**
+     * Extends the current lease if the operator holds it, keeping its fencing token.
+     */
+    private static Promise<Lease> extend(AsyncMap<Long, JsonObject> map, Long smsId, Long operator, JsonObject current,
+                                         long leaseMillis) {
+        if (!operator.equals(current.getLong(OPERATOR))) {
+            return Promises.from(new Lease(false, current.getLong(OPERATOR), null));
+        }
+        final Defer<Void> extended = Promises.defer();
+        map.put(smsId, current, leaseMillis, Util.makeDeferred(extended));
+        return extended.promise().map(v -> new Lease(true, operator, current.getLong(TOKEN)));
+    }
+
+    @Override
+    public Promise<Void> release(Long smsId, Long operator) {
+        return leases()
+            .mapToPromise(map -> get(map, smsId)
+                .mapToPromise(current -> {
+                    if (current == null || !operator.equals(current.getLong(OPERATOR))) {
+                        return Promises.from();
+                    }
+                    final Defer<Boolean> defer = Promises.defer();
+                    map.removeIfPresent(smsId, current, Util.makeDeferred(defer));
+                    return defer.promise().map(removed -> (Void) null);
+                }));
+    }
+
+    @Override
+    public Promise<Boolean> validate(Long smsId, Long operator, Long fencingToken) {
+        return leases()
+            .mapToPromise(map -> get(map, smsId))
+            .map(current -> current != null
+                && operator.equals(current.getLong(OPERATOR))
+                && fencingToken != null && fencingToken.equals(current.getLong(TOKEN)));
+    }
+
+    private Promise<AsyncMap<Long, JsonObject>> leases() {
+        final Defer<AsyncMap<Long, JsonObject>> defer = Promises.defer();
+        vertx.sharedData().<Long, JsonObject>getClusterWideMap(LEASES, Util.makeDeferred(defer));
+        return defer.promise();
+    }
+
+    private Promise<Long> nextToken() {
+        final Defer<Counter> defer = Promises.defer();
+        vertx.sharedData().getCounter(FENCING_TOKEN, Util.makeDeferred(defer));
+        return defer.promise()
+            .mapToPromise(counter -> {
+                final Defer<Long> tokenDefer = Promises.defer();
+                counter.incrementAndGet(Util.makeDeferred(tokenDefer));
+                return tokenDefer.promise();
+            });
+    }
+
+    private static Promise<JsonObject> get(AsyncMap<Long, JsonObject> map, Long smsId) {
+        final Defer<JsonObject> defer = Promises.defer();
+        map.get(smsId, Util.makeDeferred(defer));
+        return defer.promise();
+    }
+}
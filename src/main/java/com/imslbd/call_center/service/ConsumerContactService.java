@@ -2,25 +2,43 @@ package com.imslbd.call_center.service;
 
 import com.imslbd.call_center.MyApp;
 import com.imslbd.call_center.MyEvents;
+import com.imslbd.call_center.controller.Controllers;
 import com.imslbd.call_center.gv;
 import io.crm.FailureCode;
 import io.crm.promise.Promises;
 import io.crm.promise.intfs.Defer;
+import io.crm.promise.intfs.Promise;
 import io.crm.util.ExceptionUtil;
 import io.crm.util.Util;
 import io.crm.web.util.Converters;
+import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
 import io.vertx.core.eventbus.Message;
-import io.vertx.core.http.HttpClient;
 import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpServerResponse;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
-import io.vertx.core.shareddata.LocalMap;
+import io.vertx.core.streams.Pump;
+import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
 
 /**
  * Created by someone on 13/12/2015.
@@ -28,17 +46,83 @@ import java.util.Map;
 public class ConsumerContactService {
     public static final String CALL_SEARCH_LOAD_DATA_URI = "/Call/SearchLoadData";
     public static final String CALL_SEARCH_STEP_2_URI = "/Call/searchResult";
-    private static final String LOCKED_SMS_IDS = "LOCKED_SMS_IDS";
+    public static final String BRANDS_URI = "/Call/brands";
+    public static final String CALL_OPERATOR_LIST_URI = "/Call/callOperatorList";
+    public static final String CONTACT_DETAILS_URI = "/Call/contactDetails";
+    public static final String CRITERIA_CALL_OPERATOR = "callOperator";
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConsumerContactService.class);
+    private static final String FENCING_TOKEN_PARAM = "fencing_token";
+    private static final String BR_REPORT_DAILY_URI = "/Call/brReportDaily";
+    private static final DateTimeFormatter REPORT_DATE_FORMAT = new DateTimeFormatterBuilder()
+        .parseCaseInsensitive().appendPattern("dd-MMM-yyyy").toFormatter(Locale.ENGLISH);
     private static final String SMS_ID = "SMS_ID";
-    private static final String DEFAULT_SMS_ID_LOCK_TIME_OUT = "DEFAULT_SMS_ID_LOCK_TIME_OUT";
-    private static final String LOCK_CANCELER_TIMER = "LOCK_CANCELER_TIMER";
+    private static final String CONTACT_LOCK_LEASE_SECONDS = "CONTACT_LOCK_LEASE_SECONDS";
+    private static final String SMS_IDS = "SMS_IDS";
+    private static final long LOCK_EXPIRY_TICK_MILLIS = 1000;
+    private static final int LOCK_EXPIRY_WHEEL_SIZE = 512;
     private static final String CALL_OPERATOR = "CALL_OPERATOR";
-    private final HttpClient httpClient;
+    private static final String CAMPAIGN_ID = "CAMPAIGN_ID";
+    private static final String DISTRIBUTION_HOUSE_ID = "DISTRIBUTION_HOUSE_ID";
+    private static final String CONTACT_DETAILS_BATCH_CONCURRENCY = "CONTACT_DETAILS_BATCH_CONCURRENCY";
+    private static final int MAX_CONTACT_DETAILS_BATCH_SIZE = 100;
+    private final UpstreamClients upstreamClients;
     private final Vertx vertx;
-
-    public ConsumerContactService(HttpClient httpClient, Vertx vertx) {
-        this.httpClient = httpClient;
+    private final ResponseCache responseCache;
+    private final ContactPrefetcher contactPrefetcher;
+    private final ContactLockBackend contactLockBackend;
+    private final ContactLockJournal contactLockJournal;
+    private final InFlightRequests inFlightRequests;
+    private final ContactLockManager contactLockManager = new ContactLockManager();
+    private final TimingWheel<Long> lockExpiry;
+    private final LockStateBroadcaster lockStateBroadcaster;
+    private final LockHeartbeats lockHeartbeats;
+    private final LockMetrics lockMetrics = new LockMetrics();
+    private final ContactAssignmentQueue contactAssignmentQueue;
+    private final BrDailyReportCache brDailyReportCache = new BrDailyReportCache(brDailyReportConfig());
+
+    public ConsumerContactService(UpstreamClients upstreamClients, Vertx vertx, ResponseCache responseCache,
+                                  ContactPrefetcher contactPrefetcher, ContactLockBackend contactLockBackend,
+                                  ContactLockJournal contactLockJournal) {
+        this.upstreamClients = upstreamClients;
         this.vertx = vertx;
+        this.responseCache = responseCache;
+        this.contactPrefetcher = contactPrefetcher;
+        this.contactLockBackend = contactLockBackend;
+        this.contactLockJournal = contactLockJournal;
+        this.inFlightRequests = new InFlightRequests(vertx,
+            TimeUnit.SECONDS.toMillis(MyApp.loadConfig().getLong(InFlightRequests.IN_FLIGHT_TIMEOUT_SECONDS, 300L)));
+        this.lockExpiry = new TimingWheel<>(vertx, LOCK_EXPIRY_TICK_MILLIS, LOCK_EXPIRY_WHEEL_SIZE, this::locksExpired);
+        this.lockStateBroadcaster = new LockStateBroadcaster(vertx,
+            MyApp.loadConfig().getLong(LockStateBroadcaster.LOCK_STATE_BROADCAST_INTERVAL_MILLIS, 250L),
+            contactLockManager::snapshot);
+        this.lockHeartbeats = new LockHeartbeats(vertx,
+            MyApp.loadConfig().getLong(LockHeartbeats.LOCK_HEARTBEAT_BATCH_MILLIS, 1000L),
+            this::renewLeases);
+        this.contactAssignmentQueue = new ContactAssignmentQueue(this::loadPendingContacts, assignmentConfig());
+        recoverLocks();
+    }
+
+    /**
+     * Takes back the locks journaled before the last stop whose lease has not run out, with the rest of their
+     * lease left.
+     */
+    private void recoverLocks() {
+        final List<ContactLockJournal.Entry> entries = contactLockJournal.replay();
+        contactLockBackend.advanceFencingToken(contactLockJournal.getMaxFencingToken());
+        final long now = System.currentTimeMillis();
+        entries.forEach(entry -> {
+            if (!contactLockManager.lock(entry.getSmsId(), entry.getOperator()).isAcquired()) {
+                return;
+            }
+            contactLockBackend.restore(entry.getSmsId(), entry.getOperator(), entry.getFencingToken(), entry.getExpiresAt());
+            lockExpiry.schedule(entry.getSmsId(), entry.getExpiresAt() - now);
+            lockMetrics.acquired(entry.getSmsId(), entry.getPartition());
+            lockStateBroadcaster.locked(entry.getSmsId(), entry.getOperator(), entry.getPartition());
+        });
+        if (!entries.isEmpty()) {
+            LOGGER.info("Recovered " + entries.size() + " contact locks from the journal in "
+                + contactLockJournal.stats().getLong("recoveryMillis") + " ms");
+        }
     }
 
     public void consumerContactsCallStep_1(Message<JsonObject> message) {
@@ -47,25 +131,23 @@ public class ConsumerContactService {
             .then(criteria -> {
                 String baseUrl = criteria.getString("baseUrl");
                 criteria.remove("baseUrl");
-                httpClient
-                    .getAbs(baseUrl + CALL_SEARCH_LOAD_DATA_URI + queryString(criteria),
+                final String url = baseUrl + CALL_SEARCH_LOAD_DATA_URI + queryString(criteria);
+                if (!inFlightRequests.join(url, message)) {
+                    return;
+                }
+                upstreamClients
+                    .get(url,
                         res -> res
                             .bodyHandler(b -> {
                                 try {
-                                    message.reply(new JsonObject(b.toString()));
+                                    replyAll(url, new JsonObject(b.toString()));
                                 } catch (Exception ex) {
-                                    ExceptionUtil.fail(message, ex);
+                                    failAll(url, ex);
                                 }
                             })
                             .exceptionHandler(e ->
-                                ExceptionUtil.fail(message, e)))
-                    .sendHead()
-                    .putHeader(gv.X_Requested_With, Services.CALL_CENTER_JAVA)
-//                .putHeader("Host", MyApp.loadConfig().getString(MainVerticle.PROP_CALL_REVIEW_HOST) + ":" + MyApp.loadConfig().getInteger(MainVerticle.PROP_CALL_REVIEW_PORT))
-//                .putHeader("Referer", "http://" + MyApp.loadConfig().getString(MainVerticle.PROP_CALL_REVIEW_HOST) + ":" + MyApp.loadConfig().getInteger(MainVerticle.PROP_CALL_REVIEW_PORT))
-                    .exceptionHandler(e ->
-                        ExceptionUtil.fail(message, e))
-                    .end();
+                                failAll(url, e)),
+                    e -> failAll(url, e));
             })
             .error(e ->
                 ExceptionUtil.fail(message, e));
@@ -76,10 +158,15 @@ public class ConsumerContactService {
             .then(criteria -> {
                 String baseUrl = criteria.getString("baseUrl");
                 criteria.remove("baseUrl");
-                httpClient.getAbs(baseUrl + CALL_SEARCH_STEP_2_URI + queryString_2(criteria),
+                final String url = baseUrl + CALL_SEARCH_STEP_2_URI + queryString_2(criteria);
+                if (!inFlightRequests.join(url, message)) {
+                    return;
+                }
+                upstreamClients.get(url,
                     res -> res.bodyHandler(b -> {
                         try {
-                            message.reply(Util.accept(new JsonObject(b.toString()),
+                            final List<Long> smsIds = new ArrayList<>();
+                            final JsonObject reply = Util.accept(new JsonObject(b.toString()),
                                 js -> {
                                     if (!js.getString("status").equals("success")) {
                                         return;
@@ -88,28 +175,121 @@ public class ConsumerContactService {
                                         .map(o -> Util.as(o, Map.class))
                                         .forEach(m -> {
                                             JsonObject jsa = new JsonObject(m);
-                                            Object operator = vertx.sharedData().getLocalMap(LOCKED_SMS_IDS)
-                                                .get(jsa.getLong("SMS_ID", 0L));
+                                            smsIds.add(jsa.getLong("SMS_ID", 0L));
+                                            Object operator = lockedBy(jsa.getLong("SMS_ID", 0L));
                                             if (operator != null) {
                                                 jsa.put("LOCKED_BY", operator);
                                             }
                                         });
-                                }));
+                                });
+                            inFlightRequests.complete(url).forEach(m -> {
+                                contactPrefetcher.recordResult(((JsonObject) m.body()).getLong(CRITERIA_CALL_OPERATOR), baseUrl, smsIds);
+                                m.reply(reply);
+                            });
                         } catch (Exception ex) {
-                            ExceptionUtil.fail(message, ex);
+                            failAll(url, ex);
                         }
                     })
-                        .exceptionHandler(e -> ExceptionUtil.fail(message, e)))
-                    .sendHead()
-                    .putHeader(gv.X_Requested_With, Services.CALL_CENTER_JAVA)
-//                .putHeader("Host", MyApp.loadConfig().getString(MainVerticle.PROP_CALL_REVIEW_HOST) + ":" + MyApp.loadConfig().getInteger(MainVerticle.PROP_CALL_REVIEW_PORT))
-//                .putHeader("Referer", "http://" + MyApp.loadConfig().getString(MainVerticle.PROP_CALL_REVIEW_HOST) + ":" + MyApp.loadConfig().getInteger(MainVerticle.PROP_CALL_REVIEW_PORT))
-                    .exceptionHandler(e -> ExceptionUtil.fail(message, e))
-                    .end();
+                        .exceptionHandler(e -> failAll(url, e)),
+                    e -> failAll(url, e));
             })
             .error(e -> ExceptionUtil.fail(message, e));
     }
 
+    /**
+     * Streaming variant of {@link #consumerContactsCallStep_1(Message)}. The upstream body is pumped into the
+     * response chunk by chunk instead of being buffered, parsed and copied across the event bus.
+     */
+    public void streamCallStep_1(JsonObject criteria, HttpServerResponse response, Handler<Throwable> errorHandler) {
+        try {
+            criteria.put("DATASOURCE", MyApp.loadConfig().getLong("DATASOURCE"));
+            String baseUrl = criteria.getString("baseUrl");
+            criteria.remove("baseUrl");
+            final Handler<Throwable> failHandler = streamFailHandler(response, errorHandler);
+            upstreamClients
+                .get(baseUrl + CALL_SEARCH_LOAD_DATA_URI + queryString(criteria),
+                    res -> {
+                        response
+                            .setStatusCode(res.statusCode())
+                            .setChunked(true)
+                            .putHeader(HttpHeaders.CONTENT_TYPE, Controllers.APPLICATION_JSON);
+                        res
+                            .exceptionHandler(failHandler)
+                            .endHandler(v -> response.end());
+                        Pump.pump(res, response).start();
+                    },
+                failHandler);
+        } catch (Exception ex) {
+            errorHandler.handle(ex);
+        }
+    }
+
+    /**
+     * Streaming variant of {@link #consumerContactsCallStep_2(Message)}. Rows of the upstream "data" array are
+     * annotated with LOCKED_BY one at a time while the body is written to the response.
+     */
+    public void streamCallStep_2(JsonObject criteria, HttpServerResponse response, Handler<Throwable> errorHandler) {
+        try {
+            String baseUrl = criteria.getString("baseUrl");
+            criteria.remove("baseUrl");
+            final Long callOperator = criteria.getLong(CRITERIA_CALL_OPERATOR);
+            final List<Long> smsIds = new ArrayList<>();
+            final Handler<Throwable> failHandler = streamFailHandler(response, errorHandler);
+            upstreamClients
+                .get(baseUrl + CALL_SEARCH_STEP_2_URI + queryString_2(criteria),
+                    res -> {
+                        response
+                            .setStatusCode(res.statusCode())
+                            .setChunked(true)
+                            .putHeader(HttpHeaders.CONTENT_TYPE, Controllers.APPLICATION_JSON);
+                        res
+                            .handler(new LockedByAnnotator(sms_id -> {
+                                smsIds.add(sms_id);
+                                return lockedBy(sms_id);
+                            }, buffer -> {
+                                response.write(buffer);
+                                if (response.writeQueueFull()) {
+                                    res.pause();
+                                    response.drainHandler(v -> res.resume());
+                                }
+                            }))
+                            .exceptionHandler(failHandler)
+                            .endHandler(v -> {
+                                contactPrefetcher.recordResult(callOperator, baseUrl, smsIds);
+                                response.end();
+                            });
+                    },
+                failHandler);
+        } catch (Exception ex) {
+            errorHandler.handle(ex);
+        }
+    }
+
+    private Object lockedBy(Long sms_id) {
+        return contactLockManager.lockedBy(sms_id);
+    }
+
+    private Handler<Throwable> streamFailHandler(HttpServerResponse response, Handler<Throwable> errorHandler) {
+        return e -> {
+            if (response.headWritten()) {
+                response.close();
+            } else {
+                errorHandler.handle(e);
+            }
+        };
+    }
+
+    private void replyAll(String url, Object reply) {
+        inFlightRequests.complete(url).forEach(m -> m.reply(reply));
+    }
+
+    private void failAll(String url, Throwable e) {
+        inFlightRequests.complete(url).forEach(m -> ExceptionUtil.fail(m, e));
+    }
+
+    public JsonObject inFlightStats() {
+        return inFlightRequests.stats();
+    }
 
     public void brActivitySummary(Message<JsonObject> message) {
 
@@ -126,35 +306,22 @@ public class ConsumerContactService {
             final JsonObject entries = message.body();
             String baseUrl = entries.getString("baseUrl");
             entries.remove("baseUrl");
-            httpClient.getAbs(baseUrl + "/Call/brReportDaily" + "?br=" + entries.getValue("brId") + "&date=" + entries.getValue("workDate"),
-                res -> res.bodyHandler(b -> {
-                    try {
-                        defer1.complete(new JsonObject(b.toString()));
-                    } catch (Exception ex) {
-                        ExceptionUtil.fail(message, ex);
-                    }
-                }).exceptionHandler(defer1::fail))
-                .sendHead()
-                .putHeader(gv.X_Requested_With, Services.CALL_CENTER_JAVA)
-//                .putHeader("Host", MyApp.loadConfig().getString(MainVerticle.PROP_CALL_REVIEW_HOST) + ":" + MyApp.loadConfig().getInteger(MainVerticle.PROP_CALL_REVIEW_PORT))
-//                .putHeader("Referer", "http://" + MyApp.loadConfig().getString(MainVerticle.PROP_CALL_REVIEW_HOST) + ":" + MyApp.loadConfig().getInteger(MainVerticle.PROP_CALL_REVIEW_PORT))
-                .exceptionHandler(defer1::fail)
-                .end();
-
-            httpClient.getAbs(baseUrl + "/Call/brReportTotal" + "?br=" + entries.getValue("brId") + "&from=" + entries.getValue("workDate.__from") + "&to=" + entries.getValue("workDate.__to"),
-                res -> res.bodyHandler(b -> {
-                    try {
-                        defer2.complete(new JsonObject(b.toString()));
-                    } catch (Exception ex) {
-                        ExceptionUtil.fail(message, ex);
-                    }
-                }).exceptionHandler(defer2::fail))
-                .sendHead()
-                .putHeader(gv.X_Requested_With, Services.CALL_CENTER_JAVA)
-//                .putHeader("Host", MyApp.loadConfig().getString(MainVerticle.PROP_CALL_REVIEW_HOST) + ":" + MyApp.loadConfig().getInteger(MainVerticle.PROP_CALL_REVIEW_PORT))
-//                .putHeader("Referer", "http://" + MyApp.loadConfig().getString(MainVerticle.PROP_CALL_REVIEW_HOST) + ":" + MyApp.loadConfig().getInteger(MainVerticle.PROP_CALL_REVIEW_PORT))
-                .exceptionHandler(defer2::fail)
-                .end();
+            final Object brId = entries.getValue("brId");
+
+            final LocalDate workDate = toReportDate(entries.getValue("workDate"));
+            if (workDate == null) {
+                getJson(baseUrl + BR_REPORT_DAILY_URI + "?br=" + brId + "&date=" + entries.getValue("workDate"), defer1::complete, defer1::fail);
+            } else {
+                brReportDaily(baseUrl, brId, workDate, defer1::complete, defer1::fail);
+            }
+
+            final LocalDate from = toReportDate(entries.getValue("workDate.__from"));
+            final LocalDate to = toReportDate(entries.getValue("workDate.__to"));
+            if (from == null || to == null || to.isBefore(from) || ChronoUnit.DAYS.between(from, to) >= brReportMaxRangeDays()) {
+                getJson(baseUrl + "/Call/brReportTotal" + "?br=" + brId + "&from=" + entries.getValue("workDate.__from") + "&to=" + entries.getValue("workDate.__to"), defer2::complete, defer2::fail);
+            } else {
+                brReportTotal(baseUrl, brId, from, to, defer2::complete, defer2::fail);
+            }
 
             Promises.when(defer1.promise(), defer2.promise())
                 .then(val -> message.reply(new JsonObject().put("daily", val.getT1()).put("total", val.getT2())))
@@ -164,6 +331,108 @@ public class ConsumerContactService {
         }
     }
 
+    private void brReportDaily(String baseUrl, Object brId, LocalDate date, Handler<JsonObject> onSuccess, Handler<Throwable> onError) {
+        final JsonObject cached = brDailyReportCache.get(baseUrl, brId, date);
+        if (cached != null) {
+            onSuccess.handle(cached);
+            return;
+        }
+        getJson(baseUrl + BR_REPORT_DAILY_URI + "?br=" + brId + "&date=" + REPORT_DATE_FORMAT.format(date),
+            report -> {
+                brDailyReportCache.put(baseUrl, brId, date, report);
+                onSuccess.handle(report);
+            }, onError);
+    }
+
+    /**
+     * Totals the daily reports of every day of the range with {@link BrDailyReportCache#total(List)}. Cached days
+     * are taken from the {@link BrDailyReportCache}, the rest is fetched at most BR_DAILY_REPORT_CACHE.concurrency
+     * at a time.
+     */
+    private void brReportTotal(String baseUrl, Object brId, LocalDate from, LocalDate to, Handler<JsonObject> onSuccess, Handler<Throwable> onError) {
+        final List<JsonObject> reports = new ArrayList<>();
+        final List<Integer> missing = new ArrayList<>();
+        for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+            final JsonObject cached = brDailyReportCache.get(baseUrl, brId, date);
+            if (cached == null) {
+                missing.add(reports.size());
+            }
+            reports.add(cached);
+        }
+
+        if (missing.isEmpty()) {
+            onSuccess.handle(brDailyReportCache.total(reports));
+            return;
+        }
+
+        final Iterator<Integer> pending = missing.iterator();
+        final int[] remaining = {missing.size()};
+        final boolean[] failed = new boolean[1];
+
+        final AtomicReference<Handler<Void>> next = new AtomicReference<>();
+        next.set(v -> {
+            if (!pending.hasNext() || failed[0]) {
+                return;
+            }
+            final int index = pending.next();
+            brReportDaily(baseUrl, brId, from.plusDays(index),
+                report -> {
+                    reports.set(index, report);
+                    if (--remaining[0] == 0) {
+                        onSuccess.handle(brDailyReportCache.total(reports));
+                    } else {
+                        next.get().handle(null);
+                    }
+                },
+                e -> {
+                    if (!failed[0]) {
+                        failed[0] = true;
+                        onError.handle(e);
+                    }
+                });
+        });
+
+        final int concurrency = brDailyReportConfig().getInteger("concurrency", 4);
+        for (int i = 0; i < concurrency && pending.hasNext(); i++) {
+            next.get().handle(null);
+        }
+    }
+
+    private void getJson(String url, Handler<JsonObject> onSuccess, Handler<Throwable> onError) {
+        upstreamClients.get(url,
+            res -> res.bodyHandler(b -> {
+                try {
+                    onSuccess.handle(new JsonObject(b.toString()));
+                } catch (Exception ex) {
+                    onError.handle(ex);
+                }
+            }).exceptionHandler(onError),
+            onError);
+    }
+
+    private static LocalDate toReportDate(Object value) {
+        if (value == null || Util.isEmptyOrNullOrSpaces(value.toString())) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(value.toString().trim(), REPORT_DATE_FORMAT);
+        } catch (DateTimeParseException ex) {
+            return null;
+        }
+    }
+
+    private long brReportMaxRangeDays() {
+        return brDailyReportConfig().getLong("maxRangeDays", 92L);
+    }
+
+    private static JsonObject brDailyReportConfig() {
+        return MyApp.loadConfig().getJsonObject(BrDailyReportCache.BR_DAILY_REPORT_CACHE, new JsonObject());
+    }
+
+    public JsonObject brDailyReportStats() {
+        return brDailyReportCache.stats();
+    }
+
     private String queryString_2(JsonObject criteria) {
         return "?area=" + criteria.getValue(gv.areaId)
             + "&distribution=" + criteria.getValue(gv.distributionHouseId)
@@ -203,39 +472,108 @@ public class ConsumerContactService {
         Promises.from(message.body()).then(entries -> {
             String baseUrl = entries.getString("baseUrl");
             entries.remove("baseUrl");
-            httpClient.getAbs(baseUrl + "/Call/contactDetails" + "?sms_id=" + entries.getValue("sms_id"),
-                res -> res.bodyHandler(b -> {
-                    try {
-                        message.reply(new JsonObject(b.toString()));
-                    } catch (Exception ex) {
-                        ExceptionUtil.fail(message, ex);
-                    }
-                }).exceptionHandler(e -> ExceptionUtil.fail(message, e)))
-                .sendHead()
-                .putHeader(gv.X_Requested_With, Services.CALL_CENTER_JAVA)
-//                .putHeader("Host", MyApp.loadConfig().getString(MainVerticle.PROP_CALL_REVIEW_HOST) + ":" + MyApp.loadConfig().getInteger(MainVerticle.PROP_CALL_REVIEW_PORT))
-//                .putHeader("Referer", "http://" + MyApp.loadConfig().getString(MainVerticle.PROP_CALL_REVIEW_HOST) + ":" + MyApp.loadConfig().getInteger(MainVerticle.PROP_CALL_REVIEW_PORT))
-                .exceptionHandler(e -> ExceptionUtil.fail(message, e))
-                .end();
+            if (contactPrefetcher.serve(CONTACT_DETAILS_URI, contactDetailsUrl(baseUrl, entries.getValue("sms_id")), message)) {
+                return;
+            }
+            fetchContactDetails(baseUrl, entries.getValue("sms_id"), message::reply, e -> ExceptionUtil.fail(message, e));
         }).error(e -> ExceptionUtil.fail(message, e));
     }
 
+    /**
+     * Fetches the details of every sms id in the comma separated "sms_ids" in parallel, at most
+     * CONTACT_DETAILS_BATCH_CONCURRENCY at a time. Replies with the details keyed by sms id under "data"
+     * and the error message of every id that failed under "errors".
+     */
+    public void contactDetailsBatch(Message<JsonObject> message) {
+        try {
+            final JsonObject entries = message.body();
+            final String baseUrl = entries.getString("baseUrl");
+            final List<String> smsIds = Arrays.stream(entries.getString("sms_ids", "").split(","))
+                .map(String::trim)
+                .filter(id -> !id.isEmpty())
+                .distinct()
+                .collect(Collectors.toList());
+
+            if (smsIds.isEmpty() || smsIds.size() > MAX_CONTACT_DETAILS_BATCH_SIZE) {
+                message.fail(FailureCode.BadRequest.code, "Between 1 and " + MAX_CONTACT_DETAILS_BATCH_SIZE + " sms_ids are required.");
+                return;
+            }
+
+            final JsonObject data = new JsonObject();
+            final JsonObject errors = new JsonObject();
+            final Iterator<String> pending = smsIds.iterator();
+            final int[] remaining = {smsIds.size()};
+
+            final AtomicReference<Handler<Void>> next = new AtomicReference<>();
+            next.set(v -> {
+                if (!pending.hasNext()) {
+                    return;
+                }
+                final String smsId = pending.next();
+                fetchContactDetails(baseUrl, smsId,
+                    details -> {
+                        data.put(smsId, details);
+                        if (--remaining[0] == 0) {
+                            message.reply(new JsonObject().put("data", data).put("errors", errors));
+                        } else {
+                            next.get().handle(null);
+                        }
+                    },
+                    e -> {
+                        errors.put(smsId, String.valueOf(e.getMessage()));
+                        if (--remaining[0] == 0) {
+                            message.reply(new JsonObject().put("data", data).put("errors", errors));
+                        } else {
+                            next.get().handle(null);
+                        }
+                    });
+            });
+
+            final int concurrency = MyApp.loadConfig().getInteger(CONTACT_DETAILS_BATCH_CONCURRENCY, 8);
+            for (int i = 0; i < concurrency && pending.hasNext(); i++) {
+                next.get().handle(null);
+            }
+        } catch (Exception ex) {
+            ExceptionUtil.fail(message, ex);
+        }
+    }
+
+    private void fetchContactDetails(String baseUrl, Object smsId, Handler<JsonObject> onSuccess, Handler<Throwable> onError) {
+        final boolean[] done = new boolean[1];
+        final Handler<Throwable> failHandler = e -> {
+            if (!done[0]) {
+                done[0] = true;
+                onError.handle(e);
+            }
+        };
+        upstreamClients.get(contactDetailsUrl(baseUrl, smsId),
+            res -> res.bodyHandler(b -> {
+                try {
+                    final JsonObject details = new JsonObject(b.toString());
+                    done[0] = true;
+                    onSuccess.handle(details);
+                } catch (Exception ex) {
+                    failHandler.handle(ex);
+                }
+            }).exceptionHandler(failHandler),
+            failHandler);
+    }
+
+    public static String contactDetailsUrl(String baseUrl, Object smsId) {
+        return baseUrl + CONTACT_DETAILS_URI + "?sms_id=" + smsId;
+    }
+
     public void findCallOperator(Message<JsonObject> message) {
         Promises.from(message.body()).then(entries -> {
-            httpClient.get("/Call/callOperator" + "?id=" + entries.getValue("id"),
+            upstreamClients.get(upstreamClients.defaultBaseUrl() + "/Call/callOperator" + "?id=" + entries.getValue("id"),
                 res -> res.bodyHandler(b -> {
                     try {
                         message.reply(new JsonObject(b.toString()));
                     } catch (Exception ex) {
                         ExceptionUtil.fail(message, ex);
                     }
-                }).exceptionHandler(e -> ExceptionUtil.fail(message, e)))
-                .sendHead()
-                .putHeader(gv.X_Requested_With, Services.CALL_CENTER_JAVA)
-//                .putHeader("Host", MyApp.loadConfig().getString(MainVerticle.PROP_CALL_REVIEW_HOST) + ":" + MyApp.loadConfig().getInteger(MainVerticle.PROP_CALL_REVIEW_PORT))
-//                .putHeader("Referer", "http://" + MyApp.loadConfig().getString(MainVerticle.PROP_CALL_REVIEW_HOST) + ":" + MyApp.loadConfig().getInteger(MainVerticle.PROP_CALL_REVIEW_PORT))
-                .exceptionHandler(e -> ExceptionUtil.fail(message, e))
-                .end();
+                }).exceptionHandler(e -> ExceptionUtil.fail(message, e)),
+                e -> ExceptionUtil.fail(message, e));
         }).error(e -> ExceptionUtil.fail(message, e));
     }
 
@@ -243,117 +581,320 @@ public class ConsumerContactService {
         Promises.from(message.body()).then(entries -> {
             String baseUrl = entries.getString("baseUrl");
             entries.remove("baseUrl");
-            httpClient.getAbs(baseUrl + "/Call/brands" + "?id=" + entries.getValue("id"),
+            final String url = baseUrl + BRANDS_URI + "?id=" + entries.getValue("id");
+            final JsonArray cached = responseCache.get(BRANDS_URI, url);
+            if (cached != null) {
+                message.reply(cached);
+                return;
+            }
+            upstreamClients.get(url,
                 res -> res.bodyHandler(b -> {
                     try {
-                        message.reply(new JsonArray(b.toString()));
+                        final JsonArray reply = new JsonArray(b.toString());
+                        responseCache.put(BRANDS_URI, url, reply);
+                        message.reply(reply);
                     } catch (Exception ex) {
-                        ExceptionUtil.fail(message, ex);
+                        responseCache.replyStaleOrFail(url, message, ex);
                     }
-                }).exceptionHandler(e -> ExceptionUtil.fail(message, e)))
-                .sendHead()
-                .putHeader(gv.X_Requested_With, Services.CALL_CENTER_JAVA)
-//                .putHeader("Host", MyApp.loadConfig().getString(MainVerticle.PROP_CALL_REVIEW_HOST) + ":" + MyApp.loadConfig().getInteger(MainVerticle.PROP_CALL_REVIEW_PORT))
-//                .putHeader("Referer", "http://" + MyApp.loadConfig().getString(MainVerticle.PROP_CALL_REVIEW_HOST) + ":" + MyApp.loadConfig().getInteger(MainVerticle.PROP_CALL_REVIEW_PORT))
-                .exceptionHandler(e -> ExceptionUtil.fail(message, e))
-                .end();
+                }).exceptionHandler(e -> responseCache.replyStaleOrFail(url, message, e)),
+                e -> responseCache.replyStaleOrFail(url, message, e));
         }).error(e -> ExceptionUtil.fail(message, e));
     }
 
+    /**
+     * Creates the call only if the request carries the fencing token of the agent's current lease on the
+     * contact, so an agent whose lock expired or was taken over cannot overwrite the call of the new holder.
+     */
     public void createCall(Message<JsonObject> message) {
-        Promises.from(message.body()).then(entries -> {
-            String encode = entries.encode();
-            String baseUrl = entries.getString("baseUrl");
-            entries.remove("baseUrl");
-            httpClient.postAbs(baseUrl + "/Call/createCall",
-                res -> res.bodyHandler(b -> {
-                    try {
-                        vertx.eventBus().publish(MyEvents.CONTACT_UPDATED, entries);
-                        message.reply(new JsonObject(b.toString()));
-                    } catch (Exception ex) {
-                        ExceptionUtil.fail(message, ex);
+        Promises.from(message.body())
+            .mapToPromise(entries -> contactLockBackend
+                .validate(toLong(entries.getValue("sms_id")), toLong(entries.getValue("agent_id")),
+                    toLong(entries.remove(FENCING_TOKEN_PARAM)))
+                .then(valid -> {
+                    if (!valid) {
+                        message.reply(new JsonObject()
+                            .put("status", "error")
+                            .put("message", "Your lock on this contact has expired or was taken by another agent. Please open the contact again."));
+                        return;
                     }
-                }).exceptionHandler(e -> ExceptionUtil.fail(message, e)))
-                .exceptionHandler(e -> ExceptionUtil.fail(message, e))
-                .sendHead()
-                .putHeader(gv.X_Requested_With, Services.CALL_CENTER_JAVA)
-                .putHeader(HttpHeaders.CONTENT_LENGTH, Util.toString(encode.length()))
-//                .putHeader("Host", MyApp.loadConfig().getString(MainVerticle.PROP_CALL_REVIEW_HOST) + ":" + MyApp.loadConfig().getInteger(MainVerticle.PROP_CALL_REVIEW_PORT))
-//                .putHeader("Referer", "http://" + MyApp.loadConfig().getString(MainVerticle.PROP_CALL_REVIEW_HOST) + ":" + MyApp.loadConfig().getInteger(MainVerticle.PROP_CALL_REVIEW_PORT))
-//                .setChunked(true)
-                .write(encode)
-                .end();
-        }).error(e -> ExceptionUtil.fail(message, e));
+                    String encode = entries.encode();
+                    String baseUrl = entries.getString("baseUrl");
+                    entries.remove("baseUrl");
+                    upstreamClients.post(baseUrl + "/Call/createCall", encode,
+                        res -> res.bodyHandler(b -> {
+                            try {
+                                contactPrefetcher.invalidateContact(entries.getValue("sms_id"));
+                                contactAssignmentQueue.remove(toLong(entries.getValue("sms_id")));
+                                brDailyReportCache.evict(baseUrl, entries.getValue("br_id"));
+                                vertx.eventBus().publish(MyEvents.partitioned(MyEvents.CONTACT_UPDATED,
+                                    MyEvents.partition(entries.getValue("DATASOURCE"), entries.getValue("house_id"))), entries);
+                                message.reply(new JsonObject(b.toString()));
+                            } catch (Exception ex) {
+                                ExceptionUtil.fail(message, ex);
+                            }
+                        }).exceptionHandler(e -> ExceptionUtil.fail(message, e)),
+                        e -> ExceptionUtil.fail(message, e));
+                }))
+            .error(e -> ExceptionUtil.fail(message, e));
+    }
+
+    private static Long toLong(Object value) {
+        if (value == null || Util.isEmptyOrNullOrSpaces(value.toString())) {
+            return null;
+        }
+        return Converters.toLong(value.toString().trim());
     }
 
     public void findAllCallOperator(Message<JsonObject> message) {
         Promises.from(message.body())
             .then(entries -> {
+                final String url = upstreamClients.defaultBaseUrl() + CALL_OPERATOR_LIST_URI;
+                final JsonArray cached = responseCache.get(CALL_OPERATOR_LIST_URI, url);
+                if (cached != null) {
+                    message.reply(cached);
+                    return;
+                }
                 System.out.println("GET: //");
-                httpClient.get("/Call/callOperatorList",
+                upstreamClients.get(url,
                     res -> res.bodyHandler(b -> {
                         try {
-                            message.reply(new JsonArray(b.toString()));
+                            final JsonArray reply = new JsonArray(b.toString());
+                            responseCache.put(CALL_OPERATOR_LIST_URI, url, reply);
+                            message.reply(reply);
                         } catch (Exception ex) {
-                            ExceptionUtil.fail(message, ex);
+                            responseCache.replyStaleOrFail(url, message, ex);
                         }
-                    }).exceptionHandler(e -> ExceptionUtil.fail(message, e)))
-                    .sendHead()
-                    .putHeader(gv.X_Requested_With, Services.CALL_CENTER_JAVA)
-//                .putHeader("Host", MyApp.loadConfig().getString(MainVerticle.PROP_CALL_REVIEW_HOST) + ":" + MyApp.loadConfig().getInteger(MainVerticle.PROP_CALL_REVIEW_PORT))
-//                .putHeader("Referer", "http://" + MyApp.loadConfig().getString(MainVerticle.PROP_CALL_REVIEW_HOST) + ":" + MyApp.loadConfig().getInteger(MainVerticle.PROP_CALL_REVIEW_PORT))
-                    .exceptionHandler(e -> ExceptionUtil.fail(message, e))
-                    .end();
+                    }).exceptionHandler(e -> responseCache.replyStaleOrFail(url, message, e)),
+                    e -> responseCache.replyStaleOrFail(url, message, e));
             })
             .error(e -> ExceptionUtil.fail(message, e));
     }
 
+    /**
+     * Locks the contact for the operator, body: {SMS_ID, CALL_OPERATOR, CAMPAIGN_ID, DISTRIBUTION_HOUSE_ID}.
+     * Replies {status: "success", SMS_ID, FENCING_TOKEN} or {status: "locked", SMS_ID, LOCKED_BY} when someone
+     * else holds it. The fencing token is only ever sent to the requester.
+     */
     public void lockContactId(Message<JsonObject> message) {
         JsonObject jo = message.body();
-        System.out.println("LOCK: " + jo.encode());
+        LOGGER.debug("LOCK: " + jo.encode());
 
         final Long sms_id = jo.getLong(SMS_ID);
-        final Long call_operator = jo.getLong(CALL_OPERATOR);
+        lockContact(sms_id, jo.getLong(CALL_OPERATOR),
+            MyEvents.partition(jo.getValue(CAMPAIGN_ID), jo.getValue(DISTRIBUTION_HOUSE_ID)))
+            .then(lease -> message.reply(lease.isAcquired()
+                ? new JsonObject().put("status", "success").put(SMS_ID, sms_id).put("FENCING_TOKEN", lease.getFencingToken())
+                : new JsonObject().put("status", "locked").put(SMS_ID, sms_id).put("LOCKED_BY", lease.getOperator())))
+            .error(e -> {
+                LOGGER.error("Error locking contact " + sms_id, e);
+                ExceptionUtil.fail(message, e);
+            });
+    }
 
-        LocalMap<Object, Object> localMap = vertx.sharedData().getLocalMap(LOCKED_SMS_IDS);
+    /**
+     * Locks the contact for the operator unless another operator holds it, releasing the operator's previous lock.
+     *
+     * @return the lease, not acquired if the contact is locked by someone else.
+     */
+    private Promise<ContactLockBackend.Lease> lockContact(Long sms_id, Long call_operator, String partition) {
+        lockMetrics.attempt(partition);
+
+        final Long localOwner = contactLockManager.lockedBy(sms_id);
+        if (localOwner != null && !localOwner.equals(call_operator)) {
+            alreadyLocked(sms_id, localOwner, partition);
+            return Promises.from(new ContactLockBackend.Lease(false, localOwner, null));
+        }
 
-        Object callOpOld = localMap.get(sms_id);
+        final long leaseMillis = leaseMillis();
 
-        if (callOpOld != null) {
-            vertx.eventBus().publish(MyEvents.ALREADY_LOCKED,
-                new JsonObject()
-                    .put("SMS_ID", sms_id)
-                    .put("LOCKED_BY", callOpOld));
-            System.out.println("ALREADY_LOCKED: " + sms_id + " By " + callOpOld);
-            return;
-        }
+        return contactLockBackend.acquire(sms_id, call_operator, leaseMillis)
+            .map(lease -> {
+                if (!lease.isAcquired()) {
+                    alreadyLocked(sms_id, lease.getOperator(), partition);
+                    return lease;
+                }
 
-        localMap.keySet().stream()
-            .filter(k -> localMap.get(k).equals(call_operator))
-            .forEach(k -> {
-                vertx.eventBus().publish(MyEvents.UN_LOCK_CONTACT_ID,
-                    new JsonObject()
-                        .put(SMS_ID, k)
-                        .put(CALL_OPERATOR, call_operator));
-            });
+                final ContactLockManager.LockResult result = contactLockManager.lock(sms_id, call_operator);
 
-        System.out.println("LOCKING: " + sms_id + " By " + call_operator);
-        localMap.putIfAbsent(sms_id, call_operator);
+                if (!result.isAcquired()) {
+                    contactLockBackend.release(sms_id, call_operator);
+                    alreadyLocked(sms_id, result.getOwner(), partition);
+                    return new ContactLockBackend.Lease(false, result.getOwner(), null);
+                }
 
+                if (result.getReleased() != null) {
+                    lockExpiry.cancel(result.getReleased());
+                    contactLockBackend.release(result.getReleased(), call_operator);
+                    lockStateBroadcaster.unlocked(result.getReleased(), call_operator);
+                    contactLockJournal.unlocked(result.getReleased());
+                    lockMetrics.replaced(result.getReleased());
+                    contactAssignmentQueue.released(result.getReleased());
+                }
 
-        long timer = vertx.setTimer(MyApp.loadConfig().getInteger(DEFAULT_SMS_ID_LOCK_TIME_OUT) * 60 * 1000,
-            e -> {
+                LOGGER.debug("LOCKING: " + sms_id + " By " + call_operator);
 
-                localMap.remove(sms_id);
+                lockExpiry.schedule(sms_id, leaseMillis);
+                contactLockJournal.locked(sms_id, call_operator, lease.getFencingToken(),
+                    System.currentTimeMillis() + leaseMillis, partition);
+                lockMetrics.acquired(sms_id, partition);
 
-                vertx.eventBus().publish(MyEvents.UN_LOCK_CONTACT_ID,
-                    new JsonObject().put(SMS_ID, sms_id).put(CALL_OPERATOR, call_operator));
+                lockStateBroadcaster.locked(sms_id, call_operator, partition);
 
-                System.out.println("LOCK TIMED OUT: " + sms_id);
+                contactPrefetcher.onLock(sms_id, call_operator, this::lockedBy);
+                return lease;
+            });
+    }
 
+    /**
+     * Assigns the next pending contact of the operator's search (CAMPAIGN_ID, areaId, distributionHouseId,
+     * recallMode and work date range) and locks it for the operator, so operators taking their work from here
+     * never compete for a contact. Replies {status: "success", SMS_ID, FENCING_TOKEN, contact} or
+     * {status: "empty"} when the search has no pending contact left.
+     */
+    public void nextContact(Message<JsonObject> message) {
+        final JsonObject criteria = message.body();
+        final Long operator = criteria.getLong(CRITERIA_CALL_OPERATOR);
+        final String partition = MyEvents.partition(criteria.getValue(CAMPAIGN_ID), criteria.getValue(gv.distributionHouseId));
+        final String key = criteria.getString("baseUrl")
+            + "|" + criteria.getValue(CAMPAIGN_ID)
+            + "|" + criteria.getValue(gv.areaId)
+            + "|" + criteria.getValue(gv.distributionHouseId)
+            + "|" + criteria.getValue(gv.recallMode)
+            + "|" + criteria.getValue(gv.workDateFrom)
+            + "|" + criteria.getValue(gv.workDateTo);
+        assignNext(message, key, criteria, operator, partition, assignmentConfig().getInteger("maxAttempts", 5));
+    }
+
+    private void assignNext(Message<JsonObject> message, String key, JsonObject criteria, Long operator,
+                            String partition, int attempts) {
+        contactAssignmentQueue.next(key, criteria, this::lockedBy,
+            contact -> {
+                if (contact == null) {
+                    message.reply(new JsonObject().put("status", "empty"));
+                    return;
+                }
+                lockContact(contact.getSmsId(), operator, partition)
+                    .then(lease -> {
+                        if (lease.isAcquired()) {
+                            message.reply(new JsonObject()
+                                .put("status", "success")
+                                .put(SMS_ID, contact.getSmsId())
+                                .put("FENCING_TOKEN", lease.getFencingToken())
+                                .put("contact", contact.getRow()));
+                            return;
+                        }
+                        contactAssignmentQueue.remove(contact.getSmsId());
+                        if (attempts > 1) {
+                            assignNext(message, key, criteria, operator, partition, attempts - 1);
+                        } else {
+                            message.reply(new JsonObject().put("status", "empty"));
+                        }
+                    })
+                    .error(e -> {
+                        contactAssignmentQueue.released(contact.getSmsId());
+                        ExceptionUtil.fail(message, e);
+                    });
+            },
+            e -> ExceptionUtil.fail(message, e));
+    }
+
+    /**
+     * Loads the pending contacts of a search for the {@link ContactAssignmentQueue}: the BR work days from step 1,
+     * then the contacts of each work day from step 2, at most CONTACT_ASSIGNMENT.concurrency work days at a time.
+     * Contacts never called and contacts whose last call status is one of CONTACT_ASSIGNMENT.recallStatuses are
+     * pending, the latter are due for a recall.
+     */
+    private void loadPendingContacts(JsonObject criteria, Handler<List<ContactAssignmentQueue.Contact>> onSuccess,
+                                     Handler<Throwable> onError) {
+        final String baseUrl = criteria.getString("baseUrl");
+        criteria.remove("baseUrl");
+        criteria.put("DATASOURCE", MyApp.loadConfig().getLong("DATASOURCE"));
+        final JsonArray recallStatuses = assignmentConfig().getJsonArray("recallStatuses", new JsonArray());
+
+        getJson(baseUrl + CALL_SEARCH_LOAD_DATA_URI + queryString(criteria), js -> {
+            final JsonArray workDays = js.getJsonArray("data", new JsonArray());
+            final List<ContactAssignmentQueue.Contact> contacts = new ArrayList<>();
+            if (workDays.isEmpty()) {
+                onSuccess.handle(contacts);
+                return;
+            }
+
+            final int[] nextIndex = new int[1];
+            final int[] remaining = {workDays.size()};
+            final boolean[] failed = new boolean[1];
+
+            final AtomicReference<Handler<Void>> next = new AtomicReference<>();
+            next.set(v -> {
+                if (nextIndex[0] >= workDays.size() || failed[0]) {
+                    return;
+                }
+                final JsonObject workDay = workDays.getJsonObject(nextIndex[0]++);
+                final LocalDate date = toReportDate(workDay.getValue("date"));
+                final long day = date == null ? Long.MAX_VALUE : date.toEpochDay();
+                final Long success = toLong(workDay.getValue("success"));
+                final JsonObject workDayCriteria = new JsonObject()
+                    .put(gv.areaId, workDay.getValue("area_id"))
+                    .put(gv.distributionHouseId, workDay.getValue("house_id"))
+                    .put(gv.brId, workDay.getValue("br_id"))
+                    .put("workDate", workDay.getValue("date"))
+                    .put("ptr", "").put("swp", "").put("refreshment", "").put("giveAway", "")
+                    .put("packsell", "").put("showTools", "").put("showVideo", "")
+                    .put("recallMode", Util.or(criteria.getValue("recallMode"), ""));
+
+                getJson(baseUrl + CALL_SEARCH_STEP_2_URI + queryString_2(workDayCriteria),
+                    result -> {
+                        final JsonArray rows = "success".equals(result.getString("status"))
+                            ? result.getJsonArray("data", new JsonArray()) : new JsonArray();
+                        for (int i = 0; i < rows.size(); i++) {
+                            final JsonObject row = rows.getJsonObject(i);
+                            final Long status = toLong(row.getValue("c.CALL_STATUS_ID"));
+                            final boolean fresh = status == null || status == 0;
+                            if (fresh || recallStatuses.contains(status.intValue())) {
+                                contacts.add(new ContactAssignmentQueue.Contact(row.getLong("SMS_ID"), fresh ? 1 : 0,
+                                    day, success == null ? 0 : success, row.put("s.BR_ID", workDay.getValue("br_id"))));
+                            }
+                        }
+                        if (--remaining[0] == 0) {
+                            onSuccess.handle(contacts);
+                        } else {
+                            next.get().handle(null);
+                        }
+                    },
+                    e -> {
+                        if (!failed[0]) {
+                            failed[0] = true;
+                            onError.handle(e);
+                        }
+                    });
             });
 
-        vertx.sharedData().getLocalMap(LOCK_CANCELER_TIMER).put(sms_id, timer);
+            final int concurrency = assignmentConfig().getInteger("concurrency", 4);
+            for (int i = 0; i < concurrency && nextIndex[0] < workDays.size(); i++) {
+                next.get().handle(null);
+            }
+        }, onError);
+    }
+
+    private static JsonObject assignmentConfig() {
+        return MyApp.loadConfig().getJsonObject(ContactAssignmentQueue.CONTACT_ASSIGNMENT, new JsonObject());
+    }
+
+    public JsonObject assignmentStats() {
+        return contactAssignmentQueue.stats();
+    }
+
+    /**
+     * Locks are short leases kept alive by the browser holding them through LOCK_HEARTBEAT, a lock whose
+     * heartbeats stop is released after at most one lease.
+     */
+    private static long leaseMillis() {
+        return MyApp.loadConfig().getLong(CONTACT_LOCK_LEASE_SECONDS, 30L) * 1000;
+    }
+
+    private void alreadyLocked(Long sms_id, Long owner, String partition) {
+        lockStateBroadcaster.conflict(sms_id, owner, partition);
+        lockMetrics.conflict(partition);
+        LOGGER.debug("ALREADY_LOCKED: " + sms_id + " By " + owner);
     }
 
     public void unLockContactId(Message<JsonObject> message) {
@@ -361,16 +902,121 @@ public class ConsumerContactService {
         final Long sms_id = message.body().getLong(SMS_ID);
         final Long operator = message.body().getLong(CALL_OPERATOR);
 
-        LocalMap<Object, Object> localMap = vertx.sharedData().getLocalMap(LOCKED_SMS_IDS);
-        boolean present = localMap.removeIfPresent(sms_id, operator);
+        boolean present = contactLockManager.unlock(sms_id, operator);
+        contactLockBackend.release(sms_id, operator);
 
         if (!present) {
-            System.out.println("Not Present: " + sms_id + " BY " + operator + " Original By " + localMap.get(sms_id));
+            LOGGER.debug("Not Present: " + sms_id + " BY " + operator + " Original By " + contactLockManager.lockedBy(sms_id));
             return;
         }
 
-        vertx.cancelTimer((Long) vertx.sharedData().getLocalMap(LOCK_CANCELER_TIMER).get(sms_id));
+        lockExpiry.cancel(sms_id);
+        lockStateBroadcaster.unlocked(sms_id, operator);
+        contactLockJournal.unlocked(sms_id);
+        lockMetrics.unlocked(sms_id);
+        contactAssignmentQueue.released(sms_id);
+
+        LOGGER.debug("UNLOCKED: " + sms_id);
+    }
+
+    /**
+     * Queues the renewal of the leases the operator holds, body: {CALL_OPERATOR, SMS_IDS: [...]}.
+     */
+    public void lockHeartbeat(Message<JsonObject> message) {
+        final Long operator = message.body().getLong(CALL_OPERATOR);
+        final JsonArray smsIds = message.body().getJsonArray(SMS_IDS);
+        if (operator == null || smsIds == null) {
+            return;
+        }
+        final List<Long> ids = new ArrayList<>(smsIds.size());
+        smsIds.forEach(id -> {
+            final Long sms_id = toLong(id);
+            if (sms_id != null) {
+                ids.add(sms_id);
+            }
+        });
+        lockHeartbeats.heartbeat(operator, ids);
+    }
+
+    /**
+     * Extends the leases of one heartbeat batch. Contacts the operator no longer holds are skipped, the browser
+     * already got their unlock. Renewals keep the fencing token, a lease the backend refuses to extend is
+     * released locally.
+     */
+    private void renewLeases(Map<Long, Set<Long>> smsIdsByOperator) {
+        final long leaseMillis = leaseMillis();
+        smsIdsByOperator.forEach((operator, smsIds) -> smsIds.forEach(sms_id -> {
+            if (!operator.equals(contactLockManager.lockedBy(sms_id))) {
+                return;
+            }
+            lockExpiry.schedule(sms_id, leaseMillis);
+            contactLockJournal.renewed(sms_id, System.currentTimeMillis() + leaseMillis);
+            contactLockBackend.renew(sms_id, operator, leaseMillis)
+                .then(lease -> {
+                    if (!lease.isAcquired() && releaseLock(sms_id, operator)) {
+                        lockMetrics.leaseLost(sms_id);
+                        LOGGER.warn("Lease of contact " + sms_id + " lost by " + operator + " to " + lease.getOperator());
+                    }
+                })
+                .error(e -> LOGGER.error("Error renewing lease on contact " + sms_id, e));
+        }));
+    }
+
+    /**
+     * Releases the operator's lock everywhere it is kept.
+     *
+     * @return false if the contact was not locked by the operator.
+     */
+    private boolean releaseLock(Long sms_id, Long operator) {
+        if (!contactLockManager.unlock(sms_id, operator)) {
+            return false;
+        }
+        lockExpiry.cancel(sms_id);
+        contactLockBackend.release(sms_id, operator);
+        lockStateBroadcaster.unlocked(sms_id, operator);
+        contactLockJournal.unlocked(sms_id);
+        contactAssignmentQueue.released(sms_id);
+        return true;
+    }
+
+    /**
+     * Releases the locks that timed out on one tick of the lock expiry wheel.
+     */
+    private void locksExpired(List<Long> smsIds) {
+        final int[] expired = new int[1];
+        smsIds.forEach(sms_id -> {
+            final Long operator = contactLockManager.lockedBy(sms_id);
+            if (operator != null && releaseLock(sms_id, operator)) {
+                lockMetrics.expired(sms_id);
+                expired[0]++;
+            }
+        });
+        if (expired[0] > 0) {
+            LOGGER.debug("Contact locks timed out: " + expired[0]);
+        }
+    }
+
+    public void lockStateSnapshot(Message<JsonObject> message) {
+        lockStateBroadcaster.snapshot(message);
+    }
+
+    public JsonObject lockStats() {
+        return contactLockManager.stats()
+            .put("expiry", lockExpiry.stats())
+            .put("broadcast", lockStateBroadcaster.stats())
+            .put("journal", contactLockJournal.stats())
+            .put("heartbeats", lockHeartbeats.stats());
+    }
+
+    public JsonObject lockMetrics() {
+        return lockMetrics.stats();
+    }
 
-        System.out.println("UNLOCKED: " + sms_id);
+    public void close() {
+        inFlightRequests.close();
+        lockExpiry.close();
+        lockStateBroadcaster.close();
+        lockHeartbeats.close();
+        contactLockJournal.close();
     }
 }
@@ -0,0 +1,250 @@
+package com.imslbd.call_center.service;
+
+import io.vertx.core.Handler;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.Function;
+
+/**
+ * Hands out the pending contacts of a search (campaign, area, distribution house and recall mode) to operators
+ * one at a time instead of letting them race for the same rows of the step 2 lists. The pending contacts of a
+ * search are loaded once through the {@link Loader} and reloaded after refreshSeconds; they are served from a
+ * priority queue ordered by recall rank (contacts due for a recall first), work date (oldest first) and the
+ * success count of the BR's work day (fewest first). A contact handed out is assigned until its call is created,
+ * and goes back into the queue if its lock is released or expires without a call.
+ * <p>
+ * Created by someone on 18/10/2026.
+ */
+public class ContactAssignmentQueue {
+    public static final String CONTACT_ASSIGNMENT = "CONTACT_ASSIGNMENT";
+    private static final String REFRESH_SECONDS = "refreshSeconds";
+    private static final Comparator<Contact> PRIORITY = Comparator
+        .comparingInt((Contact c) -> c.recallRank)
+        .thenComparingLong(c -> c.workDay)
+        .thenComparingLong(c -> c.success)
+        .thenComparingLong(c -> c.smsId);
+
+    private final Loader loader;
+    private final long refreshMillis;
+    private final Map<String, WorkQueue> queues = new HashMap<>();
+    private final Map<Long, Contact> assigned = new HashMap<>();
+    private long loads;
+    private long handedOut;
+    private long skippedLocked;
+    private long requeued;
+    private long completed;
+
+    public ContactAssignmentQueue(Loader loader, JsonObject config) {
+        final JsonObject cfg = config == null ? new JsonObject() : config;
+        this.loader = loader;
+        this.refreshMillis = cfg.getLong(REFRESH_SECONDS, 300L) * 1000;
+    }
+
+    /**
+     * Takes the highest priority contact of the search that nobody holds a lock on and marks it assigned.
+     * The first request of a search waits for it to be loaded, later ones are served from the queue while it
+     * is reloaded in the background every refreshSeconds.
+     *
+     * @param onContact gets the contact or null if the search has no pending contact left.
+     */
+    public void next(String key, JsonObject criteria, Function<Long, Object> lockOwner,
+                     Handler<Contact> onContact, Handler<Throwable> onError) {
+        final WorkQueue queue;
+        final boolean load;
+        final boolean loaded;
+        Contact contact = null;
+        synchronized (this) {
+            queue = queues.computeIfAbsent(key, WorkQueue::new);
+            loaded = queue.loadedAt >= 0;
+            load = !queue.loading && (!loaded || System.currentTimeMillis() - queue.loadedAt >= refreshMillis);
+            queue.loading = queue.loading || load;
+            if (loaded) {
+                contact = poll(queue, lockOwner);
+            } else {
+                queue.waiters.add(new Waiter(lockOwner, onContact, onError));
+            }
+        }
+        if (load) {
+            load(queue, criteria.copy());
+        }
+        if (loaded) {
+            onContact.handle(contact);
+        }
+    }
+
+    private void load(WorkQueue queue, JsonObject criteria) {
+        try {
+            loader.load(criteria,
+                contacts -> loaded(queue, contacts),
+                e -> failed(queue, e));
+        } catch (Exception e) {
+            failed(queue, e);
+        }
+    }
+
+    private void loaded(WorkQueue queue, List<Contact> contacts) {
+        final List<Waiter> waiters;
+        final List<Contact> served = new ArrayList<>();
+        synchronized (this) {
+            loads++;
+            queue.queue.clear();
+            queue.members.clear();
+            contacts.forEach(contact -> {
+                if (!assigned.containsKey(contact.smsId) && !queue.members.containsKey(contact.smsId)) {
+                    contact.key = queue.key;
+                    queue.members.put(contact.smsId, contact);
+                    queue.queue.add(contact);
+                }
+            });
+            queue.loadedAt = System.currentTimeMillis();
+            queue.loading = false;
+            waiters = new ArrayList<>(queue.waiters);
+            queue.waiters.clear();
+            waiters.forEach(waiter -> served.add(poll(queue, waiter.lockOwner)));
+        }
+        for (int i = 0; i < waiters.size(); i++) {
+            waiters.get(i).onContact.handle(served.get(i));
+        }
+    }
+
+    /**
+     * Ends a failed load and fails the requests waiting for it, the next request of the search loads it again.
+     */
+    private void failed(WorkQueue queue, Throwable e) {
+        final List<Waiter> waiters;
+        synchronized (this) {
+            queue.loading = false;
+            waiters = new ArrayList<>(queue.waiters);
+            queue.waiters.clear();
+        }
+        waiters.forEach(waiter -> waiter.onError.handle(e));
+    }
+
+    private Contact poll(WorkQueue queue, Function<Long, Object> lockOwner) {
+        Contact contact;
+        while ((contact = queue.queue.poll()) != null) {
+            if (queue.members.remove(contact.smsId) == null) {
+                continue;
+            }
+            if (lockOwner.apply(contact.smsId) != null) {
+                skippedLocked++;
+                continue;
+            }
+            assigned.put(contact.smsId, contact);
+            handedOut++;
+            return contact;
+        }
+        return null;
+    }
+
+    /**
+     * Puts an assigned contact back into its queue, its lock ended without a call.
+     */
+    public synchronized void released(Long smsId) {
+        final Contact contact = assigned.remove(smsId);
+        if (contact == null) {
+            return;
+        }
+        final WorkQueue queue = queues.get(contact.key);
+        if (queue != null && !queue.members.containsKey(smsId)) {
+            queue.members.put(smsId, contact);
+            queue.queue.add(contact);
+            requeued++;
+        }
+    }
+
+    /**
+     * Drops the contact from assignment and from every queue, its call was created or it could not be locked.
+     */
+    public synchronized void remove(Long smsId) {
+        if (assigned.remove(smsId) != null) {
+            completed++;
+        }
+        queues.values().forEach(queue -> queue.members.remove(smsId));
+    }
+
+    public synchronized JsonObject stats() {
+        final JsonArray searches = new JsonArray();
+        queues.values().forEach(queue -> searches.add(new JsonObject()
+            .put("key", queue.key)
+            .put("pending", queue.members.size())
+            .put("loadedAt", queue.loadedAt)));
+        return new JsonObject()
+            .put("assigned", assigned.size())
+            .put("loads", loads)
+            .put("handedOut", handedOut)
+            .put("skippedLocked", skippedLocked)
+            .put("requeued", requeued)
+            .put("completed", completed)
+            .put("searches", searches);
+    }
+
+    /**
+     * Loads the pending contacts of a search.
+     */
+    public interface Loader {
+        void load(JsonObject criteria, Handler<List<Contact>> onSuccess, Handler<Throwable> onError);
+    }
+
+    public static final class Contact {
+        private String key;
+        private final Long smsId;
+        private final int recallRank;
+        private final long workDay;
+        private final long success;
+        private final JsonObject row;
+
+        /**
+         * @param recallRank 0 for contacts due for a recall, 1 for contacts never called.
+         * @param workDay    epoch day of the BR's work date, lower is served first.
+         * @param success    success count of the BR's work day, lower is served first.
+         */
+        public Contact(Long smsId, int recallRank, long workDay, long success, JsonObject row) {
+            this.smsId = smsId;
+            this.recallRank = recallRank;
+            this.workDay = workDay;
+            this.success = success;
+            this.row = row;
+        }
+
+        public Long getSmsId() {
+            return smsId;
+        }
+
+        public JsonObject getRow() {
+            return row;
+        }
+    }
+
+    private static final class WorkQueue {
+        private final String key;
+        private final PriorityQueue<Contact> queue = new PriorityQueue<>(PRIORITY);
+        private final Map<Long, Contact> members = new HashMap<>();
+        private final List<Waiter> waiters = new ArrayList<>();
+        private long loadedAt = -1;
+        private boolean loading;
+
+        private WorkQueue(String key) {
+            this.key = key;
+        }
+    }
+
+    private static final class Waiter {
+        private final Function<Long, Object> lockOwner;
+        private final Handler<Contact> onContact;
+        private final Handler<Throwable> onError;
+
+        private Waiter(Function<Long, Object> lockOwner, Handler<Contact> onContact, Handler<Throwable> onError) {
+            this.lockOwner = lockOwner;
+            this.onContact = onContact;
+            this.onError = onError;
+        }
+    }
+}
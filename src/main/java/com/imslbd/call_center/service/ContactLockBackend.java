@@ -0,0 +1,98 @@
+package com.imslbd.call_center.service;
+
+import io.crm.promise.intfs.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.jdbc.JDBCClient;
+
+/**
+ * Authority on which operator holds the lease on a contact across all call center nodes. Every granted lease
+ * carries a fencing token that only ever increases; a call can only be created with the token of the lease
+ * that is still current. The node local view used for LOCKED_BY annotation stays in {@link ContactLockManager}.
+ * The implementation is chosen by CONTACT_LOCK.backend in config.json: "local" (single node, default),
+ * "clustered" (vert.x cluster wide map) or "mysql" (lease table with compare and set updates).
+ * <p>
+ * Created by someone on 18/10/2026.
+ */
+public interface ContactLockBackend {
+    String CONTACT_LOCK = "CONTACT_LOCK";
+    String BACKEND = "backend";
+    String CLUSTERED = "clustered";
+
+    /**
+     * Grants the lease on the contact if it is free, expired or already held by the operator. A lease the
+     * operator already holds keeps its fencing token and is extended.
+     */
+    Promise<Lease> acquire(Long smsId, Long operator, long leaseMillis);
+
+    /**
+     * Extends the lease on the contact if the operator holds it unexpired, keeping its fencing token. Never
+     * grants a lease, an expired lease has to be acquired again.
+     *
+     * @return the extended lease, or a lease not acquired with the operator now holding the contact, null if none.
+     */
+    Promise<Lease> renew(Long smsId, Long operator, long leaseMillis);
+
+    /**
+     * Releases the lease on the contact if it is held by the operator.
+     */
+    Promise<Void> release(Long smsId, Long operator);
+
+    /**
+     * @return true if the operator holds an unexpired lease on the contact with the fencing token.
+     */
+    Promise<Boolean> validate(Long smsId, Long operator, Long fencingToken);
+
+    /**
+     * Puts back a lease recovered from the {@link ContactLockJournal} after a restart. Backends whose leases
+     * outlive the process keep them on their own and ignore it.
+     */
+    default void restore(Long smsId, Long operator, Long fencingToken, long expiresAt) {
+    }
+
+    /**
+     * Makes sure fencing tokens granted from now on are greater than the token, which was granted before a
+     * restart.
+     */
+    default void advanceFencingToken(long fencingToken) {
+    }
+
+    static ContactLockBackend create(Vertx vertx, JDBCClient jdbcClient, JsonObject config) {
+        final JsonObject cfg = config == null ? new JsonObject() : config;
+        switch (cfg.getString(BACKEND, "local")) {
+            case CLUSTERED:
+                return new ClusteredContactLockBackend(vertx);
+            case "mysql":
+                return new MySqlContactLockBackend(jdbcClient, cfg);
+            default:
+                return new LocalContactLockBackend();
+        }
+    }
+
+    final class Lease {
+        private final boolean acquired;
+        private final Long operator;
+        private final Long fencingToken;
+
+        public Lease(boolean acquired, Long operator, Long fencingToken) {
+            this.acquired = acquired;
+            this.operator = operator;
+            this.fencingToken = fencingToken;
+        }
+
+        public boolean isAcquired() {
+            return acquired;
+        }
+
+        /**
+         * @return the operator holding the lease.
+         */
+        public Long getOperator() {
+            return operator;
+        }
+
+        public Long getFencingToken() {
+            return fencingToken;
+        }
+    }
+}
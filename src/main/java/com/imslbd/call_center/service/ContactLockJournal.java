@@ -0,0 +1,375 @@
+package com.imslbd.call_center.service;
+
+import com.imslbd.call_center.MyEvents;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Append only journal of contact lock and unlock records in a memory mapped file, so the locks held when the
+ * process stops are known again on the next start. Records have a fixed size and their type byte is written
+ * last, a record torn by a crash reads as the end of the journal. A periodic task compacts the file down to the
+ * live locks once it is mostly unlock and superseded records, and grows the mapping when it fills up.
+ * <p>
+ * The header keeps the highest fencing token ever journaled so tokens keep increasing across restarts even
+ * after the records that carried them were compacted away.
+ * <p>
+ * Created by someone on 18/10/2026.
+ */
+public class ContactLockJournal {
+    public static final Logger LOGGER = LoggerFactory.getLogger(ContactLockJournal.class);
+    public static final String CONTACT_LOCK_JOURNAL = "CONTACT_LOCK_JOURNAL";
+    private static final String ENABLED = "enabled";
+    private static final String PATH = "path";
+    private static final String INITIAL_SIZE_BYTES = "initialSizeBytes";
+    private static final String COMPACT_SECONDS = "compactSeconds";
+
+    private static final int MAGIC = 0x434C4A31;
+    private static final int HEADER_SIZE = 16;
+    private static final int MAX_TOKEN_OFFSET = 8;
+    private static final int RECORD_SIZE = 1 + 6 * 8;
+    private static final byte LOCK = 1;
+    private static final byte UNLOCK = 2;
+    private static final long NONE = -1;
+
+    private final Vertx vertx;
+    private final boolean enabled;
+    private final File file;
+    private final int initialSize;
+    private final Map<Long, Entry> live = new LinkedHashMap<>();
+    private final long timer;
+    private MappedByteBuffer buffer;
+    private long maxFencingToken;
+    private int records;
+    private long appends;
+    private long compactions;
+    private long recovered;
+    private long recoveryMillis;
+
+    public ContactLockJournal(Vertx vertx, JsonObject config) {
+        final JsonObject cfg = config == null ? new JsonObject() : config;
+        this.vertx = vertx;
+        this.enabled = cfg.getBoolean(ENABLED, false);
+        this.file = new File(cfg.getString(PATH, "contact-locks.journal"));
+        this.initialSize = cfg.getInteger(INITIAL_SIZE_BYTES, 4 * 1024 * 1024);
+        this.timer = enabled
+            ? vertx.setPeriodic(cfg.getLong(COMPACT_SECONDS, 60L) * 1000, id -> maintain())
+            : -1;
+    }
+
+    /**
+     * Maps the journal and reads it back.
+     *
+     * @return the locks whose lease had not expired yet, in journal order.
+     */
+    public synchronized List<Entry> replay() {
+        if (!enabled) {
+            return new ArrayList<>();
+        }
+        final long start = System.currentTimeMillis();
+        try {
+            map(Math.max(file.length(), initialSize));
+            if (buffer.getInt(0) != MAGIC) {
+                if (file.length() > 0 && buffer.getInt(0) != 0) {
+                    LOGGER.warn("Ignoring unreadable contact lock journal " + file);
+                }
+                buffer.putInt(0, MAGIC);
+                buffer.putLong(MAX_TOKEN_OFFSET, 0);
+                zero(HEADER_SIZE);
+                buffer.position(HEADER_SIZE);
+                return new ArrayList<>();
+            }
+            maxFencingToken = buffer.getLong(MAX_TOKEN_OFFSET);
+            int position = HEADER_SIZE;
+            while (position + RECORD_SIZE <= buffer.capacity()) {
+                final byte type = buffer.get(position);
+                if (type == LOCK) {
+                    final Entry entry = read(position + 1);
+                    live.put(entry.smsId, entry);
+                } else if (type == UNLOCK) {
+                    live.remove(buffer.getLong(position + 1));
+                } else {
+                    break;
+                }
+                records++;
+                position += RECORD_SIZE;
+            }
+            buffer.position(position);
+
+            final long now = System.currentTimeMillis();
+            live.values().removeIf(entry -> entry.expiresAt <= now);
+            recovered = live.size();
+            return new ArrayList<>(live.values());
+        } catch (IOException ex) {
+            LOGGER.error("Error replaying contact lock journal " + file, ex);
+            return new ArrayList<>();
+        } finally {
+            recoveryMillis = System.currentTimeMillis() - start;
+        }
+    }
+
+    public synchronized void locked(Long smsId, Long operator, Long fencingToken, long expiresAt, String partition) {
+        if (!enabled || buffer == null) {
+            return;
+        }
+        final Entry entry = new Entry(smsId, operator, fencingToken, expiresAt, partition);
+        live.put(smsId, entry);
+        if (fencingToken != null && fencingToken > maxFencingToken) {
+            maxFencingToken = fencingToken;
+            buffer.putLong(MAX_TOKEN_OFFSET, maxFencingToken);
+        }
+        append(LOCK, entry);
+    }
+
+    public synchronized void unlocked(Long smsId) {
+        if (!enabled || buffer == null || live.remove(smsId) == null) {
+            return;
+        }
+        append(UNLOCK, new Entry(smsId, null, null, 0, null));
+    }
+
+    /**
+     * Journals the lease of a live lock as extended to expiresAt.
+     */
+    public synchronized void renewed(Long smsId, long expiresAt) {
+        final Entry current;
+        if (!enabled || buffer == null || (current = live.get(smsId)) == null) {
+            return;
+        }
+        final Entry entry = new Entry(current.smsId, current.operator, current.fencingToken, expiresAt,
+            current.campaignId, current.distributionHouseId);
+        live.put(smsId, entry);
+        append(LOCK, entry);
+    }
+
+    /**
+     * @return the highest fencing token ever journaled.
+     */
+    public synchronized long getMaxFencingToken() {
+        return maxFencingToken;
+    }
+
+    private void append(byte type, Entry entry) {
+        if (buffer.remaining() < RECORD_SIZE && !makeRoom()) {
+            return;
+        }
+        final int position = buffer.position();
+        buffer.putLong(position + 1, entry.smsId);
+        buffer.putLong(position + 9, orNone(entry.operator));
+        buffer.putLong(position + 17, orNone(entry.fencingToken));
+        buffer.putLong(position + 25, entry.expiresAt);
+        buffer.putLong(position + 33, orNone(entry.campaignId));
+        buffer.putLong(position + 41, orNone(entry.distributionHouseId));
+        buffer.put(position, type);
+        buffer.position(position + RECORD_SIZE);
+        records++;
+        appends++;
+    }
+
+    /**
+     * Compacts the journal and grows the mapping if the live locks alone do not leave room for more records.
+     */
+    private boolean makeRoom() {
+        try {
+            final long needed = HEADER_SIZE + (long) (live.size() + 1) * RECORD_SIZE * 2;
+            compact(Math.max(buffer.capacity() * (needed > buffer.capacity() ? 2L : 1L), needed));
+            return true;
+        } catch (IOException ex) {
+            LOGGER.error("Error compacting contact lock journal " + file + ", lock records are not journaled", ex);
+            return false;
+        }
+    }
+
+    private synchronized void maintain() {
+        if (buffer == null) {
+            return;
+        }
+        try {
+            if (records > 2 * live.size() + 1024) {
+                compact(buffer.capacity());
+            } else {
+                buffer.force();
+            }
+        } catch (IOException ex) {
+            LOGGER.error("Error compacting contact lock journal " + file, ex);
+        }
+    }
+
+    /**
+     * Writes the live locks to a new file, moves it over the journal and maps it.
+     */
+    private void compact(long size) throws IOException {
+        final long now = System.currentTimeMillis();
+        live.values().removeIf(entry -> entry.expiresAt <= now);
+
+        final Path compacted = new File(file.getPath() + ".compact").toPath();
+        try (FileChannel out = FileChannel.open(compacted,
+            StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            final ByteBuffer bytes = ByteBuffer.allocate(HEADER_SIZE + live.size() * RECORD_SIZE);
+            bytes.putInt(MAGIC).putInt(0).putLong(maxFencingToken);
+            live.values().forEach(entry -> bytes
+                .put(LOCK)
+                .putLong(entry.smsId)
+                .putLong(orNone(entry.operator))
+                .putLong(orNone(entry.fencingToken))
+                .putLong(entry.expiresAt)
+                .putLong(orNone(entry.campaignId))
+                .putLong(orNone(entry.distributionHouseId)));
+            bytes.flip();
+            while (bytes.hasRemaining()) {
+                out.write(bytes);
+            }
+            out.force(true);
+        }
+        Files.move(compacted, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        map(size);
+        buffer.position(HEADER_SIZE + live.size() * RECORD_SIZE);
+        zero(buffer.position());
+        records = live.size();
+        compactions++;
+    }
+
+    private void map(long size) throws IOException {
+        if (file.getParentFile() != null) {
+            file.getParentFile().mkdirs();
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, Math.min(size, Integer.MAX_VALUE));
+        }
+    }
+
+    /**
+     * Clears the type byte of the record slot at position so stale bytes of a grown file are not read as records.
+     */
+    private void zero(int position) {
+        if (position < buffer.capacity()) {
+            buffer.put(position, (byte) 0);
+        }
+    }
+
+    private Entry read(int position) {
+        return new Entry(
+            buffer.getLong(position),
+            orNull(buffer.getLong(position + 8)),
+            orNull(buffer.getLong(position + 16)),
+            buffer.getLong(position + 24),
+            orNull(buffer.getLong(position + 32)),
+            orNull(buffer.getLong(position + 40)));
+    }
+
+    public synchronized void close() {
+        if (timer >= 0) {
+            vertx.cancelTimer(timer);
+        }
+        if (buffer != null) {
+            buffer.force();
+        }
+    }
+
+    public synchronized JsonObject stats() {
+        return new JsonObject()
+            .put("enabled", enabled)
+            .put("live", live.size())
+            .put("records", records)
+            .put("bytes", buffer == null ? 0 : buffer.position())
+            .put("capacity", buffer == null ? 0 : buffer.capacity())
+            .put("appends", appends)
+            .put("compactions", compactions)
+            .put("recovered", recovered)
+            .put("recoveryMillis", recoveryMillis);
+    }
+
+    private static long orNone(Long value) {
+        return value == null ? NONE : value;
+    }
+
+    private static Long orNull(long value) {
+        return value == NONE ? null : value;
+    }
+
+    public static final class Entry {
+        private final Long smsId;
+        private final Long operator;
+        private final Long fencingToken;
+        private final long expiresAt;
+        private final Long campaignId;
+        private final Long distributionHouseId;
+
+        private Entry(Long smsId, Long operator, Long fencingToken, long expiresAt, String partition) {
+            this(smsId, operator, fencingToken, expiresAt, partitionPart(partition, 0), partitionPart(partition, 1));
+        }
+
+        private Entry(Long smsId, Long operator, Long fencingToken, long expiresAt, Long campaignId,
+                      Long distributionHouseId) {
+            this.smsId = smsId;
+            this.operator = operator;
+            this.fencingToken = fencingToken;
+            this.expiresAt = expiresAt;
+            this.campaignId = campaignId;
+            this.distributionHouseId = distributionHouseId;
+        }
+
+        /**
+         * @return the id at index of a campaignId.distributionHouseId partition, null if it is missing or not
+         * numeric, the lock is then journaled without its partition.
+         */
+        private static Long partitionPart(String partition, int index) {
+            if (partition == null) {
+                return null;
+            }
+            final String[] parts = partition.split("\\.");
+            try {
+                return index < parts.length ? Long.valueOf(parts[index]) : null;
+            } catch (NumberFormatException ex) {
+                return null;
+            }
+        }
+
+        public Long getSmsId() {
+            return smsId;
+        }
+
+        public Long getOperator() {
+            return operator;
+        }
+
+        public Long getFencingToken() {
+            return fencingToken;
+        }
+
+        public long getExpiresAt() {
+            return expiresAt;
+        }
+
+        public Long getCampaignId() {
+            return campaignId;
+        }
+
+        public Long getDistributionHouseId() {
+            return distributionHouseId;
+        }
+
+        /**
+         * @return the lock state partition the contact was locked in, see {@link MyEvents#partition}.
+         */
+        public String getPartition() {
+            return MyEvents.partition(campaignId, distributionHouseId);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.imslbd.call_center.service;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Contact locks held by call operators. An operator holds at most one lock at a time, so next to the forward
+ * map (sms id to operator) a reverse index (operator to sms id) is kept and every operation is a constant
+ * number of hash lookups, independent of how many contacts are locked.
+ * <p>
+ * Created by someone on 18/10/2026.
+ */
+public class ContactLockManager {
+    private final Map<Long, Long> operatorBySmsId = new HashMap<>();
+    private final Map<Long, Long> smsIdByOperator = new HashMap<>();
+    private long locks;
+    private long conflicts;
+    private long unlocks;
+
+    /**
+     * @return the operator holding the lock on the contact or null if it is not locked.
+     */
+    public synchronized Long lockedBy(Long smsId) {
+        return operatorBySmsId.get(smsId);
+    }
+
+    /**
+     * @return the contact the operator holds a lock on or null if the operator holds none.
+     */
+    public synchronized Long lockOf(Long operator) {
+        return smsIdByOperator.get(operator);
+    }
+
+    /**
+     * Locks the contact for the operator unless another operator already locked it, releasing the operator's
+     * previous lock. Locking a contact the operator already holds succeeds without changes.
+     */
+    public synchronized LockResult lock(Long smsId, Long operator) {
+        final Long owner = operatorBySmsId.get(smsId);
+        if (owner != null) {
+            if (owner.equals(operator)) {
+                return new LockResult(true, owner, null);
+            }
+            conflicts++;
+            return new LockResult(false, owner, null);
+        }
+        final Long released = smsIdByOperator.put(operator, smsId);
+        if (released != null) {
+            operatorBySmsId.remove(released);
+        }
+        operatorBySmsId.put(smsId, operator);
+        locks++;
+        return new LockResult(true, operator, released);
+    }
+
+    /**
+     * Releases the lock on the contact if it is held by the operator.
+     *
+     * @return false if the contact is not locked by the operator.
+     */
+    public synchronized boolean unlock(Long smsId, Long operator) {
+        final Long owner = operatorBySmsId.get(smsId);
+        if (owner == null || !owner.equals(operator)) {
+            return false;
+        }
+        operatorBySmsId.remove(smsId);
+        smsIdByOperator.remove(operator, smsId);
+        unlocks++;
+        return true;
+    }
+
+    /**
+     * @return every lock held right now as SMS_ID / CALL_OPERATOR pairs.
+     */
+    public synchronized JsonArray snapshot() {
+        final JsonArray locks = new JsonArray();
+        operatorBySmsId.forEach((smsId, operator) -> locks.add(new JsonObject()
+            .put("SMS_ID", smsId)
+            .put("CALL_OPERATOR", operator)));
+        return locks;
+    }
+
+    public synchronized int size() {
+        return operatorBySmsId.size();
+    }
+
+    public synchronized JsonObject stats() {
+        return new JsonObject()
+            .put("active", operatorBySmsId.size())
+            .put("locks", locks)
+            .put("conflicts", conflicts)
+            .put("unlocks", unlocks);
+    }
+
+    public static final class LockResult {
+        private final boolean acquired;
+        private final Long owner;
+        private final Long released;
+
+        private LockResult(boolean acquired, Long owner, Long released) {
+            this.acquired = acquired;
+            this.owner = owner;
+            this.released = released;
+        }
+
+        public boolean isAcquired() {
+            return acquired;
+        }
+
+        /**
+         * @return the operator holding the lock after the call.
+         */
+        public Long getOwner() {
+            return owner;
+        }
+
+        /**
+         * @return the contact whose lock the operator gave up by acquiring this one, or null.
+         */
+        public Long getReleased() {
+            return released;
+        }
+    }
+}
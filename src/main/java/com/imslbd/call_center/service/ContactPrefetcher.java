@@ -0,0 +1,182 @@
+package com.imslbd.call_center.service;
+
+import io.crm.util.ExceptionUtil;
+import io.vertx.core.Handler;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.json.JsonObject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Warms a short lived cache with the contact details and BR info an operator is about to open.
+ * Step 2 records the sms ids of every operator's current result set; when the operator locks a contact the
+ * details and BR info of that contact and of the next nextContacts unlocked contacts of the result set are
+ * fetched in the background. Requests arriving while a prefetch is still in flight wait for it instead of
+ * calling upstream again. Ttls and size come from the PREFETCH section of config.json.
+ * <p>
+ * Created by someone on 18/10/2026.
+ */
+public class ContactPrefetcher {
+    public static final String PREFETCH = "PREFETCH";
+    private static final String NEXT_CONTACTS = "nextContacts";
+    private static final String BR_ID = "s.BR_ID";
+
+    private final UpstreamClients upstreamClients;
+    private final BrDirectory brDirectory;
+    private final ResponseCache cache;
+    private final int nextContacts;
+    private final Map<Long, ResultSet> resultSets = new HashMap<>();
+    private final Map<String, List<Message<?>>> pending = new HashMap<>();
+    private long prefetched;
+    private long served;
+    private long joined;
+
+    public ContactPrefetcher(UpstreamClients upstreamClients, BrDirectory brDirectory, JsonObject config) {
+        final JsonObject cfg = config == null ? new JsonObject() : config;
+        this.upstreamClients = upstreamClients;
+        this.brDirectory = brDirectory;
+        this.cache = new ResponseCache(cfg);
+        this.nextContacts = cfg.getInteger(NEXT_CONTACTS, 3);
+    }
+
+    /**
+     * Remembers the sms ids of the search result the operator is currently working on.
+     */
+    public synchronized void recordResult(Long operator, String baseUrl, List<Long> smsIds) {
+        if (operator == null || baseUrl == null) {
+            return;
+        }
+        resultSets.put(operator, new ResultSet(baseUrl, smsIds));
+    }
+
+    /**
+     * Prefetches the locked contact and the next unlocked contacts after it in the operator's result set.
+     */
+    public void onLock(Long smsId, Long operator, Function<Long, Object> lockOwner) {
+        final ResultSet resultSet;
+        synchronized (this) {
+            resultSet = resultSets.get(operator);
+        }
+        final String baseUrl = resultSet == null ? upstreamClients.defaultBaseUrl() : resultSet.baseUrl;
+        prefetchContact(baseUrl, smsId);
+
+        if (resultSet == null) {
+            return;
+        }
+        int remaining = nextContacts;
+        for (int i = resultSet.smsIds.indexOf(smsId) + 1; i > 0 && i < resultSet.smsIds.size() && remaining > 0; i++) {
+            final Long next = resultSet.smsIds.get(i);
+            if (lockOwner.apply(next) == null) {
+                prefetchContact(baseUrl, next);
+                remaining--;
+            }
+        }
+    }
+
+    /**
+     * Replies with the prefetched response for the url, or makes the message wait for a prefetch in flight.
+     *
+     * @return false if the url is neither prefetched nor being prefetched and the caller must fetch it itself.
+     */
+    public synchronized boolean serve(String path, String url, Message<?> message) {
+        final Object cached = cache.get(path, url);
+        if (cached != null) {
+            served++;
+            message.reply(cached);
+            return true;
+        }
+        final List<Message<?>> waiters = pending.get(url);
+        if (waiters != null) {
+            joined++;
+            waiters.add(message);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Drops the prefetched details of a contact, e.g. after a call was created for it.
+     */
+    public void invalidateContact(Object smsId) {
+        final Set<String> baseUrls = new HashSet<>();
+        synchronized (this) {
+            resultSets.values().forEach(resultSet -> baseUrls.add(resultSet.baseUrl));
+        }
+        baseUrls.add(upstreamClients.defaultBaseUrl());
+        baseUrls.forEach(baseUrl -> cache.invalidate(ConsumerContactService.contactDetailsUrl(baseUrl, smsId)));
+    }
+
+    private void prefetchContact(String baseUrl, Long smsId) {
+        final String url = ConsumerContactService.contactDetailsUrl(baseUrl, smsId);
+        prefetch(ConsumerContactService.CONTACT_DETAILS_URI, url, JsonObject::new, details -> {
+            final Object brId = details.getValue(BR_ID);
+            if (brId != null && brDirectory.find(baseUrl, brId) == null) {
+                prefetch(BrService.SQL_QUERY_URI, BrService.brInfoUrl(baseUrl, String.valueOf(brId)), BrService::toBrInfo, brInfo -> {
+                });
+            }
+        });
+    }
+
+    private void prefetch(String path, String url, Function<String, JsonObject> parser, Handler<JsonObject> onSuccess) {
+        synchronized (this) {
+            if (!cache.isCacheable(path) || pending.containsKey(url) || cache.get(path, url) != null) {
+                return;
+            }
+            pending.put(url, new ArrayList<>());
+            prefetched++;
+        }
+        final boolean[] done = new boolean[1];
+        final Handler<Throwable> failHandler = e -> {
+            if (!done[0]) {
+                done[0] = true;
+                complete(url).forEach(m -> ExceptionUtil.fail(m, e));
+            }
+        };
+        upstreamClients.get(url,
+            res -> res.bodyHandler(b -> {
+                try {
+                    final JsonObject value = parser.apply(b.toString());
+                    done[0] = true;
+                    synchronized (this) {
+                        cache.put(path, url, value);
+                    }
+                    complete(url).forEach(m -> m.reply(value));
+                    onSuccess.handle(value);
+                } catch (Exception ex) {
+                    failHandler.handle(ex);
+                }
+            }).exceptionHandler(failHandler),
+            failHandler);
+    }
+
+    private synchronized List<Message<?>> complete(String url) {
+        final List<Message<?>> waiters = pending.remove(url);
+        return waiters == null ? Collections.emptyList() : waiters;
+    }
+
+    public synchronized JsonObject stats() {
+        return cache.stats()
+            .put("operators", resultSets.size())
+            .put("inFlight", pending.size())
+            .put("prefetched", prefetched)
+            .put("served", served)
+            .put("joined", joined);
+    }
+
+    private static final class ResultSet {
+        private final String baseUrl;
+        private final List<Long> smsIds;
+
+        private ResultSet(String baseUrl, List<Long> smsIds) {
+            this.baseUrl = baseUrl;
+            this.smsIds = smsIds;
+        }
+    }
+}
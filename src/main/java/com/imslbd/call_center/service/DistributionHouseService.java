@@ -7,7 +7,6 @@ import com.imslbd.call_center.gv;
 import io.crm.util.ExceptionUtil;
 import io.vertx.core.Vertx;
 import io.vertx.core.eventbus.Message;
-import io.vertx.core.http.HttpClient;
 import io.vertx.core.http.HttpHeaders;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
@@ -22,41 +21,48 @@ import java.util.Map;
 public class DistributionHouseService {
     private static final String GET_DISTRIBUTION_HOUSES_URI = "/Home/GetDistribution";
     private final Vertx vertx;
-    private final HttpClient httpClient;
+    private final UpstreamClients upstreamClients;
+    private final ResponseCache responseCache;
 
-    public DistributionHouseService(Vertx vertx, HttpClient httpClient) {
+    public DistributionHouseService(Vertx vertx, UpstreamClients upstreamClients, ResponseCache responseCache) {
         this.vertx = vertx;
-        this.httpClient = httpClient;
+        this.upstreamClients = upstreamClients;
+        this.responseCache = responseCache;
     }
 
     public void findAll(Message<JsonObject> message) {
-        String baseUrl = message.body().getString("baseUrl");
-        message.body().remove("baseUrl");
-        httpClient.getAbs(baseUrl + GET_DISTRIBUTION_HOUSES_URI + "?Id=" + message.body().getLong("areaId"), res -> {
-            res
-                .bodyHandler(b -> {
-                    try {
-                        final JsonArray jsonArray = new JsonArray();
-                        final JsonArray list = new JsonArray(b.toString());
-                        for (int i = 0; i < list.size(); i++) {
-                            jsonArray.add(new JsonObject()
-                                .put(gv.id, list.getJsonObject(i).getLong("ID"))
-                                .put(gv.name, list.getJsonObject(i).getString("Name")));
+        try {
+            String baseUrl = message.body().getString("baseUrl");
+            message.body().remove("baseUrl");
+            final String url = baseUrl + GET_DISTRIBUTION_HOUSES_URI + "?Id=" + message.body().getLong("areaId");
+            final JsonObject cached = responseCache.get(GET_DISTRIBUTION_HOUSES_URI, url);
+            if (cached != null) {
+                message.reply(cached);
+                return;
+            }
+            upstreamClients.get(url, res -> {
+                res
+                    .bodyHandler(b -> {
+                        try {
+                            final JsonArray jsonArray = new JsonArray();
+                            final JsonArray list = new JsonArray(b.toString());
+                            for (int i = 0; i < list.size(); i++) {
+                                jsonArray.add(new JsonObject()
+                                    .put(gv.id, list.getJsonObject(i).getLong("ID"))
+                                    .put(gv.name, list.getJsonObject(i).getString("Name")));
+                            }
+                            final JsonObject reply = new JsonObject()
+                                .put("data", jsonArray);
+                            responseCache.put(GET_DISTRIBUTION_HOUSES_URI, url, reply);
+                            message.reply(reply);
+                        } catch (Exception e) {
+                            responseCache.replyStaleOrFail(url, message, e);
                         }
-                        message.reply(new JsonObject()
-                            .put("data", jsonArray));
-                    } catch (Exception e) {
-                        ExceptionUtil.fail(message, e);
-                    }
-                })
-                .exceptionHandler(e -> ExceptionUtil.fail(message, e));
-        })
-            .sendHead()
-            .putHeader(gv.X_Requested_With, Services.CALL_CENTER_JAVA)
-//            .putHeader("Host", MyApp.loadConfig().getString(MainVerticle.PROP_CALL_REVIEW_HOST) + ":" + MyApp.loadConfig().getInteger(MainVerticle.PROP_CALL_REVIEW_PORT))
-//            .putHeader("Referer", "http://" + MyApp.loadConfig().getString(MainVerticle.PROP_CALL_REVIEW_HOST) + ":" + MyApp.loadConfig().getInteger(MainVerticle.PROP_CALL_REVIEW_PORT))
-//            .putHeader(HttpHeaders.CONTENT_TYPE, Controllers.APPLICATION_JSON)
-            .exceptionHandler(e -> ExceptionUtil.fail(message, e))
-            .end();
+                    })
+                    .exceptionHandler(e -> responseCache.replyStaleOrFail(url, message, e));
+            }, e -> responseCache.replyStaleOrFail(url, message, e));
+        } catch (Exception ex) {
+            ExceptionUtil.fail(message, ex);
+        }
     }
 }
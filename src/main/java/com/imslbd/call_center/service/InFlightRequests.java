@@ -0,0 +1,104 @@
+package com.imslbd.call_center.service;
+
+import io.crm.util.ExceptionUtil;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.json.JsonObject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Table of upstream GET requests that are currently in flight, keyed by absolute url.
+ * The first message for a url performs the upstream call, identical messages arriving before it completes
+ * just wait for the same reply. A call that has not completed after IN_FLIGHT_TIMEOUT_SECONDS is dropped from
+ * the table and its waiters are failed, so a hung upstream request does not hold up every later caller.
+ * <p>
+ * Created by someone on 18/10/2026.
+ */
+public class InFlightRequests {
+    public static final String IN_FLIGHT_TIMEOUT_SECONDS = "IN_FLIGHT_TIMEOUT_SECONDS";
+
+    private final Vertx vertx;
+    private final long timeoutMillis;
+    private final long timer;
+    private final Map<String, Entry> inFlight = new HashMap<>();
+    private long upstreamCalls;
+    private long deduplicated;
+    private long timedOut;
+
+    public InFlightRequests(Vertx vertx, long timeoutMillis) {
+        this.vertx = vertx;
+        this.timeoutMillis = timeoutMillis;
+        this.timer = vertx.setPeriodic(Math.max(timeoutMillis / 4, 1000), id -> evictExpired());
+    }
+
+    /**
+     * @return true if the caller is the first one for this url and must perform the upstream call.
+     */
+    public synchronized boolean join(String url, Message<?> message) {
+        final Entry entry = inFlight.get(url);
+        if (entry != null) {
+            entry.waiters.add(message);
+            deduplicated++;
+            return false;
+        }
+        final Entry newEntry = new Entry(System.currentTimeMillis());
+        newEntry.waiters.add(message);
+        inFlight.put(url, newEntry);
+        upstreamCalls++;
+        return true;
+    }
+
+    /**
+     * Removes the url from the table and returns every message waiting for it.
+     */
+    public synchronized List<Message<?>> complete(String url) {
+        final Entry entry = inFlight.remove(url);
+        return entry == null ? Collections.emptyList() : entry.waiters;
+    }
+
+    private void evictExpired() {
+        final List<Map.Entry<String, Entry>> expired = new ArrayList<>();
+        synchronized (this) {
+            final long now = System.currentTimeMillis();
+            final Iterator<Map.Entry<String, Entry>> iterator = inFlight.entrySet().iterator();
+            while (iterator.hasNext()) {
+                final Map.Entry<String, Entry> entry = iterator.next();
+                if (now - entry.getValue().startedAt >= timeoutMillis) {
+                    expired.add(entry);
+                    iterator.remove();
+                    timedOut++;
+                }
+            }
+        }
+        expired.forEach(entry -> entry.getValue().waiters.forEach(message -> ExceptionUtil.fail(message,
+            new TimeoutException("Upstream request did not complete in " + timeoutMillis + " ms: " + entry.getKey()))));
+    }
+
+    public void close() {
+        vertx.cancelTimer(timer);
+    }
+
+    public synchronized JsonObject stats() {
+        return new JsonObject()
+            .put("inFlight", inFlight.size())
+            .put("upstreamCalls", upstreamCalls)
+            .put("deduplicated", deduplicated)
+            .put("timedOut", timedOut);
+    }
+
+    private static final class Entry {
+        private final long startedAt;
+        private final List<Message<?>> waiters = new ArrayList<>();
+
+        private Entry(long startedAt) {
+            this.startedAt = startedAt;
+        }
+    }
+}
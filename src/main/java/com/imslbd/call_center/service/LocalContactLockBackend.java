@@ -0,0 +1,84 @@
+package com.imslbd.call_center.service;
+
+import io.crm.promise.Promises;
+import io.crm.promise.intfs.Promise;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Single node {@link ContactLockBackend} keeping the leases in memory.
+ * <p>
+ * Created by someone on 18/10/2026.
+ */
+public class LocalContactLockBackend implements ContactLockBackend {
+    private final Map<Long, Entry> leases = new HashMap<>();
+    private long lastToken;
+
+    @Override
+    public synchronized Promise<Lease> acquire(Long smsId, Long operator, long leaseMillis) {
+        final long now = System.currentTimeMillis();
+        final Entry entry = leases.get(smsId);
+        if (entry != null && entry.expiresAt >= now && !entry.operator.equals(operator)) {
+            return Promises.from(new Lease(false, entry.operator, null));
+        }
+        final long token = entry != null && entry.expiresAt >= now ? entry.fencingToken : ++lastToken;
+        leases.put(smsId, new Entry(operator, token, now + leaseMillis));
+        return Promises.from(new Lease(true, operator, token));
+    }
+
+    @Override
+    public synchronized Promise<Lease> renew(Long smsId, Long operator, long leaseMillis) {
+        final long now = System.currentTimeMillis();
+        final Entry entry = leases.get(smsId);
+        if (entry == null || entry.expiresAt < now || !entry.operator.equals(operator)) {
+            return Promises.from(new Lease(false, entry == null || entry.expiresAt < now ? null : entry.operator, null));
+        }
+        leases.put(smsId, new Entry(operator, entry.fencingToken, now + leaseMillis));
+        return Promises.from(new Lease(true, operator, entry.fencingToken));
+    }
+
+    @Override
+    public synchronized Promise<Void> release(Long smsId, Long operator) {
+        final Entry entry = leases.get(smsId);
+        if (entry != null && entry.operator.equals(operator)) {
+            leases.remove(smsId);
+        }
+        return Promises.from();
+    }
+
+    @Override
+    public synchronized Promise<Boolean> validate(Long smsId, Long operator, Long fencingToken) {
+        final Entry entry = leases.get(smsId);
+        return Promises.from(entry != null
+            && entry.expiresAt >= System.currentTimeMillis()
+            && entry.operator.equals(operator)
+            && fencingToken != null && entry.fencingToken == fencingToken);
+    }
+
+    @Override
+    public synchronized void restore(Long smsId, Long operator, Long fencingToken, long expiresAt) {
+        if (fencingToken == null) {
+            return;
+        }
+        leases.put(smsId, new Entry(operator, fencingToken, expiresAt));
+        advanceFencingToken(fencingToken);
+    }
+
+    @Override
+    public synchronized void advanceFencingToken(long fencingToken) {
+        lastToken = Math.max(lastToken, fencingToken);
+    }
+
+    private static final class Entry {
+        private final Long operator;
+        private final long fencingToken;
+        private final long expiresAt;
+
+        private Entry(Long operator, long fencingToken, long expiresAt) {
+            this.operator = operator;
+            this.fencingToken = fencingToken;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
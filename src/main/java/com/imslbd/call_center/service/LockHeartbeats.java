@@ -0,0 +1,67 @@
+package com.imslbd.call_center.service;
+
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Collects LOCK_HEARTBEAT messages and hands them to the renew handler once every batchMillis, grouped by
+ * operator. Heartbeats of the same operator arriving within one batch, from several tabs or repeated sends,
+ * renew each of the operator's contacts once.
+ * <p>
+ * Created by someone on 18/10/2026.
+ */
+public class LockHeartbeats {
+    public static final String LOCK_HEARTBEAT_BATCH_MILLIS = "LOCK_HEARTBEAT_BATCH_MILLIS";
+
+    private final Vertx vertx;
+    private final Handler<Map<Long, Set<Long>>> renewHandler;
+    private final long timer;
+    private Map<Long, Set<Long>> pending = new HashMap<>();
+    private long heartbeats;
+    private long batches;
+    private long renewals;
+
+    public LockHeartbeats(Vertx vertx, long batchMillis, Handler<Map<Long, Set<Long>>> renewHandler) {
+        this.vertx = vertx;
+        this.renewHandler = renewHandler;
+        this.timer = vertx.setPeriodic(Math.max(batchMillis, 1), id -> flush());
+    }
+
+    public synchronized void heartbeat(Long operator, Iterable<Long> smsIds) {
+        heartbeats++;
+        final Set<Long> operatorSmsIds = pending.computeIfAbsent(operator, o -> new LinkedHashSet<>());
+        smsIds.forEach(operatorSmsIds::add);
+    }
+
+    private void flush() {
+        final Map<Long, Set<Long>> batch;
+        synchronized (this) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = pending;
+            pending = new HashMap<>();
+            batches++;
+            batch.values().forEach(smsIds -> renewals += smsIds.size());
+        }
+        renewHandler.handle(batch);
+    }
+
+    public void close() {
+        vertx.cancelTimer(timer);
+    }
+
+    public synchronized JsonObject stats() {
+        return new JsonObject()
+            .put("heartbeats", heartbeats)
+            .put("batches", batches)
+            .put("renewals", renewals)
+            .put("pendingOperators", pending.size());
+    }
+}
@@ -0,0 +1,192 @@
+package com.imslbd.call_center.service;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Counters and a hold time histogram of the contact lock path, overall and per campaign, to size lock leases
+ * and find contention hot spots. Lock attempts, conflicts, acquisitions and the four ways a lock ends are
+ * counted: an explicit unlock, the operator moving on to another contact, lease expiry and a lease lost to
+ * another node. Hold time is measured from the first acquisition until the lock ends, renewals and re-locks by
+ * the same operator do not restart it.
+ * <p>
+ * Created by someone on 18/10/2026.
+ */
+public class LockMetrics {
+    private static final String NO_CAMPAIGN = "none";
+    private static final long[] HOLD_BUCKET_SECONDS = {1, 5, 10, 30, 60, 120, 300, 600, 1800, 3600};
+
+    private final Stats total = new Stats();
+    private final Map<String, Stats> byCampaign = new TreeMap<>();
+    private final Map<Long, Hold> holds = new HashMap<>();
+
+    public synchronized void attempt(String partition) {
+        total.attempts++;
+        stats(partition).attempts++;
+    }
+
+    public synchronized void conflict(String partition) {
+        total.conflicts++;
+        stats(partition).conflicts++;
+    }
+
+    public synchronized void acquired(Long smsId, String partition) {
+        if (holds.containsKey(smsId)) {
+            return;
+        }
+        final String campaign = campaign(partition);
+        holds.put(smsId, new Hold(System.currentTimeMillis(), campaign));
+        total.acquired++;
+        total.active++;
+        final Stats stats = byCampaign.computeIfAbsent(campaign, c -> new Stats());
+        stats.acquired++;
+        stats.active++;
+    }
+
+    public synchronized void unlocked(Long smsId) {
+        final Stats stats = ended(smsId);
+        if (stats != null) {
+            total.unlocks++;
+            stats.unlocks++;
+        }
+    }
+
+    public synchronized void replaced(Long smsId) {
+        final Stats stats = ended(smsId);
+        if (stats != null) {
+            total.replaced++;
+            stats.replaced++;
+        }
+    }
+
+    public synchronized void expired(Long smsId) {
+        final Stats stats = ended(smsId);
+        if (stats != null) {
+            total.expiries++;
+            stats.expiries++;
+        }
+    }
+
+    public synchronized void leaseLost(Long smsId) {
+        final Stats stats = ended(smsId);
+        if (stats != null) {
+            total.leasesLost++;
+            stats.leasesLost++;
+        }
+    }
+
+    private Stats ended(Long smsId) {
+        final Hold hold = holds.remove(smsId);
+        if (hold == null) {
+            return null;
+        }
+        final long millis = System.currentTimeMillis() - hold.startedAt;
+        final Stats stats = byCampaign.get(hold.campaign);
+        total.hold(millis);
+        stats.hold(millis);
+        return stats;
+    }
+
+    private Stats stats(String partition) {
+        return byCampaign.computeIfAbsent(campaign(partition), c -> new Stats());
+    }
+
+    /**
+     * @return the campaign id of a {@link com.imslbd.call_center.MyEvents#partition} partition.
+     */
+    private static String campaign(String partition) {
+        return partition == null ? NO_CAMPAIGN : partition.substring(0, partition.indexOf('.'));
+    }
+
+    public synchronized JsonObject stats() {
+        final JsonObject campaigns = new JsonObject();
+        byCampaign.forEach((campaign, stats) -> campaigns.put(campaign, stats.toJson()));
+        return total.toJson().put("campaigns", campaigns);
+    }
+
+    private static final class Hold {
+        private final long startedAt;
+        private final String campaign;
+
+        private Hold(long startedAt, String campaign) {
+            this.startedAt = startedAt;
+            this.campaign = campaign;
+        }
+    }
+
+    private static final class Stats {
+        private long attempts;
+        private long conflicts;
+        private long acquired;
+        private long active;
+        private long unlocks;
+        private long replaced;
+        private long expiries;
+        private long leasesLost;
+        private final long[] holdBuckets = new long[HOLD_BUCKET_SECONDS.length + 1];
+        private long holdCount;
+        private long holdSumMillis;
+        private long holdMaxMillis;
+
+        private void hold(long millis) {
+            active--;
+            int bucket = 0;
+            while (bucket < HOLD_BUCKET_SECONDS.length && millis > HOLD_BUCKET_SECONDS[bucket] * 1000) {
+                bucket++;
+            }
+            holdBuckets[bucket]++;
+            holdCount++;
+            holdSumMillis += millis;
+            holdMaxMillis = Math.max(holdMaxMillis, millis);
+        }
+
+        /**
+         * @return the upper bound in seconds of the bucket the quantile falls in, -1 for the overflow bucket.
+         */
+        private long quantileSeconds(double quantile) {
+            final long rank = (long) Math.ceil(quantile * holdCount);
+            long seen = 0;
+            for (int i = 0; i < HOLD_BUCKET_SECONDS.length; i++) {
+                seen += holdBuckets[i];
+                if (seen >= rank) {
+                    return HOLD_BUCKET_SECONDS[i];
+                }
+            }
+            return -1;
+        }
+
+        private JsonObject toJson() {
+            final JsonArray buckets = new JsonArray();
+            for (int i = 0; i < holdBuckets.length; i++) {
+                buckets.add(new JsonObject()
+                    .put("leSeconds", i < HOLD_BUCKET_SECONDS.length ? String.valueOf(HOLD_BUCKET_SECONDS[i]) : "+Inf")
+                    .put("count", holdBuckets[i]));
+            }
+            final JsonObject hold = new JsonObject()
+                .put("count", holdCount)
+                .put("avgMillis", holdCount == 0 ? 0 : holdSumMillis / holdCount)
+                .put("maxMillis", holdMaxMillis)
+                .put("buckets", buckets);
+            if (holdCount > 0) {
+                hold.put("p50Seconds", quantileSeconds(0.5))
+                    .put("p90Seconds", quantileSeconds(0.9))
+                    .put("p99Seconds", quantileSeconds(0.99));
+            }
+            return new JsonObject()
+                .put("attempts", attempts)
+                .put("conflicts", conflicts)
+                .put("conflictRate", attempts == 0 ? 0.0 : (double) conflicts / attempts)
+                .put("acquired", acquired)
+                .put("active", active)
+                .put("unlocks", unlocks)
+                .put("replaced", replaced)
+                .put("expiries", expiries)
+                .put("leasesLost", leasesLost)
+                .put("hold", hold);
+        }
+    }
+}
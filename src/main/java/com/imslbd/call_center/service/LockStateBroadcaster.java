@@ -0,0 +1,178 @@
+package com.imslbd.call_center.service;
+
+import com.imslbd.call_center.MyEvents;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Batches contact lock state changes into one LOCK_STATE delta frame every intervalMillis instead of
+ * publishing every lock, unlock, timeout and conflict to the bridge on its own. Several changes of the same
+ * contact within one interval collapse into its latest state. Frames are numbered per node; a client that
+ * sees a gap in the sequence asks LOCK_STATE_SNAPSHOT for the full set of locks.
+ * <p>
+ * Changes are partitioned by campaign and distribution house (see {@link MyEvents#partition}): each partition
+ * gets its own frame on LOCK_STATE.campaignId.distributionHouseId with its own sequence, so a browser only
+ * receives the locks of the partition it is viewing. Locks without a partition go to LOCK_STATE.
+ * <p>
+ * Created by someone on 18/10/2026.
+ */
+public class LockStateBroadcaster {
+    public static final String LOCK_STATE_BROADCAST_INTERVAL_MILLIS = "LOCK_STATE_BROADCAST_INTERVAL_MILLIS";
+    private static final String SMS_ID = "SMS_ID";
+    private static final String CALL_OPERATOR = "CALL_OPERATOR";
+    private static final String LOCKED_BY = "LOCKED_BY";
+    private static final String CAMPAIGN_ID = "CAMPAIGN_ID";
+    private static final String DISTRIBUTION_HOUSE_ID = "DISTRIBUTION_HOUSE_ID";
+
+    private final Vertx vertx;
+    private final Supplier<JsonArray> snapshot;
+    private final String node = UUID.randomUUID().toString();
+    private final Map<Long, String> partitions = new HashMap<>();
+    private final Map<Long, Change> pending = new LinkedHashMap<>();
+    private final List<Change> conflicts = new ArrayList<>();
+    private final Map<String, Long> seqs = new HashMap<>();
+    private final long timer;
+    private long frames;
+    private long changes;
+    private long coalesced;
+
+    public LockStateBroadcaster(Vertx vertx, long intervalMillis, Supplier<JsonArray> snapshot) {
+        this.vertx = vertx;
+        this.snapshot = snapshot;
+        this.timer = vertx.setPeriodic(Math.max(intervalMillis, 1), id -> flush());
+    }
+
+    /**
+     * Frames carry no fencing token, it goes only to the operator who took the lock.
+     */
+    public synchronized void locked(Long smsId, Long operator, String partition) {
+        if (partition == null) {
+            partitions.remove(smsId);
+        } else {
+            partitions.put(smsId, partition);
+        }
+        change(smsId, new Change(true, partition, new JsonObject()
+            .put(SMS_ID, smsId)
+            .put(CALL_OPERATOR, operator)));
+    }
+
+    /**
+     * Goes to the partition the contact was locked in.
+     */
+    public synchronized void unlocked(Long smsId, Long operator) {
+        change(smsId, new Change(false, partitions.remove(smsId), new JsonObject()
+            .put(SMS_ID, smsId)
+            .put(CALL_OPERATOR, operator)));
+    }
+
+    /**
+     * Tells the operator trying to lock the contact that it is held by someone else.
+     */
+    public synchronized void conflict(Long smsId, Long owner, String partition) {
+        changes++;
+        conflicts.add(new Change(false, partition, new JsonObject().put(SMS_ID, smsId).put(LOCKED_BY, owner)));
+    }
+
+    private void change(Long smsId, Change change) {
+        changes++;
+        if (pending.put(smsId, change) != null) {
+            coalesced++;
+        }
+    }
+
+    private void flush() {
+        final Map<String, JsonObject> framesByPartition = new LinkedHashMap<>();
+        synchronized (this) {
+            if (pending.isEmpty() && conflicts.isEmpty()) {
+                return;
+            }
+            pending.values().forEach(change -> frame(framesByPartition, change.partition)
+                .getJsonArray(change.locked ? "locked" : "unlocked").add(change.body));
+            conflicts.forEach(change -> frame(framesByPartition, change.partition)
+                .getJsonArray("conflicts").add(change.body));
+            framesByPartition.forEach((partition, frame) -> frame.put("seq", nextSeq(partition)));
+            frames += framesByPartition.size();
+            pending.clear();
+            conflicts.clear();
+        }
+        framesByPartition.forEach((partition, frame) ->
+            vertx.eventBus().publish(MyEvents.partitioned(MyEvents.LOCK_STATE, partition), frame));
+    }
+
+    private JsonObject frame(Map<String, JsonObject> framesByPartition, String partition) {
+        return framesByPartition.computeIfAbsent(partition, p -> new JsonObject()
+            .put("node", node)
+            .put("partition", p)
+            .put("locked", new JsonArray())
+            .put("unlocked", new JsonArray())
+            .put("conflicts", new JsonArray()));
+    }
+
+    private long nextSeq(String partition) {
+        final long seq = seqs.getOrDefault(partition, 0L) + 1;
+        seqs.put(partition, seq);
+        return seq;
+    }
+
+    /**
+     * Replies with every lock held right now in the partition given by CAMPAIGN_ID and DISTRIBUTION_HOUSE_ID of
+     * the request, and the sequence number of the last frame published to it.
+     */
+    public void snapshot(Message<JsonObject> message) {
+        final JsonObject body = message.body() == null ? new JsonObject() : message.body();
+        final String partition = MyEvents.partition(body.getValue(CAMPAIGN_ID), body.getValue(DISTRIBUTION_HOUSE_ID));
+        final JsonArray all = snapshot.get();
+        final JsonArray locked = new JsonArray();
+        final long lastSeq;
+        synchronized (this) {
+            lastSeq = seqs.getOrDefault(partition, 0L);
+            all.forEach(o -> {
+                final JsonObject lock = (JsonObject) o;
+                if (Objects.equals(partition, partitions.get(lock.getLong(SMS_ID)))) {
+                    locked.add(lock);
+                }
+            });
+        }
+        message.reply(new JsonObject()
+            .put("node", node)
+            .put("partition", partition)
+            .put("seq", lastSeq)
+            .put("locked", locked));
+    }
+
+    public void close() {
+        vertx.cancelTimer(timer);
+    }
+
+    public synchronized JsonObject stats() {
+        return new JsonObject()
+            .put("frames", frames)
+            .put("partitions", seqs.size())
+            .put("pending", pending.size())
+            .put("changes", changes)
+            .put("coalesced", coalesced);
+    }
+
+    private static final class Change {
+        private final boolean locked;
+        private final String partition;
+        private final JsonObject body;
+
+        private Change(boolean locked, String partition, JsonObject body) {
+            this.locked = locked;
+            this.partition = partition;
+            this.body = body;
+        }
+    }
+}
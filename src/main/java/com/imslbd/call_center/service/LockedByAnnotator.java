@@ -0,0 +1,114 @@
+package com.imslbd.call_center.service;
+
+import io.vertx.core.Handler;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+
+import java.nio.charset.StandardCharsets;
+import java.util.function.Function;
+
+/**
+ * Incremental transformer for the /Call/searchResult body. Bytes are passed through untouched except for the
+ * objects of the top level "data" array, which are buffered one at a time, annotated with LOCKED_BY when the
+ * contact is locked and written out. Memory use is bounded by the size of a single row, not by the result size.
+ * <p>
+ * Created by someone on 18/10/2026.
+ */
+public class LockedByAnnotator implements Handler<Buffer> {
+    private static final String DATA = "data";
+    private static final String SMS_ID = "SMS_ID";
+    private static final String LOCKED_BY = "LOCKED_BY";
+    private static final int DATA_ARRAY_DEPTH = 2;
+
+    private final Function<Long, Object> lockOwner;
+    private final Handler<Buffer> output;
+    private final StringBuilder string = new StringBuilder();
+    private int depth;
+    private boolean inString;
+    private boolean escaped;
+    private boolean inDataArray;
+    private String lastString;
+    private Buffer element;
+
+    public LockedByAnnotator(Function<Long, Object> lockOwner, Handler<Buffer> output) {
+        this.lockOwner = lockOwner;
+        this.output = output;
+    }
+
+    @Override
+    public void handle(Buffer chunk) {
+        final int length = chunk.length();
+        int segmentStart = 0;
+
+        for (int i = 0; i < length; i++) {
+            final byte c = chunk.getByte(i);
+
+            if (inString) {
+                if (escaped) {
+                    escaped = false;
+                } else if (c == '\\') {
+                    escaped = true;
+                } else if (c == '"') {
+                    inString = false;
+                    if (depth == 1) lastString = string.toString();
+                } else if (depth == 1) {
+                    string.append((char) c);
+                }
+                continue;
+            }
+
+            switch (c) {
+                case '"':
+                    inString = true;
+                    string.setLength(0);
+                    break;
+                case '{':
+                    if (inDataArray && depth == DATA_ARRAY_DEPTH && element == null) {
+                        if (i > segmentStart) output.handle(chunk.slice(segmentStart, i));
+                        segmentStart = i;
+                        element = Buffer.buffer();
+                    }
+                    depth++;
+                    break;
+                case '[':
+                    depth++;
+                    if (depth == DATA_ARRAY_DEPTH && DATA.equals(lastString)) inDataArray = true;
+                    break;
+                case '}':
+                    depth--;
+                    if (element != null && depth == DATA_ARRAY_DEPTH) {
+                        element.appendBuffer(chunk.slice(segmentStart, i + 1));
+                        output.handle(annotate(element));
+                        element = null;
+                        segmentStart = i + 1;
+                    }
+                    break;
+                case ']':
+                    if (depth == DATA_ARRAY_DEPTH) inDataArray = false;
+                    depth--;
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        if (element != null) {
+            element.appendBuffer(chunk.slice(segmentStart, length));
+        } else if (length > segmentStart) {
+            output.handle(chunk.slice(segmentStart, length));
+        }
+    }
+
+    private Buffer annotate(Buffer row) {
+        try {
+            final JsonObject js = new JsonObject(row.toString(StandardCharsets.UTF_8.name()));
+            final Object operator = lockOwner.apply(js.getLong(SMS_ID, 0L));
+            if (operator == null) {
+                return row;
+            }
+            return Buffer.buffer(js.put(LOCKED_BY, operator).encode());
+        } catch (Exception ex) {
+            return row;
+        }
+    }
+}
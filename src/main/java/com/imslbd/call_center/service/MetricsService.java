@@ -0,0 +1,28 @@
+package com.imslbd.call_center.service;
+
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.json.JsonObject;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Collects runtime stats of the call center components under one reply.
+ * <p>
+ * Created by someone on 18/10/2026.
+ */
+public class MetricsService {
+    private final Map<String, Supplier<JsonObject>> sources = new LinkedHashMap<>();
+
+    public MetricsService register(String name, Supplier<JsonObject> source) {
+        sources.put(name, source);
+        return this;
+    }
+
+    public void metrics(Message<JsonObject> message) {
+        final JsonObject metrics = new JsonObject();
+        sources.forEach((name, source) -> metrics.put(name, source.get()));
+        message.reply(metrics);
+    }
+}
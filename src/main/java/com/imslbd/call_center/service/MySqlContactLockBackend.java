@@ -0,0 +1,162 @@
+package com.imslbd.call_center.service;
+
+import com.imslbd.call_center.util.MyUtil;
+import io.crm.promise.Promises;
+import io.crm.promise.intfs.Defer;
+import io.crm.promise.intfs.Promise;
+import io.crm.util.Util;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.jdbc.JDBCClient;
+import io.vertx.ext.sql.ResultSet;
+import io.vertx.ext.sql.SQLConnection;
+import io.vertx.ext.sql.UpdateResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.function.Function;
+
+/**
+ * {@link ContactLockBackend} on a MySQL lease table shared by all nodes. A lease is taken with a single
+ * compare and set update that only succeeds if the row is expired or already owned by the operator, the
+ * expiry is computed from the database clock so node clocks do not matter. Fencing tokens come from a one row
+ * sequence table incremented through LAST_INSERT_ID, only when a lease changes hands; renewals and refused
+ * acquires leave it alone. Both tables are created on start if missing.
+ * <p>
+ * Created by someone on 18/10/2026.
+ */
+public class MySqlContactLockBackend implements ContactLockBackend {
+    public static final Logger LOGGER = LoggerFactory.getLogger(MySqlContactLockBackend.class);
+    private static final String LEASE_TABLE = "leaseTable";
+    private static final String SEQUENCE_TABLE = "sequenceTable";
+    private static final String NOW_MILLIS = "ROUND(UNIX_TIMESTAMP(NOW(3)) * 1000)";
+
+    private final JDBCClient jdbcClient;
+    private final String leaseTable;
+    private final String sequenceTable;
+
+    public MySqlContactLockBackend(JDBCClient jdbcClient, JsonObject config) {
+        this.jdbcClient = jdbcClient;
+        this.leaseTable = config.getString(LEASE_TABLE, "contact_lock_leases");
+        this.sequenceTable = config.getString(SEQUENCE_TABLE, "contact_lock_sequence");
+        createTables();
+    }
+
+    private void createTables() {
+        withConnection(con -> execute(con, "create table if not exists " + leaseTable + " ("
+            + "sms_id bigint not null primary key, "
+            + "operator bigint not null, "
+            + "fencing_token bigint not null, "
+            + "expires_at bigint not null)")
+            .mapToPromise(v -> execute(con, "create table if not exists " + sequenceTable + " ("
+                + "id int not null primary key, "
+                + "token bigint not null)"))
+            .mapToPromise(v -> execute(con, "insert ignore into " + sequenceTable + " (id, token) values (1, 0)")))
+            .error(e -> LOGGER.error("Error creating contact lock tables", e));
+    }
+
+    @Override
+    public Promise<Lease> acquire(Long smsId, Long operator, long leaseMillis) {
+        return withConnection(con -> extend(con, smsId, operator, leaseMillis)
+            .mapToPromise(lease -> lease.isAcquired() ? Promises.from(lease) : takeOver(con, smsId, operator, leaseMillis)));
+    }
+
+    @Override
+    public Promise<Lease> renew(Long smsId, Long operator, long leaseMillis) {
+        return withConnection(con -> extend(con, smsId, operator, leaseMillis));
+    }
+
+    /**
+     * Extends the lease if the operator holds it unexpired, the fencing token stays as it is.
+     */
+    private Promise<Lease> extend(SQLConnection con, Long smsId, Long operator, long leaseMillis) {
+        return update(con, "update " + leaseTable + " set expires_at = " + NOW_MILLIS + " + ?"
+                + " where sms_id = ? and operator = ? and expires_at >= " + NOW_MILLIS,
+            new JsonArray().add(leaseMillis).add(smsId).add(operator))
+            .mapToPromise(updated -> query(con, "select operator, fencing_token from " + leaseTable + " where sms_id = ?",
+                new JsonArray().add(smsId))
+                .map(rs -> {
+                    if (updated.getUpdated() > 0) {
+                        return new Lease(true, operator, rs.getRows().get(0).getLong("fencing_token"));
+                    }
+                    return new Lease(false, rs.getNumRows() > 0 ? rs.getRows().get(0).getLong("operator") : null, null);
+                }));
+    }
+
+    /**
+     * Takes the lease if it is free or expired. Only a lease changing hands draws a fencing token from the
+     * sequence row, the lease is claimed first so refused and renewed leases never touch it.
+     */
+    private Promise<Lease> takeOver(SQLConnection con, Long smsId, Long operator, long leaseMillis) {
+        return update(con, "insert ignore into " + leaseTable + " (sms_id, operator, fencing_token, expires_at) values (?, 0, 0, 0)",
+            new JsonArray().add(smsId))
+            .mapToPromise(v -> update(con, "update " + leaseTable
+                    + " set operator = ?, fencing_token = 0, expires_at = " + NOW_MILLIS + " + ?"
+                    + " where sms_id = ? and expires_at < " + NOW_MILLIS,
+                new JsonArray().add(operator).add(leaseMillis).add(smsId)))
+            .mapToPromise(claimed -> {
+                if (claimed.getUpdated() == 0) {
+                    return query(con, "select operator from " + leaseTable + " where sms_id = ?", new JsonArray().add(smsId))
+                        .map(rs -> new Lease(false, rs.getRows().get(0).getLong("operator"), null));
+                }
+                return update(con, "update " + sequenceTable + " set token = last_insert_id(token + 1) where id = 1",
+                    new JsonArray())
+                    .mapToPromise(v -> query(con, "select last_insert_id() as token", new JsonArray()))
+                    .map(rs -> rs.getRows().get(0).getLong("token"))
+                    .mapToPromise(token -> update(con, "update " + leaseTable + " set fencing_token = ?"
+                            + " where sms_id = ? and operator = ?",
+                        new JsonArray().add(token).add(smsId).add(operator))
+                        .map(v -> new Lease(true, operator, token)));
+            });
+    }
+
+    @Override
+    public Promise<Void> release(Long smsId, Long operator) {
+        return withConnection(con -> update(con, "delete from " + leaseTable + " where sms_id = ? and operator = ?",
+            new JsonArray().add(smsId).add(operator))
+            .map(updated -> (Void) null));
+    }
+
+    @Override
+    public Promise<Boolean> validate(Long smsId, Long operator, Long fencingToken) {
+        if (fencingToken == null) {
+            return Promises.from(false);
+        }
+        return withConnection(con -> query(con, "select 1 from " + leaseTable
+                + " where sms_id = ? and operator = ? and fencing_token = ? and expires_at >= " + NOW_MILLIS,
+            new JsonArray().add(smsId).add(operator).add(fencingToken))
+            .map(rs -> rs.getNumRows() > 0));
+    }
+
+    private <T> Promise<T> withConnection(Function<SQLConnection, Promise<T>> function) {
+        return MyUtil.getConnection(jdbcClient)
+            .mapToPromise(con -> {
+                try {
+                    return function.apply(con)
+                        .then(v -> con.close())
+                        .error(e -> con.close());
+                } catch (Exception ex) {
+                    con.close();
+                    return Promises.fromError(ex);
+                }
+            });
+    }
+
+    private static Promise<Void> execute(SQLConnection con, String sql) {
+        final Defer<Void> defer = Promises.defer();
+        con.execute(sql, Util.makeDeferred(defer));
+        return defer.promise();
+    }
+
+    private static Promise<UpdateResult> update(SQLConnection con, String sql, JsonArray params) {
+        final Defer<UpdateResult> defer = Promises.defer();
+        con.updateWithParams(sql, params, Util.makeDeferred(defer));
+        return defer.promise();
+    }
+
+    private static Promise<ResultSet> query(SQLConnection con, String sql, JsonArray params) {
+        final Defer<ResultSet> defer = Promises.defer();
+        con.queryWithParams(sql, params, Util.makeDeferred(defer));
+        return defer.promise();
+    }
+}
@@ -0,0 +1,115 @@
+package com.imslbd.call_center.service;
+
+import io.crm.util.ExceptionUtil;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.json.JsonObject;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Size bounded, TTL based cache for upstream call review GET responses.
+ * Entries are keyed by the absolute url (baseUrl + path + query) and the ttl is resolved per endpoint path
+ * from the RESPONSE_CACHE section of config.json. A path without a configured ttl is never cached.
+ * Expired entries stay until they are evicted so they can still serve as a fallback when upstream fails.
+ * <p>
+ * Created by someone on 18/10/2026.
+ */
+public class ResponseCache {
+    public static final String RESPONSE_CACHE = "RESPONSE_CACHE";
+    private static final String MAX_ENTRIES = "maxEntries";
+    private static final String TTL_SECONDS = "ttlSeconds";
+    private static final int DEFAULT_MAX_ENTRIES = 1000;
+
+    private final int maxEntries;
+    private final JsonObject ttlSeconds;
+    private final LinkedHashMap<String, Entry> entries;
+    private long hits;
+    private long misses;
+    private long staleReplies;
+
+    public ResponseCache(JsonObject config) {
+        final JsonObject cfg = config == null ? new JsonObject() : config;
+        this.maxEntries = cfg.getInteger(MAX_ENTRIES, DEFAULT_MAX_ENTRIES);
+        this.ttlSeconds = cfg.getJsonObject(TTL_SECONDS, new JsonObject());
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    public boolean isCacheable(String path) {
+        return ttlSeconds.getLong(path, 0L) > 0;
+    }
+
+    /**
+     * @return the cached response for the url or null if it is absent or expired.
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized <T> T get(String path, String url) {
+        if (!isCacheable(path)) {
+            return null;
+        }
+        final Entry entry = entries.get(url);
+        if (entry == null || entry.expiresAt < System.currentTimeMillis()) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return (T) entry.value;
+    }
+
+    public synchronized void put(String path, String url, Object value) {
+        if (!isCacheable(path) || value == null) {
+            return;
+        }
+        entries.put(url, new Entry(value, System.currentTimeMillis() + ttlSeconds.getLong(path) * 1000));
+    }
+
+    /**
+     * @return the last good response for the url, expired or not, or null if none was ever cached.
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized <T> T getStale(String url) {
+        final Entry entry = entries.get(url);
+        return entry == null ? null : (T) entry.value;
+    }
+
+    /**
+     * Falls back to the last good response for the url when the upstream call failed, fails the message otherwise.
+     */
+    public synchronized void replyStaleOrFail(String url, Message<?> message, Throwable e) {
+        final Object stale = getStale(url);
+        if (stale != null) {
+            staleReplies++;
+            message.reply(stale);
+            return;
+        }
+        ExceptionUtil.fail(message, e);
+    }
+
+    public synchronized void invalidate(String url) {
+        entries.remove(url);
+    }
+
+    public synchronized JsonObject stats() {
+        return new JsonObject()
+            .put("size", entries.size())
+            .put(MAX_ENTRIES, maxEntries)
+            .put("hits", hits)
+            .put("misses", misses)
+            .put("staleReplies", staleReplies);
+    }
+
+    private static final class Entry {
+        private final Object value;
+        private final long expiresAt;
+
+        private Entry(Object value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.imslbd.call_center.service;
+
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hashed timing wheel driven by a single periodic vert.x timer. A key scheduled for delay ticks is put in slot
+ * (current tick + delay) of the wheel together with the number of full rotations it still has to wait; every
+ * tick only the keys of one slot are looked at. Scheduling and cancelling are constant time, and all keys
+ * expiring on a tick are handed to the expiry handler as one batch.
+ * <p>
+ * Created by someone on 18/10/2026.
+ */
+public class TimingWheel<K> {
+    private final Vertx vertx;
+    private final long tickMillis;
+    private final Timeout<K>[] wheel;
+    private final int mask;
+    private final Map<K, Timeout<K>> timeouts = new HashMap<>();
+    private final Handler<List<K>> expiryHandler;
+    private final long timer;
+    private long tick;
+    private long expired;
+
+    /**
+     * @param wheelSize number of slots, rounded up to a power of two.
+     */
+    @SuppressWarnings("unchecked")
+    public TimingWheel(Vertx vertx, long tickMillis, int wheelSize, Handler<List<K>> expiryHandler) {
+        int size = 1;
+        while (size < wheelSize) {
+            size <<= 1;
+        }
+        this.vertx = vertx;
+        this.tickMillis = tickMillis;
+        this.wheel = new Timeout[size];
+        this.mask = size - 1;
+        this.expiryHandler = expiryHandler;
+        this.timer = vertx.setPeriodic(tickMillis, id -> tick());
+    }
+
+    /**
+     * Schedules the key to expire after the delay, replacing an earlier schedule of the same key.
+     */
+    public synchronized void schedule(K key, long delayMillis) {
+        cancel(key);
+        final long ticks = Math.max(1, (delayMillis + tickMillis - 1) / tickMillis);
+        final Timeout<K> timeout = new Timeout<>(key, (int) ((tick + ticks) & mask), (ticks - 1) / wheel.length);
+        link(timeout);
+        timeouts.put(key, timeout);
+    }
+
+    /**
+     * @return false if the key was not scheduled.
+     */
+    public synchronized boolean cancel(K key) {
+        final Timeout<K> timeout = timeouts.remove(key);
+        if (timeout == null) {
+            return false;
+        }
+        unlink(timeout);
+        return true;
+    }
+
+    private void tick() {
+        final List<K> keys = new ArrayList<>();
+        synchronized (this) {
+            tick++;
+            Timeout<K> timeout = wheel[(int) (tick & mask)];
+            while (timeout != null) {
+                final Timeout<K> next = timeout.next;
+                if (timeout.rounds > 0) {
+                    timeout.rounds--;
+                } else {
+                    unlink(timeout);
+                    timeouts.remove(timeout.key);
+                    keys.add(timeout.key);
+                }
+                timeout = next;
+            }
+            expired += keys.size();
+        }
+        if (!keys.isEmpty()) {
+            expiryHandler.handle(keys);
+        }
+    }
+
+    private void link(Timeout<K> timeout) {
+        final Timeout<K> head = wheel[timeout.slot];
+        timeout.next = head;
+        if (head != null) {
+            head.prev = timeout;
+        }
+        wheel[timeout.slot] = timeout;
+    }
+
+    private void unlink(Timeout<K> timeout) {
+        if (timeout.prev == null) {
+            wheel[timeout.slot] = timeout.next;
+        } else {
+            timeout.prev.next = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.prev = timeout.prev;
+        }
+        timeout.prev = null;
+        timeout.next = null;
+    }
+
+    public void close() {
+        vertx.cancelTimer(timer);
+    }
+
+    public synchronized JsonObject stats() {
+        return new JsonObject()
+            .put("scheduled", timeouts.size())
+            .put("slots", wheel.length)
+            .put("tickMillis", tickMillis)
+            .put("expired", expired);
+    }
+
+    private static final class Timeout<K> {
+        private final K key;
+        private final int slot;
+        private long rounds;
+        private Timeout<K> prev;
+        private Timeout<K> next;
+
+        private Timeout(K key, int slot, long rounds) {
+            this.key = key;
+            this.slot = slot;
+            this.rounds = rounds;
+        }
+    }
+}
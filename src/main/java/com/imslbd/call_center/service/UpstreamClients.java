@@ -0,0 +1,282 @@
+package com.imslbd.call_center.service;
+
+import com.imslbd.call_center.MainVerticle;
+import com.imslbd.call_center.MyApp;
+import com.imslbd.call_center.gv;
+import com.imslbd.call_center.util.MyUtil;
+import io.crm.util.ExceptionUtil;
+import io.crm.util.Util;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientOptions;
+import io.vertx.core.http.HttpClientRequest;
+import io.vertx.core.http.HttpClientResponse;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.json.JsonObject;
+
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps one managed connection pool per upstream call review host, so campaigns whose baseUrl points at
+ * different hosts do not compete for the same connections. Pools are created on first use from the
+ * UPSTREAM_POOL section of config.json and closed again once they have been idle for evictAfterIdleSeconds.
+ * Each host is also a bulkhead of maxConcurrentRequests and each endpoint (host + path) has its own
+ * {@link CircuitBreaker}; requests rejected by either fail fast with {@link RejectedException}. The breaker
+ * settings of circuitBreaker.endpoints, keyed by path, override the defaults for that endpoint.
+ * <p>
+ * Created by someone on 18/10/2026.
+ */
+public class UpstreamClients {
+    public static final String UPSTREAM_POOL = "UPSTREAM_POOL";
+    private static final String MAX_CONNECTIONS = "maxConnections";
+    private static final String KEEP_ALIVE = "keepAlive";
+    private static final String PIPELINING = "pipelining";
+    private static final String CONNECT_TIMEOUT_MILLIS = "connectTimeoutMillis";
+    private static final String IDLE_TIMEOUT_SECONDS = "idleTimeoutSeconds";
+    private static final String REQUEST_TIMEOUT_SECONDS = "requestTimeoutSeconds";
+    private static final String EVICT_AFTER_IDLE_SECONDS = "evictAfterIdleSeconds";
+    private static final String MAX_CONCURRENT_REQUESTS = "maxConcurrentRequests";
+    private static final String CIRCUIT_BREAKER = "circuitBreaker";
+    private static final String ENDPOINTS = "endpoints";
+
+    private final Vertx vertx;
+    private final JsonObject config;
+    private final String defaultBaseUrl;
+    private final long requestTimeout;
+    private final long evictAfterIdle;
+    private final int maxConcurrentRequests;
+    private final JsonObject circuitBreakerConfig;
+    private final Map<String, Pool> pools = new HashMap<>();
+    private final Map<String, CircuitBreaker> circuitBreakers = new HashMap<>();
+    private final long evictionTimer;
+
+    public UpstreamClients(Vertx vertx, JsonObject config) {
+        this.vertx = vertx;
+        this.config = config == null ? new JsonObject() : config;
+        this.defaultBaseUrl = MyUtil.mobiBaseUrl(
+            MyApp.loadConfig().getString(MainVerticle.PROP_CALL_REVIEW_HOST),
+            MyApp.loadConfig().getInteger(MainVerticle.PROP_CALL_REVIEW_PORT));
+        this.requestTimeout = TimeUnit.SECONDS.toMillis(this.config.getLong(REQUEST_TIMEOUT_SECONDS, 300L));
+        this.evictAfterIdle = TimeUnit.SECONDS.toMillis(this.config.getLong(EVICT_AFTER_IDLE_SECONDS, 600L));
+        this.maxConcurrentRequests = this.config.getInteger(MAX_CONCURRENT_REQUESTS, 100);
+        this.circuitBreakerConfig = this.config.getJsonObject(CIRCUIT_BREAKER, new JsonObject());
+        this.evictionTimer = vertx.setPeriodic(Math.max(evictAfterIdle / 2, 1000), id -> evictIdle());
+    }
+
+    public String defaultBaseUrl() {
+        return defaultBaseUrl;
+    }
+
+    public void get(String url, Handler<HttpClientResponse> responseHandler, Handler<Throwable> exceptionHandler) {
+        request(HttpMethod.GET, url, null, responseHandler, exceptionHandler);
+    }
+
+    public void post(String url, String body, Handler<HttpClientResponse> responseHandler, Handler<Throwable> exceptionHandler) {
+        request(HttpMethod.POST, url, body, responseHandler, exceptionHandler);
+    }
+
+    private void request(HttpMethod method, String url, String body,
+                         Handler<HttpClientResponse> responseHandler, Handler<Throwable> exceptionHandler) {
+        final Pool pool = pool(url);
+        final CircuitBreaker circuitBreaker = circuitBreaker(url);
+
+        if (!circuitBreaker.tryAcquire()) {
+            exceptionHandler.handle(new RejectedException("Circuit open for " + endpointKey(url)));
+            return;
+        }
+        if (!pool.tryAcquire(maxConcurrentRequests)) {
+            circuitBreaker.cancel();
+            exceptionHandler.handle(new RejectedException("Too many concurrent requests to " + hostKey(url)));
+            return;
+        }
+
+        final long start = System.nanoTime();
+        final boolean[] done = new boolean[1];
+        final HttpClientRequest request = pool.client.requestAbs(method, url, res -> {
+            if (!done[0]) {
+                done[0] = true;
+                final long elapsed = System.nanoTime() - start;
+                pool.release(elapsed);
+                if (res.statusCode() >= 500) {
+                    circuitBreaker.onFailure();
+                } else {
+                    circuitBreaker.onSuccess(TimeUnit.NANOSECONDS.toMillis(elapsed));
+                }
+            }
+            responseHandler.handle(res);
+        });
+        request
+            .setTimeout(requestTimeout)
+            .exceptionHandler(e -> {
+                if (!done[0]) {
+                    done[0] = true;
+                    pool.release(System.nanoTime() - start);
+                    circuitBreaker.onFailure();
+                }
+                exceptionHandler.handle(e);
+            });
+
+        request
+            .sendHead()
+            .putHeader(gv.X_Requested_With, Services.CALL_CENTER_JAVA);
+
+        if (body == null) {
+            request.end();
+        } else {
+            request
+                .putHeader(HttpHeaders.CONTENT_LENGTH, Util.toString(body.length()))
+                .write(body)
+                .end();
+        }
+    }
+
+    private synchronized CircuitBreaker circuitBreaker(String url) {
+        final String key = endpointKey(url);
+        CircuitBreaker circuitBreaker = circuitBreakers.get(key);
+        if (circuitBreaker == null) {
+            circuitBreaker = new CircuitBreaker(circuitBreakerConfig(url));
+            circuitBreakers.put(key, circuitBreaker);
+        }
+        return circuitBreaker;
+    }
+
+    /**
+     * @return the default breaker settings with those of the url's path applied over them.
+     */
+    private JsonObject circuitBreakerConfig(String url) {
+        final JsonObject cfg = circuitBreakerConfig.copy();
+        final JsonObject endpoints = (JsonObject) cfg.remove(ENDPOINTS);
+        final String path = ExceptionUtil.toRuntimeCall(() -> new URL(url)).getPath();
+        if (endpoints != null && endpoints.getJsonObject(path) != null) {
+            cfg.mergeIn(endpoints.getJsonObject(path));
+        }
+        return cfg;
+    }
+
+    private synchronized Pool pool(String url) {
+        final String key = hostKey(url);
+        Pool pool = pools.get(key);
+        if (pool == null) {
+            pool = new Pool(vertx.createHttpClient(clientOptions()), config.getInteger(MAX_CONNECTIONS, 20));
+            pools.put(key, pool);
+        }
+        pool.lastUsed = System.currentTimeMillis();
+        return pool;
+    }
+
+    private HttpClientOptions clientOptions() {
+        return new HttpClientOptions()
+            .setMaxPoolSize(config.getInteger(MAX_CONNECTIONS, 20))
+            .setKeepAlive(config.getBoolean(KEEP_ALIVE, true))
+            .setPipelining(config.getBoolean(PIPELINING, false))
+            .setConnectTimeout(config.getInteger(CONNECT_TIMEOUT_MILLIS, 5000))
+            .setIdleTimeout(config.getInteger(IDLE_TIMEOUT_SECONDS, 60));
+    }
+
+    private static String hostKey(String url) {
+        final URL u = ExceptionUtil.toRuntimeCall(() -> new URL(url));
+        return u.getHost() + ":" + (u.getPort() > 0 ? u.getPort() : u.getDefaultPort());
+    }
+
+    private static String endpointKey(String url) {
+        return hostKey(url) + ExceptionUtil.toRuntimeCall(() -> new URL(url)).getPath();
+    }
+
+    private synchronized void evictIdle() {
+        final long now = System.currentTimeMillis();
+        final Iterator<Map.Entry<String, Pool>> iterator = pools.entrySet().iterator();
+        while (iterator.hasNext()) {
+            final Pool pool = iterator.next().getValue();
+            if (pool.inFlight == 0 && now - pool.lastUsed > evictAfterIdle) {
+                pool.client.close();
+                iterator.remove();
+            }
+        }
+    }
+
+    public synchronized JsonObject stats() {
+        final JsonObject stats = new JsonObject();
+        pools.forEach((host, pool) -> stats.put(host, pool.stats()));
+        return stats;
+    }
+
+    public synchronized JsonObject circuitBreakerStats() {
+        final JsonObject stats = new JsonObject();
+        circuitBreakers.forEach((endpoint, circuitBreaker) -> stats.put(endpoint, circuitBreaker.stats()));
+        return stats;
+    }
+
+    public synchronized void close() {
+        vertx.cancelTimer(evictionTimer);
+        pools.values().forEach(pool -> pool.client.close());
+        pools.clear();
+    }
+
+    /**
+     * Raised without contacting upstream when the endpoint's circuit is open or the host's bulkhead is full.
+     */
+    public static class RejectedException extends RuntimeException {
+        public RejectedException(String message) {
+            super(message);
+        }
+    }
+
+    private static final class Pool {
+        private final HttpClient client;
+        private final int maxConnections;
+        private int inFlight;
+        private long requests;
+        private long queued;
+        private long rejected;
+        private long totalLatencyNanos;
+        private long maxLatencyNanos;
+        private long completed;
+        private volatile long lastUsed;
+
+        private Pool(HttpClient client, int maxConnections) {
+            this.client = client;
+            this.maxConnections = maxConnections;
+        }
+
+        private synchronized boolean tryAcquire(int maxConcurrentRequests) {
+            if (inFlight >= maxConcurrentRequests) {
+                rejected++;
+                return false;
+            }
+            if (inFlight >= maxConnections) {
+                queued++;
+            }
+            inFlight++;
+            requests++;
+            return true;
+        }
+
+        /**
+         * @param latencyNanos time from queueing the request to its response or failure, connection wait included.
+         */
+        private synchronized void release(long latencyNanos) {
+            inFlight--;
+            completed++;
+            totalLatencyNanos += latencyNanos;
+            maxLatencyNanos = Math.max(maxLatencyNanos, latencyNanos);
+        }
+
+        private synchronized JsonObject stats() {
+            return new JsonObject()
+                .put(MAX_CONNECTIONS, maxConnections)
+                .put("inFlight", inFlight)
+                .put("occupancy", Math.min(inFlight, maxConnections) / (double) maxConnections)
+                .put("requests", requests)
+                .put("queued", queued)
+                .put("rejected", rejected)
+                .put("avgLatencyMillis", completed == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalLatencyNanos / completed))
+                .put("maxLatencyMillis", TimeUnit.NANOSECONDS.toMillis(maxLatencyNanos));
+        }
+    }
+}
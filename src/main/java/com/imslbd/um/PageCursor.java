@@ -0,0 +1,87 @@
+package com.imslbd.um;
+
+import io.vertx.core.json.JsonObject;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque position of a keyset paged list: the sort key and id of the last row of the previous page. A findAll
+ * request carrying a "cursor" (empty for the first page) is answered with the rows after that position through
+ * an indexed seek instead of "limit size offset n", and a pagination holding the cursor of the next page. The
+ * total count is only computed when the request asks for it with withTotal, so every page costs the same.
+ * <p>
+ * Created by someone on 18/10/2026.
+ */
+public final class PageCursor {
+    public static final String CURSOR = "cursor";
+    public static final String WITH_TOTAL = "withTotal";
+    public static final String NEXT_CURSOR = "nextCursor";
+    public static final String HAS_MORE = "hasMore";
+    private static final String SORT_KEY = "k";
+    private static final String ID = "id";
+
+    private final Object sortKey;
+    private final Object id;
+
+    private PageCursor(Object sortKey, Object id) {
+        this.sortKey = sortKey;
+        this.id = id;
+    }
+
+    /**
+     * @return true if the request asks for keyset paging.
+     */
+    public static boolean requested(JsonObject params) {
+        return params != null && params.containsKey(CURSOR);
+    }
+
+    public static boolean withTotal(JsonObject params) {
+        return params != null && Boolean.TRUE.equals(params.getValue(WITH_TOTAL));
+    }
+
+    /**
+     * @return the cursor of the request or null for the first page.
+     */
+    public static PageCursor of(JsonObject params) {
+        final Object cursor = params.getValue(CURSOR);
+        if (cursor == null || cursor.toString().isEmpty()) {
+            return null;
+        }
+        try {
+            final JsonObject json = new JsonObject(
+                new String(Base64.getUrlDecoder().decode(cursor.toString()), StandardCharsets.UTF_8));
+            return new PageCursor(json.getValue(SORT_KEY), json.getValue(ID));
+        } catch (Exception ex) {
+            throw new IllegalArgumentException("Invalid page cursor " + cursor, ex);
+        }
+    }
+
+    public static String encode(Object sortKey, Object id) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(
+            new JsonObject().put(SORT_KEY, sortKey).put(ID, id).encode().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param nextCursor cursor of the next page, null on the last page.
+     * @param total      total count or null if it was not asked for.
+     */
+    public static JsonObject pagination(int size, String nextCursor, Long total) {
+        final JsonObject pagination = new JsonObject()
+            .put("size", size)
+            .put(NEXT_CURSOR, nextCursor)
+            .put(HAS_MORE, nextCursor != null);
+        if (total != null) {
+            pagination.put("total", total);
+        }
+        return pagination;
+    }
+
+    public Object getSortKey() {
+        return sortKey;
+    }
+
+    public Object getId() {
+        return id;
+    }
+}
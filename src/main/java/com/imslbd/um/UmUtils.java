@@ -1,8 +1,18 @@
 package com.imslbd.um;
 
+import io.crm.promise.Promises;
+import io.crm.promise.intfs.Defer;
+import io.crm.promise.intfs.Promise;
 import io.crm.util.DataTypes;
+import io.crm.util.Util;
+import io.crm.util.touple.immutable.Tpl2;
 import io.crm.web.util.WebUtils;
+import io.vertx.core.json.JsonArray;
+import io.vertx.ext.jdbc.JDBCClient;
+import io.vertx.ext.sql.SQLConnection;
+import io.vertx.ext.sql.UpdateResult;
 
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -14,6 +24,60 @@ public class UmUtils {
         return "limit " + size + " offset " + WebUtils.offset(page, size);
     }
 
+    /**
+     * Parameterised counterpart of WebUtils.update, the statement is prepared with ? placeholders so the
+     * driver can cache it instead of parsing a new sql string for every set of values.
+     */
+    public static Promise<UpdateResult> update(String sql, JsonArray params, JDBCClient jdbcClient) {
+        return WebUtils.getConnection(jdbcClient)
+            .mapToPromise(con -> {
+                try {
+                    return update(sql, params, con)
+                        .then(v -> con.close())
+                        .error(e -> con.close());
+                } catch (Exception ex) {
+                    con.close();
+                    return Promises.fromError(ex);
+                }
+            });
+    }
+
+    /**
+     * Parameterised counterpart of WebUtils.multiUpdate, runs the statements one after another in one transaction
+     * on one connection: they are committed together or, if any of them fails, rolled back together.
+     */
+    public static Promise<Void> multiUpdate(List<Tpl2<String, JsonArray>> statements, JDBCClient jdbcClient) {
+        return WebUtils.getConnection(jdbcClient)
+            .mapToPromise(con -> {
+                try {
+                    final Defer<Void> autoCommit = Promises.defer();
+                    con.setAutoCommit(false, Util.makeDeferred(autoCommit));
+                    Promise<Void> promise = autoCommit.promise();
+                    for (Tpl2<String, JsonArray> statement : statements) {
+                        promise = promise.mapToPromise(
+                            v -> update(statement.getT1(), statement.getT2(), con).map(updateResult -> (Void) null));
+                    }
+                    return promise
+                        .mapToPromise(v -> {
+                            final Defer<Void> commit = Promises.defer();
+                            con.commit(Util.makeDeferred(commit));
+                            return commit.promise();
+                        })
+                        .then(v -> con.close())
+                        .error(e -> con.rollback(r -> con.close()));
+                } catch (Exception ex) {
+                    con.close();
+                    return Promises.fromError(ex);
+                }
+            });
+    }
+
+    private static Promise<UpdateResult> update(String sql, JsonArray params, SQLConnection con) {
+        final Defer<UpdateResult> defer = Promises.defer();
+        con.updateWithParams(sql, params, Util.makeDeferred(defer));
+        return defer.promise();
+    }
+
     public static DataTypes resolve(Object value) {
         return null;
     }
@@ -8,5 +8,6 @@ public class ProductUnitPrice {
     public static final String PRICE = "price";
     public static final String AMOUNT = "amount";
     public static final String PRODUCT_ID = "productId";
+    public static final String UNIT_ID = "unitId";
     public static final String ID = "id";
 }
@@ -21,12 +21,14 @@ import io.crm.promise.Decision;
 import io.crm.promise.Promises;
 import io.crm.util.ExceptionUtil;
 import io.crm.util.Util;
+import io.crm.util.touple.immutable.Tpls;
 import io.crm.web.util.Converters;
 import io.crm.web.util.Pagination;
 import io.crm.web.util.WebUtils;
 import io.vertx.core.Vertx;
 import io.vertx.core.eventbus.DeliveryOptions;
 import io.vertx.core.eventbus.Message;
+import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.jdbc.JDBCClient;
 import io.vertx.ext.sql.ResultSet;
@@ -40,8 +42,6 @@ import java.util.List;
 import java.util.stream.Collectors;
 
 import static com.imslbd.um.service.Services.AUTH_TOKEN;
-import static com.imslbd.um.service.Services.converters;
-import static io.crm.web.util.WebUtils.multiUpdate;
 import static io.crm.web.util.WebUtils.query;
 import static io.crm.web.util.WebUtils.update;
 
@@ -65,6 +65,7 @@ public class InventoryService {
     private static final String SRC_QUANTITY_LESS_THAN_DESTINATION_QUANTITY = "SRC_QUANTITY_LESS_THAN_DESTINATION_QUANTITY";
 
     private final Vertx vertx;
+    private final TotalCounts totalCounts;
     private final JDBCClient jdbcClient;
     private final RemoveNullsTransformation removeNullsTransformation;
     private final DefaultValueTransformation defaultValueTransformationParams = new DefaultValueTransformation(Util.EMPTY_JSON_OBJECT);
@@ -84,13 +85,16 @@ public class InventoryService {
     private final ValidationPipeline<JsonObject> validationPipeline;
     private final String SRC_DEST_SAME = "SRC_DEST_SAME";
 
-    public InventoryService(JDBCClient jdbcClient, String[] fields, String[] inventoryProductFields, Vertx vertx) {
+    public InventoryService(JDBCClient jdbcClient, SchemaRegistry schema, Vertx vertx, TotalCounts totalCounts) {
+        final String[] fields = schema.columns(TABLE_NAME);
+        final String[] inventoryProductFields = schema.columns(Tables.inventoryProducts.name());
         this.vertx = vertx;
+        this.totalCounts = totalCounts;
         this.jdbcClient = jdbcClient;
 
         removeNullsTransformation = new RemoveNullsTransformation();
         includeExcludeTransformation = new IncludeExcludeTransformation(ImmutableSet.copyOf(fields), null);
-        converterTransformation = new ConverterTransformation(converters(fields, TABLE_NAME));
+        converterTransformation = new ConverterTransformation(schema.converters(TABLE_NAME));
 
         defaultValueTransformation = new DefaultValueTransformation(
             new JsonObject()
@@ -111,7 +115,7 @@ public class InventoryService {
         validationPipeline = new ValidationPipeline<>(ImmutableList.copyOf(validators()));
 
 
-        productConverterTransformation = new ConverterTransformation(converters(inventoryProductFields, Tables.inventoryProducts.name()));
+        productConverterTransformation = new ConverterTransformation(schema.converters(Tables.inventoryProducts.name()));
         productIncludeExcludeTransformation = new IncludeExcludeTransformation(ImmutableSet.copyOf(inventoryProductFields), null);
         productDefaultValueTransformation = new DefaultValueTransformation(
             new JsonObject().put(InventoryProduct.AVAILABLE, 0)
@@ -149,14 +153,32 @@ public class InventoryService {
                 int page = json.getInteger(PAGE, 1);
                 int size = json.getInteger(SIZE, DEFAULT_PAGE_SIZE);
                 String from = "from " + TABLE_NAME;
+                final boolean keyset = PageCursor.requested(json);
+                final PageCursor cursor = keyset ? PageCursor.of(json) : null;
+
+                final String pageSql;
+                final JsonArray pageParams = new JsonArray();
+                if (keyset) {
+                    String seek = "";
+                    if (cursor != null) {
+                        seek = " where name > ? or (name = ? and id > ?)";
+                        pageParams.add(cursor.getSortKey()).add(cursor.getSortKey()).add(cursor.getId());
+                    }
+                    pageSql = "select * " + from + seek +
+                        " order by name asc, id asc" +
+                        " limit " + (size + 1);
+                } else {
+                    pageSql = "select * " + from +
+                        " order by name asc" +
+                        " " + UmUtils.limitOffset(page, size);
+                }
 
                 Promises.when(
-                    query("select count(*) as totalCount " + from, jdbcClient)
-                        .map(resultSet -> resultSet.getResults().get(0).getLong(0)),
-                    query(
-                        "select * " + from +
-                            " " + "order by name asc" +
-                            " " + UmUtils.limitOffset(page, size), jdbcClient)
+                    !keyset || PageCursor.withTotal(json)
+                        ? totalCounts.count(TABLE_NAME, new JsonObject(), () -> query("select count(*) as totalCount " + from, jdbcClient)
+                        .map(resultSet -> resultSet.getResults().get(0).getLong(0)))
+                        : Promises.from((TotalCounts.Total) null),
+                    query(pageSql, pageParams, jdbcClient)
                         .map(resultSet3 -> new JsonObject()
                             .put(HEADERS, resultSet3.getColumnNames()
                                 .stream()
@@ -164,9 +186,19 @@ public class InventoryService {
                                 .collect(Collectors.toList()))
                             .put(DATA, resultSet3.getRows())))
                     .map(tpl2 -> tpl2.apply(
-                        (totalCount, js) ->
-                            js.put(PAGINATION,
-                                new Pagination(page, size, totalCount).toJson())))
+                        (totalCount, js) -> {
+                            if (!keyset) {
+                                return js.put(PAGINATION, TotalCounts.pagination(totalCount,
+                                    count -> new Pagination(page, size, count).toJson()));
+                            }
+                            final List<JsonObject> rows = js.getJsonArray(DATA).getList();
+                            final JsonObject last = rows.size() > size ? rows.get(size - 1) : null;
+                            return js
+                                .put(DATA, new ArrayList<>(rows.subList(0, Math.min(size, rows.size()))))
+                                .put(PAGINATION, TotalCounts.pagination(totalCount, count -> PageCursor.pagination(size,
+                                    last == null ? null : PageCursor.encode(last.getValue("name"), last.getValue("id")),
+                                    count)));
+                        }))
                     .then(message::reply)
                     .error(e -> ExceptionUtil.fail(message, e))
                 ;
@@ -179,7 +211,7 @@ public class InventoryService {
         Promises
             .callable(message::body)
             .then(
-                id -> query("select * from " + TABLE_NAME + " where id = " + id, jdbcClient)
+                id -> query("select * from " + TABLE_NAME + " where id = ?", new JsonArray().add(id), jdbcClient)
                     .decide(resultSet -> resultSet.getNumRows() < 1 ? INVENTORY_NOT_FOUND : Decision.CONTINUE)
                     .on(INVENTORY_NOT_FOUND,
                         rs -> {
@@ -515,9 +547,10 @@ public class InventoryService {
                     .put(InventoryProduct.INVENTORY_ID,
                         qqr.getLong(InventoryProduct.DEST_INVENTORY_ID)))
             .mapToPromise(v -> WebUtils.query("select quantity from inventoryProducts where " +
-                "inventoryId = " + v.getLong(InventoryProduct.SRC_INVENTORY_ID) +
-                " AND " +
-                "productId = " + v.getLong(InventoryProduct.PRODUCT_ID), jdbcClient)
+                "inventoryId = ? AND productId = ?",
+                new JsonArray()
+                    .add(v.getLong(InventoryProduct.SRC_INVENTORY_ID))
+                    .add(v.getLong(InventoryProduct.PRODUCT_ID)), jdbcClient)
                 .map(rs -> (JsonObject) v.put(InventoryProduct.SRC_QUANTITY, rs.getNumRows() <= 0 ? 0 : rs.getResults().get(0).getInteger(0))))
             .decide(
                 req -> req.getLong(InventoryProduct.SRC_INVENTORY_ID)
@@ -537,10 +570,10 @@ public class InventoryService {
                 val1 -> Promises.from(val1)
                     .mapToPromise(
                         qqr -> query("SELECT quantity, unitId FROM `inventoryProducts` " +
-                            " WHERE " +
-                            "inventoryId = " + qqr.getLong(InventoryProduct.INVENTORY_ID) +
-                            " AND " +
-                            "productId = " + qqr.getLong(InventoryProduct.PRODUCT_ID), jdbcClient)
+                            " WHERE inventoryId = ? AND productId = ?",
+                            new JsonArray()
+                                .add(qqr.getLong(InventoryProduct.INVENTORY_ID))
+                                .add(qqr.getLong(InventoryProduct.PRODUCT_ID)), jdbcClient)
                             .map(
                                 v -> {
                                     double newQuantity = v.getNumRows() > 0 ? v.getResults().get(0).getDouble(0) : 0;
@@ -566,25 +599,26 @@ public class InventoryService {
 
                     .contnue(
                         val3 -> Promises.from(val3)
-                            .mapToPromise(qqr -> WebUtils.update(
-                                "UPDATE `inventoryProducts` SET " +
-                                    "`quantity`= quantity - " + qqr.getDouble(InventoryProduct.QUANTITY) +
-                                    " WHERE " +
-                                    "inventoryId = " + qqr.getLong(InventoryProduct.SRC_INVENTORY_ID) +
-                                    " AND " +
-                                    "productId = " + qqr.getLong(InventoryProduct.PRODUCT_ID), jdbcClient)
-                                .map(v -> (JsonObject) qqr))
                             .mapToPromise(
-                                req -> multiUpdate(ImmutableList.of(
-                                    "DELETE FROM `inventoryProducts` WHERE inventoryId = " + req.getLong(InventoryProduct.INVENTORY_ID) + " " +
-                                        "and productId = " + req.getLong(InventoryProduct.PRODUCT_ID),
-                                    "INSERT INTO `inventoryProducts`" +
-                                        "(`inventoryId`, `productId`, `quantity`, `available`, `unitId`) VALUES " +
-                                        "(" + req.getLong(InventoryProduct.INVENTORY_ID) + " " +
-                                        "," + req.getLong(InventoryProduct.PRODUCT_ID) + " " +
-                                        "," + req.getDouble(InventoryProduct.NEQ_QUANTITY) + " " +
-                                        "," + 0 + " " +
-                                        "," + req.getLong(InventoryProduct.UNIT_ID) + ")"
+                                req -> UmUtils.multiUpdate(ImmutableList.of(
+                                    Tpls.of("UPDATE `inventoryProducts` SET `quantity`= quantity - ? " +
+                                            " WHERE inventoryId = ? AND productId = ?",
+                                        new JsonArray()
+                                            .add(req.getDouble(InventoryProduct.QUANTITY))
+                                            .add(req.getLong(InventoryProduct.SRC_INVENTORY_ID))
+                                            .add(req.getLong(InventoryProduct.PRODUCT_ID))),
+                                    Tpls.of("DELETE FROM `inventoryProducts` WHERE inventoryId = ? and productId = ?",
+                                        new JsonArray()
+                                            .add(req.getLong(InventoryProduct.INVENTORY_ID))
+                                            .add(req.getLong(InventoryProduct.PRODUCT_ID))),
+                                    Tpls.of("INSERT INTO `inventoryProducts`" +
+                                            "(`inventoryId`, `productId`, `quantity`, `available`, `unitId`) " +
+                                            "VALUES (?, ?, ?, 0, ?)",
+                                        new JsonArray()
+                                            .add(req.getLong(InventoryProduct.INVENTORY_ID))
+                                            .add(req.getLong(InventoryProduct.PRODUCT_ID))
+                                            .add(req.getDouble(InventoryProduct.NEQ_QUANTITY))
+                                            .add(req.getLong(InventoryProduct.UNIT_ID)))
                                 ), jdbcClient).map(vk -> val3))
                             .then(message::reply)
                             .then(req -> vertx.eventBus().publish(UmEvents.INVENTORY_PRODUCT_TRANSFERRED,
@@ -0,0 +1,391 @@
+package com.imslbd.um.service;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.imslbd.um.Tables;
+import com.imslbd.um.UmEvents;
+import com.imslbd.um.model.Product;
+import com.imslbd.um.model.ProductUnitPrice;
+import com.imslbd.um.model.Unit;
+import io.crm.promise.Promises;
+import io.crm.promise.intfs.Promise;
+import io.crm.web.util.Converters;
+import io.crm.web.util.WebUtils;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.jdbc.JDBCClient;
+import io.vertx.ext.sql.ResultSet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The products, their unit prices and the units held in memory with the price lists already assembled, so
+ * FIND_PRODUCT, FIND_ALL_PRODUCTS and PRODUCTS_UNIT_WISE_PRICE are answered without the product, price and unit
+ * joins. The tables are loaded once at startup and the catalog is kept current from the PRODUCT_* and UNIT_*
+ * events: a changed product is re-read with its prices by id, a deleted one is dropped and any unit change
+ * re-reads the units. Every change publishes a new immutable {@link Snapshot} with the next version, which the
+ * replies carry in the catalogVersion header.
+ * <p>
+ * Until the first load completes, or after a re-read failed, there is no snapshot and the reads go to the
+ * database. If reloadSeconds is set the whole catalog is also reloaded on that period.
+ * <p>
+ * Created by someone on 18/10/2026.
+ */
+public class ProductCatalog {
+    public static final Logger LOGGER = LoggerFactory.getLogger(ProductCatalog.class);
+    public static final String PRODUCT_CATALOG = "PRODUCT_CATALOG";
+    public static final String CATALOG_VERSION = "catalogVersion";
+    private static final String RELOAD_SECONDS = "reloadSeconds";
+    private static final Comparator<JsonObject> BY_NAME = Comparator
+        .comparing((JsonObject product) -> product.getString(Product.NAME), Comparator.nullsFirst(String.CASE_INSENSITIVE_ORDER))
+        .thenComparing(product -> product.getLong(Product.ID));
+
+    private final Vertx vertx;
+    private final JDBCClient jdbcClient;
+    private final long timer;
+    private final Map<Long, JsonObject> productRows = new HashMap<>();
+    private final Map<Long, List<JsonObject>> priceRows = new HashMap<>();
+    private final Map<Long, JsonObject> unitRows = new HashMap<>();
+    private final Map<Long, Long> productReads = new HashMap<>();
+    private volatile Snapshot snapshot;
+    private long version;
+    private long events;
+    private long unitReads;
+    private boolean loading;
+    private long loads;
+    private long productReloads;
+    private long unitReloads;
+    private long failures;
+
+    public ProductCatalog(Vertx vertx, JDBCClient jdbcClient, JsonObject config) {
+        final JsonObject cfg = config == null ? new JsonObject() : config;
+        final long reloadSeconds = cfg.getLong(RELOAD_SECONDS, 0L);
+        this.vertx = vertx;
+        this.jdbcClient = jdbcClient;
+
+        vertx.eventBus().consumer(UmEvents.PRODUCT_CREATED, this::productChanged);
+        vertx.eventBus().consumer(UmEvents.PRODUCT_UPDATED, this::productChanged);
+        vertx.eventBus().consumer(UmEvents.PRODUCT_DELETED, this::productChanged);
+        vertx.eventBus().consumer(UmEvents.UNIT_CREATED, message -> unitsChanged());
+        vertx.eventBus().consumer(UmEvents.UNIT_UPDATED, message -> unitsChanged());
+        vertx.eventBus().consumer(UmEvents.UNIT_DELETED, message -> unitsChanged());
+
+        this.timer = reloadSeconds > 0 ? vertx.setPeriodic(reloadSeconds * 1000, id -> load()) : -1;
+        load();
+    }
+
+    /**
+     * @return the current catalog or null while it can not be served from memory.
+     */
+    public Snapshot snapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Reads the three tables. A load that saw a product or unit event while it ran is started over, its rows
+     * may predate the change.
+     */
+    public void load() {
+        final long startEvents;
+        synchronized (this) {
+            if (loading) {
+                return;
+            }
+            loading = true;
+            startEvents = events;
+        }
+        Promises.when(ImmutableList.of(
+            query("select * from " + Tables.products, new JsonArray()),
+            query("select * from " + Tables.productUnitPrices + " order by id", new JsonArray()),
+            query("select * from " + Tables.units, new JsonArray())))
+            .then(resultSets -> {
+                final boolean again;
+                synchronized (this) {
+                    loading = false;
+                    again = events != startEvents;
+                    if (!again) {
+                        productRows.clear();
+                        priceRows.clear();
+                        unitRows.clear();
+                        resultSets.get(0).getRows().forEach(row -> productRows.put(row.getLong(Product.ID), row));
+                        resultSets.get(1).getRows().forEach(row -> priceRows
+                            .computeIfAbsent(row.getLong(ProductUnitPrice.PRODUCT_ID), id -> new ArrayList<>()).add(row));
+                        resultSets.get(2).getRows().forEach(row -> unitRows.put(row.getLong(Unit.ID), row));
+                        productReads.clear();
+                        unitReads = 0;
+                        loads++;
+                        publish();
+                        LOGGER.info("Loaded " + productRows.size() + " products into the catalog, version " + version);
+                    }
+                }
+                if (again) {
+                    load();
+                }
+            })
+            .error(e -> {
+                synchronized (this) {
+                    loading = false;
+                    failures++;
+                }
+                LOGGER.error("Error loading the product catalog", e);
+            })
+        ;
+    }
+
+    private void productChanged(Message<JsonObject> message) {
+        final Object value = message.body() == null ? null : message.body().getValue(Product.ID);
+        final Long id = value == null ? null : Converters.toLong(value.toString());
+        if (id != null && id == 0) {
+            return;
+        }
+        final long read;
+        synchronized (this) {
+            events++;
+            if (snapshot == null || id == null) {
+                invalidate();
+                return;
+            }
+            read = productReads.merge(id, 1L, Long::sum);
+        }
+        final JsonArray params = new JsonArray().add(id);
+        Promises.when(ImmutableList.of(
+            query("select * from " + Tables.products + " where id = ?", params),
+            query("select * from " + Tables.productUnitPrices + " where productId = ? order by id", params)))
+            .then(resultSets -> {
+                synchronized (this) {
+                    if (!Objects.equals(productReads.get(id), read)) {
+                        return;
+                    }
+                    productReads.remove(id);
+                    final List<JsonObject> products = resultSets.get(0).getRows();
+                    if (products.isEmpty()) {
+                        productRows.remove(id);
+                        priceRows.remove(id);
+                    } else {
+                        productRows.put(id, products.get(0));
+                        priceRows.put(id, new ArrayList<>(resultSets.get(1).getRows()));
+                    }
+                    productReloads++;
+                    publish();
+                }
+            })
+            .error(e -> {
+                LOGGER.error("Error re-reading product " + id + " into the catalog", e);
+                synchronized (this) {
+                    failures++;
+                    invalidate();
+                }
+            })
+        ;
+    }
+
+    private void unitsChanged() {
+        final long read;
+        synchronized (this) {
+            events++;
+            if (snapshot == null) {
+                invalidate();
+                return;
+            }
+            read = ++unitReads;
+        }
+        query("select * from " + Tables.units, new JsonArray())
+            .then(resultSet -> {
+                synchronized (this) {
+                    if (unitReads != read) {
+                        return;
+                    }
+                    unitRows.clear();
+                    resultSet.getRows().forEach(row -> unitRows.put(row.getLong(Unit.ID), row));
+                    unitReloads++;
+                    publish();
+                }
+            })
+            .error(e -> {
+                LOGGER.error("Error re-reading the units into the catalog", e);
+                synchronized (this) {
+                    failures++;
+                    invalidate();
+                }
+            })
+        ;
+    }
+
+    /**
+     * Stops serving from memory until a full load has brought the catalog back in step with the database.
+     */
+    private void invalidate() {
+        snapshot = null;
+        vertx.runOnContext(v -> load());
+    }
+
+    private Promise<ResultSet> query(String sql, JsonArray params) {
+        return WebUtils.query(sql, params, jdbcClient);
+    }
+
+    /**
+     * Assembles the products the way the product queries join them: a product is found if it has a price in a
+     * known unit and listed if its manufacturer price unit is known as well.
+     */
+    private void publish() {
+        final ImmutableMap.Builder<Long, JsonObject> products = ImmutableMap.builder();
+        final List<JsonObject> listed = new ArrayList<>();
+        final JsonObject unitWisePrice = new JsonObject();
+
+        productRows.forEach((id, row) -> {
+            final List<JsonObject> prices = new ArrayList<>();
+            priceRows.getOrDefault(id, ImmutableList.of()).forEach(priceRow -> {
+                final JsonObject unit = unitRows.get(priceRow.getLong(ProductUnitPrice.UNIT_ID));
+                if (unit != null) {
+                    prices.add(priceRow.copy()
+                        .put(ProductUnitPrice.AMOUNT, priceRow.getValue(ProductUnitPrice.PRICE))
+                        .put(ProductUnitPrice.UNIT, unit.copy()));
+                }
+            });
+            if (prices.isEmpty()) {
+                return;
+            }
+            final JsonObject manufacturerUnit = unitRows.get(row.getLong(Product.MANUFACTURER_PRICE_UNIT_ID));
+            final JsonObject product = row.copy()
+                .put(Product.MANUFACTURER_PRICE, new JsonObject()
+                    .put(ProductUnitPrice.AMOUNT, row.getDouble(Product.MANUFACTURER_PRICE))
+                    .put(ProductUnitPrice.UNIT, manufacturerUnit == null ? new JsonObject() : manufacturerUnit.copy()))
+                .put(Product.PRICES, new JsonArray(prices));
+            products.put(id, product);
+            if (manufacturerUnit != null) {
+                listed.add(product);
+            }
+        });
+
+        priceRows.forEach((productId, prices) -> prices.forEach(price -> {
+            JsonObject unitJson = unitWisePrice.getJsonObject(productId.toString());
+            if (unitJson == null) {
+                unitJson = new JsonObject();
+                unitWisePrice.put(productId.toString(), unitJson);
+            }
+            unitJson.put(price.getValue(ProductUnitPrice.UNIT_ID).toString(), price.getDouble(ProductUnitPrice.PRICE));
+        }));
+
+        listed.sort(BY_NAME);
+        snapshot = new Snapshot(++version, products.build(), ImmutableList.copyOf(listed), unitWisePrice);
+    }
+
+    public void close() {
+        if (timer >= 0) {
+            vertx.cancelTimer(timer);
+        }
+    }
+
+    public synchronized JsonObject stats() {
+        final Snapshot current = snapshot;
+        return new JsonObject()
+            .put("loaded", current != null)
+            .put("version", version)
+            .put("products", productRows.size())
+            .put("units", unitRows.size())
+            .put("loads", loads)
+            .put("productReloads", productReloads)
+            .put("unitReloads", unitReloads)
+            .put("failures", failures);
+    }
+
+    /**
+     * One version of the catalog. Its json objects are shared by every reader and must not be modified, the
+     * event bus copies them into the replies.
+     */
+    public static final class Snapshot {
+        private final long version;
+        private final Map<Long, JsonObject> products;
+        private final List<JsonObject> listed;
+        private final JsonObject unitWisePrice;
+
+        private Snapshot(long version, Map<Long, JsonObject> products, List<JsonObject> listed, JsonObject unitWisePrice) {
+            this.version = version;
+            this.products = products;
+            this.listed = listed;
+            this.unitWisePrice = unitWisePrice;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        /**
+         * @return the product with its prices or null if there is no such product with a price.
+         */
+        public JsonObject find(Long id) {
+            return products.get(id);
+        }
+
+        /**
+         * @param filter column = value filter on product columns, columns may be qualified with the p alias.
+         * @return the listed products matching the filter ordered by name and id.
+         */
+        public List<JsonObject> list(JsonObject filter) {
+            if (filter.isEmpty()) {
+                return listed;
+            }
+            final List<JsonObject> list = new ArrayList<>();
+            listed.forEach(product -> {
+                if (matches(filter, product)) {
+                    list.add(product);
+                }
+            });
+            return list;
+        }
+
+        /**
+         * @return a position in the list after which the products follow the sort key and id.
+         */
+        public static int seek(List<JsonObject> list, Object sortKey, Object id) {
+            final JsonObject key = new JsonObject()
+                .put(Product.NAME, sortKey == null ? null : sortKey.toString())
+                .put(Product.ID, Converters.toLong(id.toString()));
+            int low = 0;
+            int high = list.size();
+            while (low < high) {
+                final int mid = (low + high) >>> 1;
+                if (BY_NAME.compare(list.get(mid), key) <= 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        private static boolean matches(JsonObject filter, JsonObject product) {
+            for (String column : filter.fieldNames()) {
+                final Object expected = filter.getValue(column);
+                final Object value = product.getValue(column.substring(column.lastIndexOf('.') + 1));
+                if (expected instanceof Number && value instanceof Number) {
+                    if (((Number) expected).doubleValue() != ((Number) value).doubleValue()) {
+                        return false;
+                    }
+                } else if (!String.valueOf(expected).equalsIgnoreCase(String.valueOf(value))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        public JsonObject getUnitWisePrice() {
+            return unitWisePrice;
+        }
+
+        public DeliveryOptions deliveryOptions() {
+            return new DeliveryOptions().addHeader(CATALOG_VERSION, String.valueOf(version));
+        }
+    }
+}
@@ -42,9 +42,9 @@ import org.slf4j.LoggerFactory;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static com.imslbd.um.service.Services.AUTH_TOKEN;
-import static com.imslbd.um.service.Services.converters;
 
 /**
  * Created by shahadat on 4/3/16.
@@ -64,6 +64,8 @@ public class ProductService {
     private static final String PRODUCT_UNIT_PRICES_TABLE = "productUnitPrices";
 
     private final Vertx vertx;
+    private final TotalCounts totalCounts;
+    private final ProductCatalog catalog;
     private final JDBCClient jdbcClient;
     private final RemoveNullsTransformation removeNullsTransformation;
 
@@ -82,8 +84,14 @@ public class ProductService {
     private final List<String> productUnitPriceFields;
     private final List<String> unitFields;
 
-    public ProductService(JDBCClient jdbcClient, String[] fields, String[] priceFields, String[] unitFields, long maxId, Vertx vertx) {
+    public ProductService(JDBCClient jdbcClient, SchemaRegistry schema, long maxId, Vertx vertx, TotalCounts totalCounts,
+                          ProductCatalog catalog) {
+        final String[] fields = schema.columns(TABLE_NAME);
+        final String[] priceFields = schema.columns(PRODUCT_UNIT_PRICES_TABLE);
+        final String[] unitFields = schema.columns(Tables.units.name());
         this.vertx = vertx;
+        this.totalCounts = totalCounts;
+        this.catalog = catalog;
         this.jdbcClient = jdbcClient;
 
         id = new AtomicLong(maxId + 1);
@@ -100,8 +108,8 @@ public class ProductService {
         unitIncludeExcludeTransformation = new IncludeExcludeTransformation(ImmutableSet.copyOf(priceFields), ImmutableSet.of(
             Unit.ID, User.CREATED_BY, User.CREATE_DATE, User.UPDATED_BY, User.UPDATE_DATE));
 
-        converterTransformation = new ConverterTransformation(converters(fields, TABLE_NAME));
-        unitConverterTransformation = new ConverterTransformation(converters(priceFields, PRODUCT_UNIT_PRICES_TABLE));
+        converterTransformation = new ConverterTransformation(schema.converters(TABLE_NAME));
+        unitConverterTransformation = new ConverterTransformation(schema.converters(PRODUCT_UNIT_PRICES_TABLE));
 
         defaultValueTransformation = new DefaultValueTransformation(
             new JsonObject()
@@ -184,12 +192,28 @@ public class ProductService {
             .then(params -> {
                 int page = params.getInteger(PAGE, 1);
                 int size = params.getInteger(SIZE, DEFAULT_PAGE_SIZE);
+                final boolean keyset = PageCursor.requested(params);
+                final PageCursor cursor = keyset ? PageCursor.of(params) : null;
+                final boolean withTotal = !keyset || PageCursor.withTotal(params);
+                params.remove(PageCursor.CURSOR);
+                params.remove(PageCursor.WITH_TOTAL);
+
+                final ProductCatalog.Snapshot snapshot = catalog.snapshot();
+                final JsonObject filter = params.copy();
+                filter.remove(PAGE);
+                filter.remove(SIZE);
+                if (snapshot != null && filter.fieldNames().stream()
+                    .allMatch(nm -> productFields.contains(nm.startsWith("p.") ? nm.substring(2) : nm))) {
+                    findAllFromCatalog(message, snapshot, filter, page, size, keyset, cursor, withTotal);
+                    return;
+                }
 
-                final String from = "from " + TABLE_NAME + " p " +
-                    "join " + Tables.productUnitPrices + " up on up.productId = p.id " +
+                final String joins = "join " + Tables.productUnitPrices + " up on up.productId = p.id " +
                     "join " + Tables.units + " u on u.id = up.unitId " +
                     "join " + Tables.units + " u2 on u2.id = p.manufacturerPriceUnitId";
 
+                final String from = "from " + TABLE_NAME + " p " + joins;
+
                 final JsonArray prmsArray = new JsonArray();
 
                 String where;
@@ -207,13 +231,31 @@ public class ProductService {
 
                 String groupBy = "group by p.id, up.productId, up.unitId";
 
+                final String pageSql;
+                final JsonArray pagePrms = prmsArray.copy();
+                if (keyset) {
+                    String seek = "";
+                    if (cursor != null) {
+                        seek = (where.isEmpty() ? "where " : " and ") + "(p.name > ? or (p.name = ? and p.id > ?))";
+                        pagePrms.add(cursor.getSortKey()).add(cursor.getSortKey()).add(cursor.getId());
+                    }
+                    pageSql = "select " + pSel + ", " + prSel + ", " + uSel + ", " + uSel2 + " " +
+                        "from (select distinct p.id, p.name " + fromWhere + seek + " " +
+                        "order by p.name, p.id limit " + (size + 1) + ") k " +
+                        "join " + TABLE_NAME + " p on p.id = k.id " + joins + " " +
+                        groupBy + " order by p.name, p.id";
+                } else {
+                    pageSql = "select " + pSel + ", " + prSel + ", " + uSel + ", " + uSel2 + " " +
+                        fromWhere + " " + groupBy + " " +
+                        UmUtils.limitOffset(page, size);
+                }
+
                 Promises.when(
-                    WebUtils.query("select count(*) as totalCount " + fromWhere, prmsArray, jdbcClient)
-                        .map(resultSet -> resultSet.getResults().get(0).getLong(0)),
-                    WebUtils.query(
-                        "select " + pSel + ", " + prSel + ", " + uSel + ", " + uSel2 + " " +
-                            fromWhere + " " + groupBy + " " +
-                            UmUtils.limitOffset(page, size), prmsArray, jdbcClient)
+                    withTotal
+                        ? totalCounts.count(TABLE_NAME, params, () -> WebUtils.query("select count(*) as totalCount " + fromWhere, prmsArray, jdbcClient)
+                        .map(resultSet -> resultSet.getResults().get(0).getLong(0)))
+                        : Promises.from((TotalCounts.Total) null),
+                    WebUtils.query(pageSql, pagePrms, jdbcClient)
                         .map(resultSet3 ->
                             Tpls.of(new JsonObject()
                                 .put(HEADERS, resultSet3.getColumnNames()
@@ -232,7 +274,7 @@ public class ProductService {
                                 final int unitIdIndex = priceLimit + unitFields.indexOf(Unit.ID);
                                 final int manufacturerUnitIdIndex = priceUnitLimit + unitFields.size();
 
-                                HashMap<Object, JsonObject> productsMap = new HashMap<>();
+                                Map<Object, JsonObject> productsMap = new LinkedHashMap<>();
                                 HashMap<Object, JsonObject> priceMap = new HashMap<>();
 
                                 list.forEach(jsonArray -> {
@@ -293,6 +335,18 @@ public class ProductService {
                                     productsMap.get(productId).getJsonArray(Product.PRICES).add(price);
                                 });
 
+                                if (keyset) {
+                                    final List<JsonObject> products = new ArrayList<>(productsMap.values());
+                                    final List<JsonObject> data = products.subList(0, Math.min(size, products.size()));
+                                    final JsonObject last = data.isEmpty() ? null : data.get(data.size() - 1);
+                                    return
+                                        jsonObject
+                                            .put(DATA, new ArrayList<>(data))
+                                            .put(PageCursor.NEXT_CURSOR, products.size() > size
+                                                ? PageCursor.encode(last.getValue(Product.NAME), last.getValue(Product.ID))
+                                                : null);
+                                }
+
                                 return
                                     jsonObject
                                         .put(DATA, productsMap.values().stream()
@@ -303,8 +357,9 @@ public class ProductService {
                             })))
                     .map(tpl2 -> tpl2.apply(
                         (totalCount, js) ->
-                            js.put(PAGINATION,
-                                new Pagination(page, size, totalCount).toJson())))
+                            js.put(PAGINATION, TotalCounts.pagination(totalCount, count -> keyset
+                                ? PageCursor.pagination(size, (String) js.remove(PageCursor.NEXT_CURSOR), count)
+                                : new Pagination(page, size, count).toJson()))))
                     .then(message::reply)
                     .error(e -> ExceptionUtil.fail(message, e))
                 ;
@@ -313,8 +368,73 @@ public class ProductService {
         ;
     }
 
+    /**
+     * Pages the listed products of the catalog, in name order like the product query, instead of joining
+     * products, prices and units in the database. The total is the exact size of the filtered list.
+     */
+    private void findAllFromCatalog(Message<JsonObject> message, ProductCatalog.Snapshot snapshot, JsonObject filter,
+                                    int page, int size, boolean keyset, PageCursor cursor, boolean withTotal) {
+        final List<JsonObject> products = snapshot.list(filter);
+        final JsonObject reply = new JsonObject()
+            .put(HEADERS, Stream.of(productFields, productUnitPriceFields, unitFields, unitFields)
+                .flatMap(List::stream)
+                .map(WebUtils::describeField)
+                .collect(Collectors.toList()));
+
+        if (keyset) {
+            final int from = cursor == null ? 0 : ProductCatalog.Snapshot.seek(products, cursor.getSortKey(), cursor.getId());
+            final int to = Math.min(from + size, products.size());
+            final List<JsonObject> data = products.subList(from, to);
+            final JsonObject last = data.isEmpty() ? null : data.get(data.size() - 1);
+            reply
+                .put(DATA, new ArrayList<>(data))
+                .put(PAGINATION, PageCursor.pagination(size,
+                    to < products.size() && last != null
+                        ? PageCursor.encode(last.getValue(Product.NAME), last.getValue(Product.ID))
+                        : null,
+                    withTotal ? (long) products.size() : null));
+        } else {
+            final int from = (int) Math.min(WebUtils.offset(page, size), products.size());
+            reply
+                .put(DATA, new ArrayList<>(products.subList(from, Math.min(from + size, products.size()))))
+                .put(PAGINATION, new Pagination(page, size, (long) products.size()).toJson());
+        }
+
+        message.reply(reply, snapshot.deliveryOptions());
+    }
+
+    private JsonObject productNotFound(Object id) {
+        return new JsonObject()
+            .put(Services.RESPONSE_CODE, UmErrorCodes.PRODUCT_NOT_FOUND.code())
+            .put(Services.MESSAGE_CODE, UmErrorCodes.PRODUCT_NOT_FOUND.messageCode())
+            .put(Services.MESSAGE,
+                Um.messageBundle.translate(
+                    UmErrorCodes.PRODUCT_NOT_FOUND.messageCode(),
+                    new JsonObject()
+                        .put(Product.ID, id)));
+    }
+
     public void find(Message<Object> message) {
 
+        final ProductCatalog.Snapshot snapshot = catalog.snapshot();
+        if (snapshot != null) {
+            try {
+                final Long id = Converters.toLong(message.body().toString());
+                final JsonObject product = snapshot.find(id);
+                if (product == null) {
+                    message.reply(productNotFound(id),
+                        snapshot.deliveryOptions()
+                            .addHeader(Services.RESPONSE_CODE,
+                                Util.toString(UmErrorCodes.PRODUCT_NOT_FOUND.code())));
+                } else {
+                    message.reply(product, snapshot.deliveryOptions());
+                }
+            } catch (Exception ex) {
+                ExceptionUtil.fail(message, ex);
+            }
+            return;
+        }
+
         final String pSel = productFields.stream().map(field -> "p." + field).collect(Collectors.joining(", "));
         final String prSel = productUnitPriceFields.stream().map(field -> "up." + field).collect(Collectors.joining(", "));
         final String uSel = unitFields.stream().map(field -> "u." + field).collect(Collectors.joining(", "));
@@ -332,14 +452,7 @@ public class ProductService {
                     .on(PRODUCT_NOT_FOUND,
                         rs ->
                             message.reply(
-                                new JsonObject()
-                                    .put(Services.RESPONSE_CODE, UmErrorCodes.PRODUCT_NOT_FOUND.code())
-                                    .put(Services.MESSAGE_CODE, UmErrorCodes.PRODUCT_NOT_FOUND.messageCode())
-                                    .put(Services.MESSAGE,
-                                        Um.messageBundle.translate(
-                                            UmErrorCodes.PRODUCT_NOT_FOUND.messageCode(),
-                                            new JsonObject()
-                                                .put(Product.ID, id))),
+                                productNotFound(id),
                                 new DeliveryOptions()
                                     .addHeader(Services.RESPONSE_CODE,
                                         Util.toString(UmErrorCodes.PRODUCT_NOT_FOUND.code()))
@@ -634,8 +747,9 @@ public class ProductService {
             .mapToPromise(id -> WebUtils.delete(TABLE_NAME, id, jdbcClient)
                 .map(updateResult -> updateResult.getUpdated() > 0 ? id : 0)
                 .then(message::reply))
-            .then(v -> vertx.eventBus().publish(UmEvents.PRODUCT_DELETED,
+            .then(id -> vertx.eventBus().publish(UmEvents.PRODUCT_DELETED,
                 new JsonObject()
+                    .put(Product.ID, id)
                     .put(Inventory.DELETED_BY, user)
                     .put(Inventory.DELETE_DATE, Converters.toMySqlDateString(new Date()))))
             .error(e ->
@@ -744,6 +858,11 @@ public class ProductService {
     }
 
     public void unitWisePrice(Message<JsonObject> message) {
+        final ProductCatalog.Snapshot snapshot = catalog.snapshot();
+        if (snapshot != null) {
+            message.reply(snapshot.getUnitWisePrice(), snapshot.deliveryOptions());
+            return;
+        }
         try {
             final String[] fields = new String[]{"productId", "unitId", "price"};
 
@@ -0,0 +1,130 @@
+package com.imslbd.um.service;
+
+import com.google.common.collect.ImmutableMap;
+import com.imslbd.um.Tables;
+import io.crm.promise.intfs.Promise;
+import io.crm.web.util.WebUtils;
+import io.vertx.core.json.JsonArray;
+import io.vertx.ext.jdbc.JDBCClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Column names and type converters of every UM table, read once at startup with a single INFORMATION_SCHEMA query
+ * and handed to the services, instead of a "where id < 0" probe per table and a full "select *" per service to
+ * get at the column types. The cost of startup no longer depends on how many rows the tables hold.
+ * <p>
+ * Created by someone on 18/10/2026.
+ */
+public class SchemaRegistry {
+    public static final Logger LOGGER = LoggerFactory.getLogger(SchemaRegistry.class);
+    private static final Map<String, Integer> JDBC_TYPES_BY_NAME = ImmutableMap.<String, Integer>builder()
+        .put("int", Types.INTEGER)
+        .put("integer", Types.INTEGER)
+        .put("mediumint", Types.INTEGER)
+        .put("smallint", Types.SMALLINT)
+        .put("tinyint", Types.TINYINT)
+        .put("bigint", Types.BIGINT)
+        .put("bit", Types.BIT)
+        .put("bool", Types.BIT)
+        .put("boolean", Types.BIT)
+        .put("char", Types.CHAR)
+        .put("varchar", Types.VARCHAR)
+        .put("tinytext", Types.VARCHAR)
+        .put("text", Types.LONGVARCHAR)
+        .put("mediumtext", Types.LONGVARCHAR)
+        .put("longtext", Types.LONGVARCHAR)
+        .put("date", Types.DATE)
+        .put("datetime", Types.TIMESTAMP)
+        .put("timestamp", Types.TIMESTAMP)
+        .put("double", Types.DOUBLE)
+        .put("float", Types.REAL)
+        .put("decimal", Types.DECIMAL)
+        .build();
+
+    private final Map<String, String[]> columns;
+    private final Map<String, ImmutableMap<String, Function<Object, Object>>> converters;
+
+    private SchemaRegistry(Map<String, List<String[]>> tables) {
+        final ImmutableMap.Builder<String, String[]> columnsBuilder = ImmutableMap.builder();
+        final ImmutableMap.Builder<String, ImmutableMap<String, Function<Object, Object>>> convertersBuilder = ImmutableMap.builder();
+        tables.forEach((table, tableColumns) -> {
+            final ImmutableMap.Builder<String, Function<Object, Object>> builder = ImmutableMap.builder();
+            tableColumns.forEach(column -> {
+                final int columnType = jdbcType(column[1], column[2]);
+                final Function<Object, Object> converter = Services.TYPE_CONVERTERS.get(columnType);
+                Objects.requireNonNull(converter, "Type Converter can't be null for Type: " +
+                    "[" + table + "." + column[0] + " " + column[2] + ": " + Services.JDBC_TYPES.get(columnType) + "]");
+                builder.put(column[0], converter);
+            });
+            columnsBuilder.put(table, tableColumns.stream().map(column -> column[0]).toArray(String[]::new));
+            convertersBuilder.put(table, builder.build());
+        });
+        this.columns = columnsBuilder.build();
+        this.converters = convertersBuilder.build();
+    }
+
+    /**
+     * Reads the columns of every table in {@link Tables} from INFORMATION_SCHEMA.
+     */
+    public static Promise<SchemaRegistry> load(JDBCClient jdbcClient) {
+        final long start = System.currentTimeMillis();
+        final JsonArray tableNames = new JsonArray();
+        Arrays.asList(Tables.values()).forEach(table -> tableNames.add(table.name()));
+
+        return WebUtils.query(
+            "select TABLE_NAME, COLUMN_NAME, DATA_TYPE, COLUMN_TYPE from INFORMATION_SCHEMA.COLUMNS " +
+                "where TABLE_SCHEMA = database() and TABLE_NAME in (" +
+                tableNames.stream().map(name -> "?").collect(Collectors.joining(", ")) + ") " +
+                "order by TABLE_NAME, ORDINAL_POSITION", tableNames, jdbcClient)
+            .map(resultSet -> {
+                final Map<String, List<String[]>> tables = new LinkedHashMap<>();
+                resultSet.getResults().forEach(row -> tables
+                    .computeIfAbsent(row.getString(0), table -> new ArrayList<>())
+                    .add(new String[]{row.getString(1), row.getString(2), row.getString(3)}));
+                final SchemaRegistry schema = new SchemaRegistry(tables);
+                LOGGER.info("Read the columns of " + tables.size() + " tables in " + (System.currentTimeMillis() - start) + " ms");
+                return schema;
+            });
+    }
+
+    /**
+     * The JDBC type Connector/J reports for a column, tinyint(1) reads as BIT.
+     */
+    private static int jdbcType(String dataType, String columnType) {
+        if ("tinyint(1)".equalsIgnoreCase(columnType)) {
+            return Types.BIT;
+        }
+        final Integer type = JDBC_TYPES_BY_NAME.get(dataType.toLowerCase());
+        return type == null ? Types.OTHER : type;
+    }
+
+    /**
+     * @return the column names of the table in column order.
+     */
+    public String[] columns(String table) {
+        final String[] tableColumns = columns.get(table);
+        if (tableColumns == null) {
+            throw new IllegalArgumentException("Table " + table + " not found in the UM database");
+        }
+        return tableColumns.clone();
+    }
+
+    public ImmutableMap<String, Function<Object, Object>> converters(String table) {
+        final ImmutableMap<String, Function<Object, Object>> tableConverters = converters.get(table);
+        if (tableConverters == null) {
+            throw new IllegalArgumentException("Table " + table + " not found in the UM database");
+        }
+        return tableConverters;
+    }
+}
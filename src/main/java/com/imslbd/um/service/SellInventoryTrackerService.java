@@ -26,6 +26,7 @@ import io.vertx.ext.sql.SQLConnection;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -43,10 +44,11 @@ public class SellInventoryTrackerService {
     private final IncludeExcludeTransformation includeExcludeTransformation;
     private final ConverterTransformation converterTransformation;
 
-    public SellInventoryTrackerService(List<String> fields) {
+    public SellInventoryTrackerService(SchemaRegistry schema) {
+        final List<String> fields = Arrays.asList(schema.columns(Tables.sellInventoryTracking.name()));
         this.fields = fields;
 
-        converterTransformation = new ConverterTransformation(Services.converters(fields.toArray(new String[fields.size()]), Tables.sellInventoryTracking.name()));
+        converterTransformation = new ConverterTransformation(schema.converters(Tables.sellInventoryTracking.name()));
         includeExcludeTransformation = new IncludeExcludeTransformation(ImmutableSet.copyOf(fields), null);
 
 
@@ -67,20 +69,24 @@ public class SellInventoryTrackerService {
 
         List<JsonObject> sellUnits = sell.getJsonArray(Sell.SELL_UNITS, Util.EMPTY_JSON_ARRAY).getList();
 
-        final List<String> list = sellUnits.stream()
-            .map(js ->
-                "select t.inventoryProductId, t.quantity, t.inventoryUnitId, ip.unitId, t.inventoryId" +
-                    " from sellInventoryTracking t" +
-                    " join inventoryProducts ip on ip.inventoryId = t.inventoryId" +
-                    " where" +
-                    " t.inventoryProductId = ip.productId " +
-                    " and " +
-                    " t.productId = " + js.getLong(InventoryProduct.PRODUCT_ID) + "" +
-                    " and" +
-                    " t.unitId = " + js.getLong(InventoryProduct.UNIT_ID)
+        final String trackSql = "select t.inventoryProductId, t.quantity, t.inventoryUnitId, ip.unitId, t.inventoryId" +
+            " from sellInventoryTracking t" +
+            " join inventoryProducts ip on ip.inventoryId = t.inventoryId" +
+            " where" +
+            " t.inventoryProductId = ip.productId " +
+            " and " +
+            " t.productId = ?" +
+            " and" +
+            " t.unitId = ?";
+
+        final List<Promise<ResultSet>> list = sellUnits.stream()
+            .map(js -> WebUtils.query(trackSql,
+                new JsonArray()
+                    .add(js.getLong(InventoryProduct.PRODUCT_ID))
+                    .add(js.getLong(InventoryProduct.UNIT_ID)), UmApp.getJdbcClient())
             ).collect(Collectors.toList());
 
-        WebUtils.multiQuery(list, UmApp.getJdbcClient())
+        Promises.when(list)
             .then(resultSets -> {
 
                 for (int I = 0; I < resultSets.size(); I++) {
@@ -121,15 +127,14 @@ public class SellInventoryTrackerService {
 
                                 final double total = sellUnits.get(idx).getDouble("quantity") * jsonArray.getDouble(1);
 
-                                WebUtils.update(
-                                    "UPDATE `inventoryProducts` SET quantity = quantity - " + total +
-                                        " where " +
-                                        " inventoryId = " + jsonArray.getLong(4) +
-                                        " and " +
-                                        " productId = " + jsonArray.getLong(0) +
-                                        " and " +
-                                        " unitId = " + jsonArray.getLong(2)
-                                    ,
+                                UmUtils.update(
+                                    "UPDATE `inventoryProducts` SET quantity = quantity - ?" +
+                                        " where inventoryId = ? and productId = ? and unitId = ?",
+                                    new JsonArray()
+                                        .add(total)
+                                        .add(jsonArray.getLong(4))
+                                        .add(jsonArray.getLong(0))
+                                        .add(jsonArray.getLong(2)),
                                     UmApp.getJdbcClient())
                                     .error(e -> LOGGER.error("ERROR_TRACKING_INVENTORY_SELL", e))
                                 ;
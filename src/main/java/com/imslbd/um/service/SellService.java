@@ -21,9 +21,12 @@ import io.crm.promise.Decision;
 import io.crm.promise.Promises;
 import io.crm.promise.intfs.Defer;
 import io.crm.promise.intfs.MapToHandler;
+import io.crm.promise.intfs.Promise;
 import io.crm.util.ExceptionUtil;
 import io.crm.util.Util;
 import io.crm.util.touple.MutableTpl2;
+import io.crm.util.touple.immutable.Tpl2;
+import io.crm.util.touple.immutable.Tpls;
 import io.crm.web.util.Converters;
 import io.crm.web.util.Pagination;
 import io.crm.web.util.WebUtils;
@@ -49,7 +52,6 @@ import java.util.stream.Stream;
 
 import static com.imslbd.um.UmUtils.limitOffset;
 import static com.imslbd.um.service.Services.AUTH_TOKEN;
-import static com.imslbd.um.service.Services.converters;
 import static io.crm.util.Util.apply;
 
 /**
@@ -70,6 +72,7 @@ public class SellService {
     private static final String SELL_UNITS = "sellUnits";
 
     private final Vertx vertx;
+    private final TotalCounts totalCounts;
     private final JDBCClient jdbcClient;
     private final DefaultValueTransformation defaultValueTransformationParams = new DefaultValueTransformation(Util.EMPTY_JSON_OBJECT);
 
@@ -102,8 +105,13 @@ public class SellService {
     private final String[] sellUnitFields;
     private final String[] productFields;
 
-    public SellService(JDBCClient jdbcClient, String[] fields, String[] sellUnitFields, String[] productFields, String[] unitFields, final long maxId, final long maxTransactionId, final long maxOrderId, Vertx vertx) {
+    public SellService(JDBCClient jdbcClient, SchemaRegistry schema, final long maxId, final long maxTransactionId, final long maxOrderId, Vertx vertx, TotalCounts totalCounts) {
+        final String[] fields = schema.columns(TABLE_NAME);
+        final String[] sellUnitFields = schema.columns(Tables.sellUnits.name());
+        final String[] productFields = schema.columns(Tables.products.name());
+        final String[] unitFields = schema.columns(Tables.units.name());
         this.vertx = vertx;
+        this.totalCounts = totalCounts;
         this.jdbcClient = jdbcClient;
 
         {
@@ -116,7 +124,7 @@ public class SellService {
         {
             removeNullsTransformation = new RemoveNullsTransformation();
 
-            ImmutableMap<String, Function<Object, Object>> converters = converters(fields, TABLE_NAME);
+            ImmutableMap<String, Function<Object, Object>> converters = schema.converters(TABLE_NAME);
             converterTransformation = new ConverterTransformation(converters);
             findAllConverterTransformation = new ConverterTransformation(
                 converters.entrySet().stream().collect(Collectors.toMap(e -> "s." + e.getKey(), e -> e.getValue())));
@@ -131,7 +139,7 @@ public class SellService {
         {
             sellUnitIncludeExcludeTransformation = new IncludeExcludeTransformation(
                 ImmutableSet.copyOf(sellUnitFields), null);
-            sellUnitConverterTransformation = new ConverterTransformation(converters(sellUnitFields, Tables.sellUnits.name()));
+            sellUnitConverterTransformation = new ConverterTransformation(schema.converters(Tables.sellUnits.name()));
 
             sellUnitDefaultValueTransformation = new DefaultValueTransformation(new JsonObject());
 
@@ -228,17 +236,15 @@ public class SellService {
                 ? new JsonObject() : removeNullsTransformation.transform(message.body());
             final int page = Converters.toInt(pms.getValue(Pagination.PAGE, 1));
             final int size = Converters.toInt(pms.getValue(Pagination.SIZE, DEFAULT_PAGE_SIZE));
+            final boolean keyset = PageCursor.requested(pms);
+            final PageCursor cursor = keyset ? PageCursor.of(pms) : null;
+            final boolean withTotal = !keyset || PageCursor.withTotal(pms);
 
             final JsonObject params = Stream.of(pms)
                 .map(findAllConverterTransformation::transform)
                 .map(findAllFiltersExclude::transform)
                 .map(Services.USER_TRACKING_EXCLUDE_TRANSFORMATION::transform).findAny().get();
 
-            final String from = "from sells s " +
-                "join sellUnits su on su.sellId = s.id " +
-                "join products p on su.productId = p.id " +
-                "join units u on su.unitId = u.id";
-
             final JsonArray paramsArray = new JsonArray();
 
             final String where = apply(params.stream()
@@ -249,35 +255,41 @@ public class SellService {
 
             final String orderBy = "order by s.id desc";
 
+            final String idSql;
+            final JsonArray idParams = paramsArray.copy();
+            if (keyset) {
+                String seek = "";
+                if (cursor != null) {
+                    seek = (where.isEmpty() ? "where " : " and ") + "s.id < ?";
+                    idParams.add(cursor.getId());
+                }
+                idSql = "select s.id from sells s " + where + seek + " " + orderBy + " limit " + (size + 1);
+            } else {
+                idSql = "select s.id from sells s " + where + " " + orderBy + " " + limitOffset(page, size);
+            }
+
             Promises
                 .when(
-                    WebUtils.query(
-                        "select " + sellSelect() + " " + from + " " + where + " " +
-                            "group by s.id, su.id " +
-                            orderBy + " " + limitOffset(page, size), paramsArray, jdbcClient).map(ResultSet::getResults),
-                    WebUtils.query(
-                        "select count(*) " + from + " " + where, paramsArray, jdbcClient).map(resultSet1 -> resultSet1.getResults().get(0).getLong(0)))
+                    WebUtils.query(idSql, idParams, jdbcClient)
+                        .map(ResultSet::getResults)
+                        .mapToPromise(idRows -> {
+                            final List<JsonArray> pageRows = keyset ? idRows.subList(0, Math.min(size, idRows.size())) : idRows;
+                            final Object nextId = keyset && idRows.size() > size ? pageRows.get(pageRows.size() - 1).getValue(0) : null;
+                            return findSellUnits(pageRows)
+                                .map(sells -> (Tpl2<List<JsonObject>, Object>) Tpls.of(sells, nextId));
+                        }),
+                    withTotal
+                        ? totalCounts.count(TABLE_NAME, params, () -> WebUtils.query(
+                        "select count(*) from sells s " + where, paramsArray, jdbcClient).map(resultSet1 -> resultSet1.getResults().get(0).getLong(0)))
+                        : Promises.from((TotalCounts.Total) null))
                 .map(val -> val.apply(
-                    (jsonArrayList, total) -> {
-
-                        final int idIndex = Arrays.asList(fields).indexOf(Sell.ID);
-
-                        final ImmutableList.Builder<JsonObject> objectBuilder = ImmutableList.builder();
-
-                        jsonArrayList.stream().collect(Collectors.groupingBy(jsa -> jsa.getValue(idIndex)))
-                            .forEach((id, jsonArrays) -> {
-
-                                objectBuilder.add(composeSell(jsonArrays));
-                            });
-
-                        return
+                    (sellPage, total) -> sellPage.apply(
+                        (sells, nextId) ->
                             new JsonObject()
-                                .put(DATA, objectBuilder.build()
-                                    .stream()
-                                    .sorted((s1, s2) -> s2.getInteger(Sell.ID) - s1.getInteger(Sell.ID))
-                                    .collect(Collectors.toList()))
-                                .put(PAGINATION, new Pagination(page, size, total).toJson());
-                    }))
+                                .put(DATA, sells)
+                                .put(PAGINATION, TotalCounts.pagination(total, count -> keyset
+                                    ? PageCursor.pagination(size, nextId == null ? null : PageCursor.encode(null, nextId), count)
+                                    : new Pagination(page, size, count).toJson())))))
                 .then(message::reply)
                 .error(e -> ExceptionUtil.fail(message, e));
 
@@ -286,6 +298,41 @@ public class SellService {
         }
     }
 
+    /**
+     * Loads the sell units of a page of sell ids with one IN query and assembles the sells in a single pass over
+     * the rows, which come ordered by sell id the same way as the page.
+     */
+    private Promise<List<JsonObject>> findSellUnits(List<JsonArray> idRows) {
+        if (idRows.isEmpty()) {
+            return Promises.from(new ArrayList<>());
+        }
+
+        final JsonArray ids = new JsonArray();
+        idRows.forEach(row -> ids.add(row.getValue(0)));
+
+        return WebUtils.query(
+            "select " + sellSelect() + " from " + TABLE_NAME + " s " +
+                "join sellUnits su on su.sellId = s.id " +
+                "join products p on su.productId = p.id " +
+                "join units u on su.unitId = u.id " +
+                "where s.id in (" + ids.stream().map(id -> "?").collect(Collectors.joining(", ")) + ") " +
+                "order by s.id desc, su.id asc", ids, jdbcClient)
+            .map(resultSet -> {
+                final List<JsonArray> rows = resultSet.getResults();
+                final int idIndex = Arrays.asList(fields).indexOf(Sell.ID);
+                final List<JsonObject> sells = new ArrayList<>(idRows.size());
+
+                int start = 0;
+                for (int i = 1; i <= rows.size(); i++) {
+                    if (i == rows.size() || !Objects.equals(rows.get(i).getValue(idIndex), rows.get(start).getValue(idIndex))) {
+                        sells.add(composeSell(rows.subList(start, i)));
+                        start = i;
+                    }
+                }
+                return sells;
+            });
+    }
+
     private JsonObject composeSell(List<JsonArray> jsonArrays) {
         final JsonObject sell = new JsonObject();
 
@@ -341,8 +388,8 @@ public class SellService {
                         "join sellUnits su on su.sellId = s.id " +
                         "join products p on su.productId = p.id " +
                         "join units u on su.unitId = u.id " +
-                        "where s.id = " + id + " " +
-                        "group by s.id, su.id", jdbcClient)
+                        "where s.id = ? " +
+                        "group by s.id, su.id", new JsonArray().add(id), jdbcClient)
                     .decide(resultSet -> resultSet.getNumRows() < 1 ? SELL_NOT_FOUND : Decision.CONTINUE)
                     .on(SELL_NOT_FOUND,
                         rs -> {
@@ -590,8 +637,8 @@ public class SellService {
                 .map(updateResult -> updateResult.getUpdated() > 0 ? id : 0)
                 .then(message::reply))
             .then(
-                v -> vertx.eventBus().publish(UmEvents.SELL_DELETED,
-                    new JsonObject().put(Inventory.DELETED_BY, user).put(Inventory.DELETE_DATE, Converters.toMySqlDateString(new Date()))))
+                id -> vertx.eventBus().publish(UmEvents.SELL_DELETED,
+                    new JsonObject().put(Sell.ID, id).put(Inventory.DELETED_BY, user).put(Inventory.DELETE_DATE, Converters.toMySqlDateString(new Date()))))
             .error(e ->
                 ExceptionUtil.fail(message, e))
         ;
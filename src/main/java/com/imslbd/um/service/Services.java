@@ -2,7 +2,6 @@ package com.imslbd.um.service;
 
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
-import com.imslbd.call_center.MyApp;
 import com.imslbd.um.UmErrorCodes;
 import com.imslbd.um.model.User;
 import io.crm.ErrorCodes;
@@ -16,10 +15,9 @@ import org.slf4j.LoggerFactory;
 
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
-import java.sql.*;
+import java.sql.Types;
 import java.util.Arrays;
 import java.util.Map;
-import java.util.Objects;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -77,12 +75,18 @@ public class Services {
         ImmutableMap.Builder<Integer, Function<Object, Object>> builder = ImmutableMap.builder();
         builder
             .put(4, Converters::toLong)
+            .put(-5, Converters::toLong)
+            .put(5, Converters::toLong)
+            .put(-6, Converters::toLong)
+            .put(1, s -> s)
             .put(12, s -> s)
             .put(-1, s -> s)
             .put(-7, Converters::toBoolean)
             .put(91, Converters::toMySqlDateString)
             .put(93, Converters::toMySqlDateString)
             .put(8, Converters::toDouble)
+            .put(7, Converters::toDouble)
+            .put(3, Converters::toDouble)
         ;
 
         TYPE_CONVERTERS = builder.build();
@@ -111,35 +115,4 @@ public class Services {
 
         ERROR_CODES_MAP = builder.build();
     }
-
-    public static ImmutableMap<String, Function<Object, Object>> converters(String[] fields, String tableName) {
-        JsonObject db = MyApp.loadConfig().getJsonObject(Services.DATABASE);
-        String url = db.getString("url");
-        String user = db.getString("user");
-        String password = db.getString("password");
-
-        ImmutableMap.Builder<String, Function<Object, Object>> builder = ImmutableMap.builder();
-        try {
-            try (Connection connection = DriverManager.getConnection(url, user, password)) {
-                Statement statement = connection.createStatement();
-                statement.execute("select * from " + tableName);
-                ResultSet rs = statement.getResultSet();
-                ResultSetMetaData metaData = rs.getMetaData();
-
-                int columnCount = metaData.getColumnCount();
-                for (int i = 0; i < columnCount; i++) {
-                    int columnType = metaData.getColumnType(i + 1);
-                    Function<Object, Object> converter = Services.TYPE_CONVERTERS.get(columnType);
-                    Objects.requireNonNull(converter, "Type Converter can't be null for Type: " +
-                        "[" + fields[i] + " " + columnType + ": " + Services.JDBC_TYPES.get(columnType) + "]");
-                    builder.put(fields[i], converter);
-                    System.out.println(columnType + ": " + Services.JDBC_TYPES.get(columnType));
-                }
-            }
-        } catch (SQLException e) {
-            LOGGER.error("Error connecting to database through jdbc", e);
-        }
-
-        return builder.build();
-    }
 }
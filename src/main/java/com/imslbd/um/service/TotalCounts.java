@@ -0,0 +1,252 @@
+package com.imslbd.um.service;
+
+import io.crm.promise.Promises;
+import io.crm.promise.intfs.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Total counts of the paginated UM lists per table and filter, so findAll does not run a count(*) over its joins
+ * next to every page query. A count is read from the database once and then kept up to date from the *_CREATED
+ * and *_DELETED events of its table: a created row matching the filter adds to it, a deleted row takes from it.
+ * An event the count can not be adjusted for (a filter column missing from the event, a delete or update in a
+ * filtered list, a change while the count was being read) marks it stale.
+ * <p>
+ * Counts read since the last run are recounted every reconcileSeconds. A stale count, or one that missed its
+ * reconciliation, is still served but flagged approximate.
+ * <p>
+ * Created by someone on 18/10/2026.
+ */
+public class TotalCounts {
+    public static final Logger LOGGER = LoggerFactory.getLogger(TotalCounts.class);
+    public static final String TOTAL_COUNTS = "TOTAL_COUNTS";
+    public static final String TOTAL_APPROXIMATE = "totalApproximate";
+    private static final String RECONCILE_SECONDS = "reconcileSeconds";
+    private static final String MAX_ENTRIES = "maxEntries";
+
+    private final Vertx vertx;
+    private final long reconcileMillis;
+    private final Map<String, Entry> entries;
+    private final long timer;
+    private long hits;
+    private long misses;
+    private long adjusted;
+    private long staled;
+    private long reconciled;
+
+    public TotalCounts(Vertx vertx, JsonObject config) {
+        final JsonObject cfg = config == null ? new JsonObject() : config;
+        final int maxEntries = cfg.getInteger(MAX_ENTRIES, 1000);
+        this.vertx = vertx;
+        this.reconcileMillis = cfg.getLong(RECONCILE_SECONDS, 300L) * 1000;
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        this.timer = vertx.setPeriodic(reconcileMillis, id -> reconcile());
+    }
+
+    /**
+     * Keeps the counts of table in step with its created, updated and deleted events.
+     *
+     * @param rows         number of rows the entity of an event adds to or takes from an unfiltered count, null
+     *                     if the event does not tell.
+     * @param updatesCounts whether an update can change the unfiltered count, as when it counts joined rows.
+     */
+    public TotalCounts track(String table, String createdEvent, String updatedEvent, String deletedEvent,
+                             Function<JsonObject, Long> rows, boolean updatesCounts) {
+        vertx.eventBus().consumer(createdEvent, (Message<JsonObject> message) -> changed(table, message.body(), rows, 1));
+        vertx.eventBus().consumer(updatedEvent, (Message<JsonObject> message) ->
+            changed(table, message.body(), updatesCounts ? entity -> null : rows, 0));
+        vertx.eventBus().consumer(deletedEvent, (Message<JsonObject> message) -> {
+            final Object id = message.body().getValue(Services.ID);
+            if (id != null && !"0".equals(id.toString())) {
+                changed(table, message.body(), rows, -1);
+            }
+        });
+        return this;
+    }
+
+    /**
+     * @param filter  column = value filter of the list, columns may be qualified with a table alias.
+     * @param counter counts the list in the database.
+     */
+    public Promise<Total> count(String table, JsonObject filter, Supplier<Promise<Long>> counter) {
+        final String key = table + filter.encode();
+        final Entry entry;
+        final long events;
+        synchronized (this) {
+            final Entry cached = entries.get(key);
+            if (cached != null && cached.count != null) {
+                hits++;
+                cached.read = true;
+                return Promises.from(new Total(cached.count, approximate(cached)));
+            }
+            misses++;
+            entry = cached != null ? cached : new Entry(table, filter.copy(), counter);
+            entry.read = true;
+            entries.put(key, entry);
+            events = entry.events;
+        }
+        return counter.get().map(count -> {
+            synchronized (this) {
+                set(entry, count, events);
+                return new Total(count, approximate(entry));
+            }
+        });
+    }
+
+    private synchronized void changed(String table, JsonObject entity, Function<JsonObject, Long> rows, int sign) {
+        entries.values().forEach(entry -> {
+            if (!entry.table.equals(table)) {
+                return;
+            }
+            entry.events++;
+            if (entry.count == null) {
+                return;
+            }
+            final Boolean matches = sign > 0 || entry.filter.isEmpty() ? matches(entry.filter, entity) : null;
+            final Long delta = rows.apply(entity);
+            if (matches == null || delta == null) {
+                entry.stale = true;
+                staled++;
+            } else if (matches && sign != 0) {
+                entry.count = Math.max(0, entry.count + sign * delta);
+                adjusted++;
+            }
+        });
+    }
+
+    /**
+     * @return whether the entity matches the filter, null if the entity lacks a filter column.
+     */
+    private static Boolean matches(JsonObject filter, JsonObject entity) {
+        for (String column : filter.fieldNames()) {
+            final String field = column.substring(column.lastIndexOf('.') + 1);
+            if (!entity.containsKey(field)) {
+                return null;
+            }
+            if (!Objects.equals(String.valueOf(filter.getValue(column)), String.valueOf(entity.getValue(field)))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void set(Entry entry, Long count, long events) {
+        entry.count = count;
+        entry.stale = entry.events != events;
+        entry.reconciledAt = System.currentTimeMillis();
+    }
+
+    private boolean approximate(Entry entry) {
+        return entry.stale || System.currentTimeMillis() - entry.reconciledAt > 2 * reconcileMillis;
+    }
+
+    private void reconcile() {
+        final List<Entry> due = new ArrayList<>();
+        synchronized (this) {
+            entries.values().forEach(entry -> {
+                if (entry.read && entry.count != null) {
+                    entry.read = false;
+                    due.add(entry);
+                }
+            });
+        }
+        due.forEach(entry -> {
+            final long events;
+            synchronized (this) {
+                events = entry.events;
+            }
+            entry.counter.get()
+                .then(count -> {
+                    synchronized (this) {
+                        set(entry, count, events);
+                        reconciled++;
+                    }
+                })
+                .error(e -> LOGGER.error("Error reconciling the total count of " + entry.table, e));
+        });
+    }
+
+    /**
+     * Builds the pagination of a page with the count of total, null if it was not counted, and flags it
+     * approximate when the count is.
+     */
+    public static JsonObject pagination(Total total, Function<Long, JsonObject> pagination) {
+        final JsonObject json = pagination.apply(total == null ? null : total.count);
+        if (total != null && total.approximate) {
+            json.put(TOTAL_APPROXIMATE, true);
+        }
+        return json;
+    }
+
+    public void close() {
+        vertx.cancelTimer(timer);
+    }
+
+    public synchronized JsonObject stats() {
+        final JsonArray counts = new JsonArray();
+        entries.values().forEach(entry -> counts.add(new JsonObject()
+            .put("table", entry.table)
+            .put("filter", entry.filter)
+            .put("count", entry.count)
+            .put("approximate", entry.count == null || approximate(entry))));
+        return new JsonObject()
+            .put("hits", hits)
+            .put("misses", misses)
+            .put("adjusted", adjusted)
+            .put("staled", staled)
+            .put("reconciled", reconciled)
+            .put("counts", counts);
+    }
+
+    public static final class Total {
+        private final Long count;
+        private final boolean approximate;
+
+        private Total(Long count, boolean approximate) {
+            this.count = count;
+            this.approximate = approximate;
+        }
+
+        public Long getCount() {
+            return count;
+        }
+
+        public boolean isApproximate() {
+            return approximate;
+        }
+    }
+
+    private static final class Entry {
+        private final String table;
+        private final JsonObject filter;
+        private final Supplier<Promise<Long>> counter;
+        private Long count;
+        private long events;
+        private boolean stale;
+        private boolean read;
+        private long reconciledAt;
+
+        private Entry(String table, JsonObject filter, Supplier<Promise<Long>> counter) {
+            this.table = table;
+            this.filter = filter;
+            this.counter = counter;
+        }
+    }
+}
@@ -24,6 +24,7 @@ import io.crm.web.util.Converters;
 import io.crm.web.util.WebUtils;
 import io.vertx.core.Vertx;
 import io.vertx.core.eventbus.Message;
+import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.jdbc.JDBCClient;
 import org.slf4j.Logger;
@@ -53,13 +54,14 @@ public class UnitService {
     private final ValidationPipeline<JsonObject> validationPipeline;
     private final Vertx vertx;
 
-    public UnitService(JDBCClient jdbcClient, String[] fields, Vertx vertx) {
+    public UnitService(JDBCClient jdbcClient, SchemaRegistry schema, Vertx vertx) {
+        final String[] fields = schema.columns(Tables.units.name());
         this.jdbcClient = jdbcClient;
         this.fields = fields;
         this.vertx = vertx;
 
         includeExcludeTransformation = new IncludeExcludeTransformation(ImmutableSet.copyOf(Arrays.asList(fields)), null);
-        converterTransformation = new ConverterTransformation(Services.converters(fields, Tables.units.name()));
+        converterTransformation = new ConverterTransformation(schema.converters(Tables.units.name()));
 
         validationPipeline = new ValidationPipeline<>(ImmutableList.copyOf(validators()));
         defaultValueTransformation = new DefaultValueTransformation(
@@ -107,7 +109,7 @@ public class UnitService {
 
         final long id = message.body();
 
-        WebUtils.query("select * from units where id = " + id, jdbcClient)
+        WebUtils.query("select * from units where id = ?", new JsonArray().add(id), jdbcClient)
             .decideAndMap(rs -> Decision.of(rs.getNumRows() <= 0 ? NOT_FOUND
                 : Decision.CONTINUE, rs))
             .on(NOT_FOUND,
@@ -40,7 +40,6 @@ import java.util.*;
 import java.util.stream.Collectors;
 
 import static com.imslbd.um.service.Services.AUTH_TOKEN;
-import static com.imslbd.um.service.Services.converters;
 
 /**
  * Created by shahadat on 3/6/16.
@@ -57,6 +56,7 @@ public class UserService {
     private static final String PASSWORD_MISMATCH = "PASSWORD_MISMATCH";
 
     private final Vertx vertx;
+    private final TotalCounts totalCounts;
     private final JDBCClient jdbcClient;
     private final RemoveNullsTransformation removeNullsTransformation;
     private final DefaultValueTransformation defaultValueTransformationParams = new DefaultValueTransformation(Util.EMPTY_JSON_OBJECT);
@@ -75,14 +75,16 @@ public class UserService {
     private final ValidationPipeline<JsonObject> changePasswordValidationPipeline;
     private final IncludeExcludeTransformation changePasswordIncludeExcludeTransformation = new IncludeExcludeTransformation(ImmutableSet.of(User.ID, User.PASSWORD), null);
 
-    public UserService(JDBCClient jdbcClient, String[] fields, Vertx vertx) {
+    public UserService(JDBCClient jdbcClient, SchemaRegistry schema, Vertx vertx, TotalCounts totalCounts) {
+        final String[] fields = schema.columns(Tables.users.name());
         this.vertx = vertx;
+        this.totalCounts = totalCounts;
         this.jdbcClient = jdbcClient;
 
         removeNullsTransformation = new RemoveNullsTransformation();
         includeExcludeTransformation = new IncludeExcludeTransformation(
             ImmutableSet.copyOf(Arrays.asList(fields)), null);
-        converterTransformation = new ConverterTransformation(converters(fields, Tables.users.name()));
+        converterTransformation = new ConverterTransformation(schema.converters(Tables.users.name()));
 
         defaultValueTransformation = new DefaultValueTransformation(
             new JsonObject()
@@ -183,14 +185,32 @@ public class UserService {
                 int page = json.getInteger(PAGE, 1);
                 int size = json.getInteger(SIZE, DEFAULT_PAGE_SIZE);
                 String from = "from users";
+                final boolean keyset = PageCursor.requested(json);
+                final PageCursor cursor = keyset ? PageCursor.of(json) : null;
+
+                final String pageSql;
+                final JsonArray pageParams = new JsonArray();
+                if (keyset) {
+                    String seek = "";
+                    if (cursor != null) {
+                        seek = " where username > ? or (username = ? and id > ?)";
+                        pageParams.add(cursor.getSortKey()).add(cursor.getSortKey()).add(cursor.getId());
+                    }
+                    pageSql = "select * " + from + seek +
+                        " order by username asc, id asc" +
+                        " limit " + (size + 1);
+                } else {
+                    pageSql = "select * " + from +
+                        " order by username asc" +
+                        " " + UmUtils.limitOffset(page, size);
+                }
 
                 Promises.when(
-                    WebUtils.query("select count(*) as totalCount " + from, jdbcClient)
-                        .map(resultSet -> resultSet.getResults().get(0).getLong(0)),
-                    WebUtils.query(
-                        "select * " + from +
-                            " order by username asc" +
-                            " " + UmUtils.limitOffset(page, size), jdbcClient)
+                    !keyset || PageCursor.withTotal(json)
+                        ? totalCounts.count(Tables.users.name(), new JsonObject(), () -> WebUtils.query("select count(*) as totalCount " + from, jdbcClient)
+                        .map(resultSet -> resultSet.getResults().get(0).getLong(0)))
+                        : Promises.from((TotalCounts.Total) null),
+                    WebUtils.query(pageSql, pageParams, jdbcClient)
                         .map(resultSet3 -> new JsonObject()
                             .put(HEADERS, resultSet3.getColumnNames()
                                 .stream()
@@ -198,9 +218,19 @@ public class UserService {
                                 .collect(Collectors.toList()))
                             .put(DATA, resultSet3.getRows())))
                     .map(tpl2 -> tpl2.apply(
-                        (totalCount, js) ->
-                            js.put(PAGINATION,
-                                new Pagination(page, size, totalCount).toJson())))
+                        (totalCount, js) -> {
+                            if (!keyset) {
+                                return js.put(PAGINATION, TotalCounts.pagination(totalCount,
+                                    count -> new Pagination(page, size, count).toJson()));
+                            }
+                            final List<JsonObject> rows = js.getJsonArray(DATA).getList();
+                            final JsonObject last = rows.size() > size ? rows.get(size - 1) : null;
+                            return js
+                                .put(DATA, new ArrayList<>(rows.subList(0, Math.min(size, rows.size()))))
+                                .put(PAGINATION, TotalCounts.pagination(totalCount, count -> PageCursor.pagination(size,
+                                    last == null ? null : PageCursor.encode(last.getValue("username"), last.getValue("id")),
+                                    count)));
+                        }))
                     .then(message::reply)
                     .error(e -> ExceptionUtil.fail(message, e))
                 ;
@@ -213,7 +243,7 @@ public class UserService {
         Promises
             .callable(() -> message.body())
             .then(
-                id -> WebUtils.query("select * from users where id = " + id, jdbcClient)
+                id -> WebUtils.query("select * from users where id = ?", new JsonArray().add(id), jdbcClient)
                     .decide(resultSet -> resultSet.getNumRows() < 1 ? USER_NOT_FOUND : Decision.CONTINUE)
                     .on(USER_NOT_FOUND,
                         rs -> {
@@ -354,8 +384,8 @@ public class UserService {
             .mapToPromise(id -> WebUtils.delete(Tables.users.name(), id, jdbcClient)
                 .map(updateResult -> updateResult.getUpdated() > 0 ? id : 0)
                 .then(message::reply))
-            .then(vv -> vertx.eventBus().publish(UmEvents.USER_DELETED,
-                new JsonObject().put(Inventory.DELETED_BY, user)
+            .then(id -> vertx.eventBus().publish(UmEvents.USER_DELETED,
+                new JsonObject().put(User.ID, id).put(Inventory.DELETED_BY, user)
                     .put(Inventory.DELETE_DATE, Converters.toMySqlDateString(new Date()))))
             .error(e ->
                 ExceptionUtil.fail(message, e))
@@ -177,7 +177,8 @@ site.reactjs.CallSubmitForm = React.createClass({
             url: "/call/create",
             cache: false,
             method: "post",
-            data: $('#call-submit-form').serialize(),
+            data: $('#call-submit-form').serialize() + '&fencing_token='
+            + ((site.fencingTokens || {})[$this.props.data.SMS_ID] || ''),
             success: function (js) {
                 if (js.status == 'success') {
                     $this.setState({CALL_ID: js.call_id}, function () {
@@ -23,17 +23,27 @@ site.reactjs.ContactDetailsAndCall = React.createClass({
         this.getCallOperator();
         this.getBrands();
 
-        eb.publish('LOCK_CONTACT_ID', {
+        $this.lockStateAddress = site.partitionAddress('LOCK_STATE', params.distributionHouseId);
+        if ($this.lockStateAddress !== 'LOCK_STATE') {
+            eb.registerHandler($this.lockStateAddress, null, site.onOwnLockState);
+        }
+
+        var lock = $.extend(site.lockPartition(params.distributionHouseId), {
             SMS_ID: parseInt(params.sms_id),
             CALL_OPERATOR: parseInt(params.call_operator)
         });
-        console.log("EB.published(LOCK_CONTACT_ID): " + JSON.stringify({
-                SMS_ID: parseInt(params.sms_id),
-                CALL_OPERATOR: parseInt(params.call_operator)
-            }));
+        site.lockContact(lock);
+        console.log("EB.sent(LOCK_CONTACT_ID): " + JSON.stringify(lock));
+
+        $this.lockHeartbeat = setInterval(function () {
+            if (eb.state === EventBus.OPEN) {
+                eb.publish('LOCK_HEARTBEAT', {CALL_OPERATOR: lock.CALL_OPERATOR, SMS_IDS: [lock.SMS_ID]});
+            }
+        }, site.CONTACT_LOCK_HEARTBEAT_SECONDS * 1000);
     },
     componentWillUnmount: function () {
         var $this = this;
+        clearInterval($this.lockHeartbeat);
         eb.publish('UN_LOCK_CONTACT_ID', {
             SMS_ID: $this.state.data.SMS_ID,
             CALL_OPERATOR: $this.state.callOperator.CALL_OPERATOR_ID
@@ -42,6 +52,9 @@ site.reactjs.ContactDetailsAndCall = React.createClass({
                 SMS_ID: $this.state.data.SMS_ID,
                 CALL_OPERATOR: $this.state.callOperator.CALL_OPERATOR_ID
             }));
+        if ($this.lockStateAddress !== 'LOCK_STATE' && eb.state === EventBus.OPEN) {
+            eb.unregisterHandler($this.lockStateAddress, null, site.onOwnLockState);
+        }
     },
     render: function () {
         var $this = this;
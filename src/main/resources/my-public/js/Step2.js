@@ -53,6 +53,9 @@ site.reactjs.Step2 = React.createClass({
 
                         <div className="col-md-12">
                             <strong>BR Name: {brInfo.BR_NAME} | BR ID: {brInfo.BR_ID} </strong>
+                            <button className="btn btn-sm btn-success pull-right"
+                                    onClick={$this.nextContact}>Next Contact
+                            </button>
                         </div>
 
                         <div className="col-md-12">
@@ -84,6 +87,35 @@ site.reactjs.Step2 = React.createClass({
             </div>
         );
     },
+    nextContact: function () {
+        var params = site.hash.params();
+        $.ajax({
+            url: '/consumer-contacts/next',
+            data: {
+                areaId: params.areaId,
+                distributionHouseId: params.distributionHouseId,
+                'work-date-range': params['work-date-range'],
+                recallMode: params.recallMode || ''
+            },
+            cache: false,
+            success: function (assignment) {
+                if (assignment.status !== 'success') {
+                    alert("No pending contact is left for this distribution house.");
+                    return;
+                }
+                site.fencingTokens = site.fencingTokens || {};
+                site.fencingTokens[assignment.SMS_ID] = assignment.FENCING_TOKEN;
+                site.hash.goto('/call', {
+                    'sms_id': assignment.SMS_ID,
+                    call_operator: window.currentUser.CALL_OPERATOR_ID,
+                    distributionHouseId: params.distributionHouseId
+                });
+            },
+            error: function () {
+                alert("Could not get the next contact. Please try again.");
+            }
+        });
+    },
     onFilterFiledsInit: function (filterFieldsRef) {
         this.setState({filterFieldsRef: filterFieldsRef});
     },
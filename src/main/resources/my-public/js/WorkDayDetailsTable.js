@@ -106,18 +106,20 @@ site.reactjs.WorkDayDetailsTable = React.createClass({
 
     registerEventBusHandler: function () {
         var $this = this;
-        eb.registerHandler('LOCK_CONTACT_ID', null, $this.lock);
-        eb.registerHandler('UN_LOCK_CONTACT_ID', null, $this.unLock);
-        eb.registerHandler("CONTACT_UPDATED", null, $this.updateContact);
-        console.log("EB registered")
+        $this.lockStateSeq = {};
+        $this.distributionHouseId = site.hash.params().distributionHouseId;
+        $this.lockStateAddress = site.partitionAddress('LOCK_STATE', $this.distributionHouseId);
+        $this.contactUpdatedAddress = site.partitionAddress('CONTACT_UPDATED', $this.distributionHouseId);
+        eb.registerHandler($this.lockStateAddress, null, $this.lockState);
+        eb.registerHandler($this.contactUpdatedAddress, null, $this.updateContact);
+        console.log("EB registered: " + $this.lockStateAddress)
     },
 
     unregisterEventBusHandler: function () {
         var $this = this;
-        eb.unregisterHandler('LOCK_CONTACT_ID', null, $this.lock);
-        eb.unregisterHandler('UN_LOCK_CONTACT_ID', null, $this.unLock);
-        eb.unregisterHandler("CONTACT_UPDATED", null, $this.updateContact);
-        console.log("EB Unregistered")
+        eb.unregisterHandler($this.lockStateAddress, null, $this.lockState);
+        eb.unregisterHandler($this.contactUpdatedAddress, null, $this.updateContact);
+        console.log("EB Unregistered: " + $this.lockStateAddress)
     },
 
     updateContact: function (err, msg) {
@@ -145,50 +147,72 @@ site.reactjs.WorkDayDetailsTable = React.createClass({
         });
     },
 
-    lock: function (err, msg) {
-        console.log("LOCK EVENT")
-        console.log(msg)
+    lockState: function (err, msg) {
         var $this = this;
-        var SMS_ID = parseInt(msg.body.SMS_ID);
-        var data = this.state.data;
-        var v = data.find(function (val) {
-                return val.SMS_ID === SMS_ID;
-            }) || {};
-        if (!!v.LOCKED_BY) {
+        var frame = msg.body;
+        var lastSeq = $this.lockStateSeq[frame.node];
+        $this.lockStateSeq[frame.node] = frame.seq;
+
+        if (lastSeq !== undefined && frame.seq !== lastSeq + 1) {
+            $this.lockStateSnapshot();
             return;
         }
-        v.LOCKED_BY = msg.body.CALL_OPERATOR;
+
+        var data = this.state.data;
+        frame.locked.forEach(function (lock) {
+            var v = data.find(function (val) {
+                    return val.SMS_ID === lock.SMS_ID;
+                }) || {};
+            v.LOCKED_BY = lock.CALL_OPERATOR;
+        });
+        frame.unlocked.forEach(function (lock) {
+            var v = data.find(function (val) {
+                    return (val.SMS_ID === lock.SMS_ID) && (val.LOCKED_BY === lock.CALL_OPERATOR);
+                }) || {};
+            v.LOCKED_BY = false;
+        });
         this.setState({
             data: data,
             __render: !$this.state.__render
         });
     },
 
-    unLock: function (err, msg) {
-        console.log("UNLOCK EVENT")
-        console.log(msg)
+    lockStateSnapshot: function () {
         var $this = this;
-        var SMS_ID = parseInt(msg.body.SMS_ID);
-        var data = this.state.data;
-        var v = data.find(function (val) {
-                return (val.SMS_ID === SMS_ID) && (val.LOCKED_BY === msg.body.CALL_OPERATOR);
-            }) || {};
-        v.LOCKED_BY = false;
-        this.setState({
-            data: data,
-            __render: !$this.state.__render
+        eb.send('LOCK_STATE_SNAPSHOT', site.lockPartition($this.distributionHouseId), function (err, msg) {
+            if (!!err) {
+                return;
+            }
+            var snapshot = msg.body;
+            $this.lockStateSeq[snapshot.node] = snapshot.seq;
+            var lockedBy = {};
+            snapshot.locked.forEach(function (lock) {
+                lockedBy[lock.SMS_ID] = lock.CALL_OPERATOR;
+            });
+            var data = $this.state.data;
+            data.forEach(function (v) {
+                v.LOCKED_BY = lockedBy[v.SMS_ID] || false;
+            });
+            $this.setState({
+                data: data,
+                __render: !$this.state.__render
+            });
         });
     },
 
     gotoCallForm: function (SMS_ID) {
         var $this = this;
 
-        eb.publish('LOCK_CONTACT_ID', {
+        site.lockContact($.extend(site.lockPartition($this.distributionHouseId), {
             SMS_ID: SMS_ID,
             CALL_OPERATOR: window.currentUser.CALL_OPERATOR_ID
-        });
+        }));
 
-        site.hash.goto('/call', {'sms_id': SMS_ID, call_operator: window.currentUser.CALL_OPERATOR_ID});
+        site.hash.goto('/call', {
+            'sms_id': SMS_ID,
+            call_operator: window.currentUser.CALL_OPERATOR_ID,
+            distributionHouseId: $this.distributionHouseId
+        });
     },
     tableHeight: function (height) {
         return height - 60;
@@ -198,6 +222,11 @@ site.reactjs.WorkDayDetailsTable = React.createClass({
     },
     updateData: function (data) {
         var $this = this;
+        var lockStateAddress = site.partitionAddress('LOCK_STATE', site.hash.params().distributionHouseId);
+        if (lockStateAddress !== $this.lockStateAddress && eb.state === EventBus.OPEN) {
+            $this.unregisterEventBusHandler();
+            $this.registerEventBusHandler();
+        }
         this.setState(this.interceptState({data: data, __render: !$this.state.__render}));
     },
     interceptState: function (state) {
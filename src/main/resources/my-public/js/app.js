@@ -105,7 +105,7 @@ site.reactjs.App = React.createClass({
             url: '/current-campaign',
             cache: false,
             success: function (campaign) {
-
+                window.currentCampaign = campaign;
                 $this.setState({
                     campaign: campaign
                 });
@@ -136,16 +136,6 @@ if (eb.state === 1) {
 
 
 function registerEventBusHandlers() {
-    console.log("EB registering ALREADY_LOCKED");
-    eb.registerHandler('ALREADY_LOCKED', null, function (err, msg) {
-        console.log("already_locked");
-        var params = site.hash.params();
-        var call_operator = parseInt(params.call_operator);
-        var sms_id = parseInt(params.sms_id);
-
-        if ((msg.body.SMS_ID == sms_id) && (msg.body.LOCKED_BY !== call_operator)) {
-            alert("An agent is already calling on this sms_id: " + sms_id + ". " +
-                "Please choose another contact.");
-        }
-    });
+    console.log("EB registering LOCK_STATE");
+    eb.registerHandler('LOCK_STATE', null, site.onOwnLockState);
 }
\ No newline at end of file
@@ -124,6 +124,58 @@ window.site = {
     }]
 }
 
+site.CONTACT_LOCK_HEARTBEAT_SECONDS = 10;
+
+/**
+ * Lock state and contact updates are published per campaign and distribution house,
+ * e.g. LOCK_STATE.2.68. Falls back to the global address while either is unknown.
+ */
+site.partitionAddress = function (address, distributionHouseId) {
+    var campaign = window.currentCampaign || {};
+    if (!campaign.id || !distributionHouseId) {
+        return address;
+    }
+    return address + '.' + campaign.id + '.' + distributionHouseId;
+};
+
+site.lockPartition = function (distributionHouseId) {
+    var campaign = window.currentCampaign || {};
+    return {CAMPAIGN_ID: campaign.id, DISTRIBUTION_HOUSE_ID: distributionHouseId};
+};
+
+/**
+ * Locks the contact for the call operator and keeps the fencing token of the lock, which only comes in the
+ * reply to the lock request.
+ */
+site.lockContact = function (lock) {
+    eb.send('LOCK_CONTACT_ID', lock, {}, function (err, msg) {
+        if (err) {
+            console.log("LOCK_CONTACT_ID failed: " + JSON.stringify(err));
+            return;
+        }
+        if (msg.body.status === 'success') {
+            site.fencingTokens = site.fencingTokens || {};
+            site.fencingTokens[msg.body.SMS_ID] = msg.body.FENCING_TOKEN;
+        }
+    });
+};
+
+/**
+ * Alerts the current call operator on lock conflicts.
+ */
+site.onOwnLockState = function (err, msg) {
+    var params = site.hash.params();
+    var call_operator = parseInt(params.call_operator);
+    var sms_id = parseInt(params.sms_id);
+
+    msg.body.conflicts.forEach(function (conflict) {
+        if ((conflict.SMS_ID == sms_id) && (conflict.LOCKED_BY !== call_operator)) {
+            alert("An agent is already calling on this sms_id: " + sms_id + ". " +
+                "Please choose another contact.");
+        }
+    });
+};
+
 var cd = {
     "br_id": "1217",
     "house_id": "68",
@@ -0,0 +1,69 @@
+package com.imslbd.call_center.service;
+
+import com.hazelcast.config.Config;
+import com.hazelcast.config.JoinConfig;
+import io.vertx.core.Vertx;
+import io.vertx.core.VertxOptions;
+import io.vertx.spi.cluster.hazelcast.HazelcastClusterManager;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ClusteredContactLockBackend} on three clustered Vertx instances started in this JVM, joined over
+ * loopback TCP instead of multicast.
+ * <p>
+ * Created by someone on 18/10/2026.
+ */
+public class ClusteredContactLockBackendTest extends ContactLockBackendTestBase {
+    private static final int NODES = 3;
+    private static final List<Vertx> nodes = new ArrayList<>();
+    private static final List<ContactLockBackend> backends = new ArrayList<>();
+
+    @BeforeClass
+    public static void startCluster() throws Exception {
+        for (int i = 0; i < NODES; i++) {
+            final Config config = new Config();
+            config.setProperty("hazelcast.logging.type", "slf4j");
+            final JoinConfig join = config.getNetworkConfig().getJoin();
+            join.getMulticastConfig().setEnabled(false);
+            join.getTcpIpConfig().setEnabled(true).addMember("127.0.0.1");
+            config.getNetworkConfig().getInterfaces().setEnabled(true).addInterface("127.0.0.1");
+
+            final CompletableFuture<Vertx> future = new CompletableFuture<>();
+            Vertx.clusteredVertx(new VertxOptions()
+                    .setClustered(true)
+                    .setClusterHost("127.0.0.1")
+                    .setClusterManager(new HazelcastClusterManager(config)),
+                ar -> {
+                    if (ar.succeeded()) {
+                        future.complete(ar.result());
+                    } else {
+                        future.completeExceptionally(ar.cause());
+                    }
+                });
+            final Vertx vertx = future.get(60, TimeUnit.SECONDS);
+            nodes.add(vertx);
+            backends.add(new ClusteredContactLockBackend(vertx));
+        }
+    }
+
+    @AfterClass
+    public static void stopCluster() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(nodes.size());
+        nodes.forEach(vertx -> vertx.close(ar -> latch.countDown()));
+        latch.await(60, TimeUnit.SECONDS);
+        nodes.clear();
+        backends.clear();
+    }
+
+    @Override
+    protected List<ContactLockBackend> backends() {
+        return backends;
+    }
+}
@@ -0,0 +1,164 @@
+package com.imslbd.call_center.service;
+
+import io.crm.promise.intfs.Promise;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks of a {@link ContactLockBackend} shared by several nodes, each node is a Vertx instance of its own in
+ * this JVM with its own backend. Subclasses start the nodes.
+ * <p>
+ * Created by someone on 18/10/2026.
+ */
+public abstract class ContactLockBackendTestBase {
+    private static final long LEASE_MILLIS = 30000;
+
+    /**
+     * @return one backend per node, at least two.
+     */
+    protected abstract List<ContactLockBackend> backends();
+
+    /**
+     * @return a contact id no earlier test run has used.
+     */
+    private static Long newSmsId() {
+        return System.nanoTime();
+    }
+
+    @Test
+    public void conflictingAcquiresGrantOneLease() throws Exception {
+        final Long smsId = newSmsId();
+        final List<ContactLockBackend> backends = backends();
+
+        final List<Promise<ContactLockBackend.Lease>> acquires = new ArrayList<>();
+        for (int i = 0; i < backends.size(); i++) {
+            acquires.add(backends.get(i).acquire(smsId, 100L + i, LEASE_MILLIS));
+        }
+
+        ContactLockBackend.Lease granted = null;
+        final List<ContactLockBackend.Lease> refused = new ArrayList<>();
+        for (Promise<ContactLockBackend.Lease> acquire : acquires) {
+            final ContactLockBackend.Lease lease = await(acquire);
+            if (lease.isAcquired()) {
+                assertNull("two nodes were granted the same contact", granted);
+                granted = lease;
+            } else {
+                refused.add(lease);
+            }
+        }
+
+        assertNotNull(granted);
+        assertNotNull(granted.getFencingToken());
+        assertEquals(backends.size() - 1, refused.size());
+        for (ContactLockBackend.Lease lease : refused) {
+            assertEquals(granted.getOperator(), lease.getOperator());
+            assertNull(lease.getFencingToken());
+        }
+
+        for (ContactLockBackend backend : backends) {
+            assertTrue(await(backend.validate(smsId, granted.getOperator(), granted.getFencingToken())));
+            for (int i = 0; i < backends.size(); i++) {
+                final Long operator = 100L + i;
+                if (!operator.equals(granted.getOperator())) {
+                    assertFalse(await(backend.validate(smsId, operator, granted.getFencingToken())));
+                }
+            }
+        }
+        await(backends.get(0).release(smsId, granted.getOperator()));
+    }
+
+    @Test
+    public void fencingTokensIncreaseAcrossNodes() throws Exception {
+        final Long smsId = newSmsId();
+        final List<ContactLockBackend> backends = backends();
+
+        long previous = 0;
+        for (int round = 0; round < 4 * backends.size(); round++) {
+            final ContactLockBackend backend = backends.get(round % backends.size());
+            final Long operator = 200L + round;
+            final ContactLockBackend.Lease lease = await(backend.acquire(smsId, operator, LEASE_MILLIS));
+            assertTrue(lease.isAcquired());
+            assertTrue("token " + lease.getFencingToken() + " after " + previous, lease.getFencingToken() > previous);
+            previous = lease.getFencingToken();
+
+            final Long other = newSmsId();
+            final ContactLockBackend.Lease otherLease = await(backends.get((round + 1) % backends.size())
+                .acquire(other, operator, LEASE_MILLIS));
+            assertTrue(otherLease.getFencingToken() > previous);
+            previous = otherLease.getFencingToken();
+
+            await(backend.release(other, operator));
+            await(backends.get((round + 1) % backends.size()).release(smsId, operator));
+        }
+    }
+
+    @Test
+    public void extendingALeaseKeepsItsToken() throws Exception {
+        final Long smsId = newSmsId();
+        final List<ContactLockBackend> backends = backends();
+
+        final ContactLockBackend.Lease first = await(backends.get(0).acquire(smsId, 300L, LEASE_MILLIS));
+        final ContactLockBackend.Lease extended = await(backends.get(1).acquire(smsId, 300L, LEASE_MILLIS));
+        assertTrue(extended.isAcquired());
+        assertEquals(first.getFencingToken(), extended.getFencingToken());
+        await(backends.get(1).release(smsId, 300L));
+    }
+
+    @Test
+    public void renewalKeepsTheTokenAndNeverGrantsALease() throws Exception {
+        final Long smsId = newSmsId();
+        final List<ContactLockBackend> backends = backends();
+
+        assertFalse(await(backends.get(0).renew(smsId, 500L, LEASE_MILLIS)).isAcquired());
+        final ContactLockBackend.Lease lease = await(backends.get(0).acquire(smsId, 500L, LEASE_MILLIS));
+        for (ContactLockBackend backend : backends) {
+            final ContactLockBackend.Lease renewed = await(backend.renew(smsId, 500L, LEASE_MILLIS));
+            assertTrue(renewed.isAcquired());
+            assertEquals(lease.getFencingToken(), renewed.getFencingToken());
+        }
+
+        final ContactLockBackend.Lease refused = await(backends.get(1).renew(smsId, 501L, LEASE_MILLIS));
+        assertFalse(refused.isAcquired());
+        assertEquals(Long.valueOf(500L), refused.getOperator());
+        assertTrue(await(backends.get(1).validate(smsId, 500L, lease.getFencingToken())));
+
+        await(backends.get(0).release(smsId, 500L));
+        assertFalse(await(backends.get(1).renew(smsId, 500L, LEASE_MILLIS)).isAcquired());
+    }
+
+    @Test
+    public void expiredLeaseIsTakenOverWithAGreaterToken() throws Exception {
+        final Long smsId = newSmsId();
+        final List<ContactLockBackend> backends = backends();
+
+        final ContactLockBackend.Lease expired = await(backends.get(0).acquire(smsId, 400L, 200));
+        assertTrue(expired.isAcquired());
+        Thread.sleep(2500);
+        assertFalse(await(backends.get(1).renew(smsId, 400L, LEASE_MILLIS)).isAcquired());
+
+        final ContactLockBackend.Lease taken = await(backends.get(1).acquire(smsId, 401L, LEASE_MILLIS));
+        assertTrue(taken.isAcquired());
+        assertTrue(taken.getFencingToken() > expired.getFencingToken());
+        assertFalse(await(backends.get(1).validate(smsId, 400L, expired.getFencingToken())));
+        assertTrue(await(backends.get(0).validate(smsId, 401L, taken.getFencingToken())));
+        await(backends.get(0).release(smsId, 401L));
+    }
+
+    static <T> T await(Promise<T> promise) throws Exception {
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        promise
+            .then(future::complete)
+            .error(future::completeExceptionally);
+        return future.get(30, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,140 @@
+package com.imslbd.call_center.service;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Replay of the {@link ContactLockJournal}: a 100k record journal, whose recovery time is logged, unlock and
+ * renewal records, and locks whose partition is not numeric.
+ * <p>
+ * Created by someone on 18/10/2026.
+ */
+public class ContactLockJournalTest {
+    public static final Logger LOGGER = LoggerFactory.getLogger(ContactLockJournalTest.class);
+    private static final int RECORDS = 100000;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private Vertx vertx;
+    private JsonObject config;
+
+    @Before
+    public void setUp() throws Exception {
+        vertx = Vertx.vertx();
+        config = new JsonObject()
+            .put("enabled", true)
+            .put("path", folder.newFile("contact-locks.journal").getPath())
+            .put("initialSizeBytes", 8 * 1024 * 1024)
+            .put("compactSeconds", 3600);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+        vertx.close(ar -> latch.countDown());
+        latch.await(30, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void replaysOneHundredThousandRecords() {
+        final long expiresAt = System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1);
+        final ContactLockJournal writer = new ContactLockJournal(vertx, config);
+        assertTrue(writer.replay().isEmpty());
+        for (long smsId = 1; smsId <= RECORDS; smsId++) {
+            writer.locked(smsId, smsId % 500, smsId, expiresAt, (smsId % 7) + "." + (smsId % 40));
+        }
+        writer.close();
+        assertEquals(RECORDS, (long) writer.stats().getLong("records"));
+
+        final ContactLockJournal reader = new ContactLockJournal(vertx, config);
+        final long start = System.nanoTime();
+        final List<ContactLockJournal.Entry> entries = reader.replay();
+        final long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        reader.close();
+        LOGGER.info("Replayed " + RECORDS + " contact lock records in " + millis + " ms");
+
+        assertEquals(RECORDS, entries.size());
+        assertEquals(RECORDS, reader.getMaxFencingToken());
+        final ContactLockJournal.Entry last = entries.get(entries.size() - 1);
+        assertEquals(Long.valueOf(RECORDS), last.getSmsId());
+        assertEquals((RECORDS % 7) + "." + (RECORDS % 40), last.getPartition());
+        assertEquals(RECORDS, (long) reader.stats().getLong("recovered"));
+    }
+
+    @Test
+    public void replayAppliesUnlocksAndRenewals() {
+        final long now = System.currentTimeMillis();
+        final long expiresAt = now + TimeUnit.HOURS.toMillis(1);
+        final ContactLockJournal writer = new ContactLockJournal(vertx, config);
+        writer.replay();
+        for (long smsId = 1; smsId <= 1000; smsId++) {
+            writer.locked(smsId, smsId, smsId, smsId % 2 == 0 ? now - 1 : expiresAt, "1.1");
+        }
+        for (long smsId = 1; smsId <= 1000; smsId += 4) {
+            writer.unlocked(smsId);
+        }
+        for (long smsId = 2; smsId <= 1000; smsId += 4) {
+            writer.renewed(smsId, expiresAt + 1);
+        }
+        writer.close();
+
+        final Map<Long, ContactLockJournal.Entry> entries = new HashMap<>();
+        final ContactLockJournal reader = new ContactLockJournal(vertx, config);
+        reader.replay().forEach(entry -> entries.put(entry.getSmsId(), entry));
+        reader.close();
+
+        for (long smsId = 1; smsId <= 1000; smsId++) {
+            final ContactLockJournal.Entry entry = entries.get(smsId);
+            if (smsId % 4 == 1) {
+                assertNull("unlocked " + smsId, entry);
+            } else if (smsId % 4 == 2) {
+                assertEquals("renewed " + smsId, expiresAt + 1, entry.getExpiresAt());
+            } else if (smsId % 4 == 3) {
+                assertEquals(expiresAt, entry.getExpiresAt());
+            } else {
+                assertNull("expired " + smsId, entry);
+            }
+        }
+        assertEquals(1000, reader.getMaxFencingToken());
+    }
+
+    @Test
+    public void lockWithANonNumericPartitionIsJournaledWithoutIt() {
+        final long expiresAt = System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1);
+        final ContactLockJournal writer = new ContactLockJournal(vertx, config);
+        writer.replay();
+        writer.locked(1L, 10L, 1L, expiresAt, "campaign.7");
+        writer.locked(2L, 20L, 2L, expiresAt, "12");
+        writer.locked(3L, 30L, 3L, expiresAt, "3.4");
+        writer.close();
+
+        final ContactLockJournal reader = new ContactLockJournal(vertx, config);
+        final List<ContactLockJournal.Entry> entries = reader.replay();
+        reader.close();
+
+        assertEquals(3, entries.size());
+        assertNull(entries.get(0).getCampaignId());
+        assertNull(entries.get(0).getPartition());
+        assertNull(entries.get(1).getDistributionHouseId());
+        assertNull(entries.get(1).getPartition());
+        assertEquals("3.4", entries.get(2).getPartition());
+    }
+}
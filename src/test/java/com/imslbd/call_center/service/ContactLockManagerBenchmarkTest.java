@@ -0,0 +1,143 @@
+package com.imslbd.call_center.service;
+
+import org.junit.Assume;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Microbenchmark of {@link ContactLockManager} with 10k locks held at once: operators moving to a new contact,
+ * LOCKED_BY lookups and unlocks, single threaded and from several threads at a time. The operations are a
+ * constant number of hash lookups, so the cost per operation at 10k locks must stay close to the cost at 100.
+ * The consistency checks always run; the timed runs only with -Dbenchmarks=true, a plain test run does a short
+ * multi threaded pass and does not look at the clock.
+ * <p>
+ * Created by someone on 18/10/2026.
+ */
+public class ContactLockManagerBenchmarkTest {
+    public static final Logger LOGGER = LoggerFactory.getLogger(ContactLockManagerBenchmarkTest.class);
+    private static final int LOCKS = 10000;
+    private static final int SMALL = 100;
+    private static final int OPERATIONS = 1000000;
+    private static final int CHECK_OPERATIONS = 80000;
+    private static final int THREADS = 8;
+
+    @Test
+    public void tenThousandConcurrentLocks() throws Exception {
+        final ContactLockManager manager = new ContactLockManager();
+        lockAll(manager, LOCKS);
+        assertEquals(LOCKS, manager.size());
+        for (long operator = 0; operator < LOCKS; operator++) {
+            assertEquals(Long.valueOf(operator), manager.lockedBy(operator));
+            assertEquals(Long.valueOf(operator), manager.lockOf(operator));
+        }
+    }
+
+    @Test
+    public void costPerOperationDoesNotGrowWithTheNumberOfLocks() throws Exception {
+        Assume.assumeTrue("timed runs need -Dbenchmarks=true", Boolean.getBoolean("benchmarks"));
+        final ContactLockManager manager = new ContactLockManager();
+        lockAll(manager, LOCKS);
+        final ContactLockManager small = new ContactLockManager();
+        lockAll(small, SMALL);
+
+        run(manager, LOCKS);
+        run(small, SMALL);
+        final double nanosAtLocks = run(manager, LOCKS);
+        final double nanosAtSmall = run(small, SMALL);
+        LOGGER.info(String.format("ContactLockManager: %.1f ns/op at %d locks, %.1f ns/op at %d locks",
+            nanosAtLocks, LOCKS, nanosAtSmall, SMALL));
+
+        assertEquals(LOCKS, manager.size());
+        assertTrue("cost per operation grows with the number of locks: " + nanosAtLocks + " ns vs " + nanosAtSmall + " ns",
+            nanosAtLocks < Math.max(nanosAtSmall * 5, 2000));
+    }
+
+    @Test
+    public void tenThousandConcurrentLocksFromSeveralThreads() throws Exception {
+        final ContactLockManager manager = new ContactLockManager();
+        lockAll(manager, LOCKS);
+        final int perThread = (Boolean.getBoolean("benchmarks") ? OPERATIONS : CHECK_OPERATIONS) / THREADS;
+
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(THREADS);
+        final AtomicLong operations = new AtomicLong();
+        final List<Throwable> errors = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            final int thread = t;
+            new Thread(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < perThread; i++) {
+                        final long operator = (thread + (long) i * THREADS) % LOCKS;
+                        final long smsId = LOCKS + operator;
+                        final ContactLockManager.LockResult moved = manager.lock(smsId, operator);
+                        manager.lockedBy(operator);
+                        manager.lock(operator, operator);
+                        manager.unlock(smsId, operator);
+                        if (!moved.isAcquired()) {
+                            throw new AssertionError("operator " + operator + " could not take its own contact");
+                        }
+                        operations.addAndGet(4);
+                    }
+                } catch (Throwable e) {
+                    synchronized (errors) {
+                        errors.add(e);
+                    }
+                } finally {
+                    done.countDown();
+                }
+            }).start();
+        }
+
+        final long begin = System.nanoTime();
+        start.countDown();
+        done.await();
+        final long elapsed = System.nanoTime() - begin;
+        LOGGER.info(String.format("ContactLockManager: %d threads, %.1f ns/op at %d locks",
+            THREADS, elapsed / (double) operations.get(), LOCKS));
+
+        assertTrue(errors.toString(), errors.isEmpty());
+        assertEquals(LOCKS, manager.size());
+        for (long operator = 0; operator < LOCKS; operator++) {
+            assertEquals(Long.valueOf(operator), manager.lockOf(operator));
+            assertNull(manager.lockedBy(LOCKS + operator));
+        }
+    }
+
+    /**
+     * Every operator locks the contact with its own id.
+     */
+    private static void lockAll(ContactLockManager manager, int locks) {
+        for (long operator = 0; operator < locks; operator++) {
+            manager.lock(operator, operator);
+        }
+    }
+
+    /**
+     * Operators move to another contact and back, with a LOCKED_BY lookup and a conflicting lock in between.
+     *
+     * @return the average nanoseconds per operation.
+     */
+    private static double run(ContactLockManager manager, int locks) {
+        final long begin = System.nanoTime();
+        for (int i = 0; i < OPERATIONS; i++) {
+            final long operator = i % locks;
+            final long smsId = locks + operator;
+            manager.lock(smsId, operator);
+            manager.lockedBy(operator);
+            manager.lock(smsId, (operator + 1) % locks);
+            manager.lock(operator, operator);
+        }
+        return (System.nanoTime() - begin) / (double) (OPERATIONS * 4L);
+    }
+}
@@ -0,0 +1,83 @@
+package com.imslbd.call_center.service;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.jdbc.JDBCClient;
+import org.junit.AfterClass;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link MySqlContactLockBackend} on three Vertx instances in this JVM, each with a JDBC client of its own on
+ * the same database. Runs only when a test database is given with -DcontactLock.mysql.url (and optionally
+ * contactLock.mysql.user and contactLock.mysql.password); the lease tables are created in it if missing.
+ * <p>
+ * Created by someone on 18/10/2026.
+ */
+public class MySqlContactLockBackendTest extends ContactLockBackendTestBase {
+    private static final int NODES = 3;
+    private static final String URL = System.getProperty("contactLock.mysql.url");
+    private static final List<Vertx> nodes = new ArrayList<>();
+    private static final List<JDBCClient> clients = new ArrayList<>();
+    private static final List<ContactLockBackend> backends = new ArrayList<>();
+
+    @BeforeClass
+    public static void startNodes() throws Exception {
+        Assume.assumeTrue("contactLock.mysql.url is not set", URL != null);
+        final JsonObject lockConfig = new JsonObject()
+            .put("leaseTable", "test_contact_lock_leases")
+            .put("sequenceTable", "test_contact_lock_sequence");
+        for (int i = 0; i < NODES; i++) {
+            final Vertx vertx = Vertx.vertx();
+            final JDBCClient jdbcClient = JDBCClient.createNonShared(vertx, new JsonObject()
+                .put("url", URL)
+                .put("driver_class", "com.mysql.jdbc.Driver")
+                .put("user", System.getProperty("contactLock.mysql.user", "root"))
+                .put("password", System.getProperty("contactLock.mysql.password", "")));
+            nodes.add(vertx);
+            clients.add(jdbcClient);
+            backends.add(new MySqlContactLockBackend(jdbcClient, lockConfig));
+        }
+        awaitTables();
+    }
+
+    /**
+     * The backends create their tables asynchronously, waits until a lease can be taken.
+     */
+    private static void awaitTables() throws Exception {
+        final long deadline = System.currentTimeMillis() + 30000;
+        while (true) {
+            try {
+                await(backends.get(0).acquire(-1L, -1L, 1));
+                await(backends.get(0).release(-1L, -1L));
+                return;
+            } catch (Exception ex) {
+                if (System.currentTimeMillis() > deadline) {
+                    throw ex;
+                }
+                Thread.sleep(200);
+            }
+        }
+    }
+
+    @AfterClass
+    public static void stopNodes() throws Exception {
+        clients.forEach(JDBCClient::close);
+        final CountDownLatch latch = new CountDownLatch(nodes.size());
+        nodes.forEach(vertx -> vertx.close(ar -> latch.countDown()));
+        latch.await(30, TimeUnit.SECONDS);
+        clients.clear();
+        nodes.clear();
+        backends.clear();
+    }
+
+    @Override
+    protected List<ContactLockBackend> backends() {
+        return backends;
+    }
+}